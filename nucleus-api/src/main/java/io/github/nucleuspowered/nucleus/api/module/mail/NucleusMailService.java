@@ -50,6 +50,27 @@ public interface NucleusMailService {
      */
     void sendMail(User playerFrom, User playerTo, String message);
 
+    /**
+     * Sends the same mail to a number of players, addressed from another subject.
+     *
+     * <p>This should be preferred over calling {@link #sendMail(User, User, String)} for each
+     * player when sending to many players.</p>
+     *
+     * @param playerFrom The {@link User} of the player to send the message from, or <code>null</code>
+     *                   for the console.
+     * @param playersTo The {@link User}s of the players to send the message to.
+     * @param message The message.
+     */
+    default void sendMail(@Nullable User playerFrom, Collection<? extends User> playersTo, String message) {
+        for (User playerTo : playersTo) {
+            if (playerFrom == null) {
+                sendMailFromConsole(playerTo, message);
+            } else {
+                sendMail(playerFrom, playerTo, message);
+            }
+        }
+    }
+
     /**
      * Sends mail to a player, addressed from the console.
      *
@@ -65,6 +65,11 @@ tasks {
         dependsOn(rootProject.tasks["gitHash"])
     }
 
+    test {
+        // Timing tests are skipped unless run with -Dnucleus.benchmark=true
+        systemProperty("nucleus.benchmark", System.getProperty("nucleus.benchmark", "false"))
+    }
+
 }
 
 blossom {
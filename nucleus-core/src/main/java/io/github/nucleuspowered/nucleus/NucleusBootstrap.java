@@ -37,6 +37,7 @@ import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.impl.NucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.impl.commandmetadata.CommandMetadataService;
 import io.github.nucleuspowered.nucleus.services.impl.moduledata.ModuleDataProvider;
+import io.github.nucleuspowered.nucleus.services.impl.storage.registry.IStorageRepositoryFactoryRegistryModule;
 import io.github.nucleuspowered.nucleus.services.interfaces.IConfigurateHelper;
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IModuleDataProvider;
@@ -93,6 +94,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -266,6 +268,10 @@ public class NucleusBootstrap {
         TeleportScannerRegistryModule registryModule = new TeleportScannerRegistryModule();
         registryModule.registerDefaults();
 
+        // The storage manager creates the storage registry.
+        this.serviceCollection.storageManager();
+        IStorageRepositoryFactoryRegistryModule.getInstance().registerDefaults();
+
         // Compatibility
         Optional<Asset> compatJson = Sponge.getAssetManager().getAsset(this.pluginContainer, "compat.json");
         compatJson.ifPresent(x -> {
@@ -600,7 +606,7 @@ public class NucleusBootstrap {
         IMessageProviderService messageProvider = this.serviceCollection.messageProvider();
         if (this.isErrored == null) {
             try {
-                this.serviceCollection.getServiceUnchecked(UniqueUserService.class).resetUniqueUserCount();
+                this.serviceCollection.getServiceUnchecked(UniqueUserService.class).load();
                 this.serviceCollection.getServiceUnchecked(UUIDChangeService.class).setStateAndReload(this.serviceCollection);
                 this.serviceCollection.commandMetadataService().activate();
 
@@ -688,8 +694,12 @@ public class NucleusBootstrap {
 
     private void saveData() {
         IStorageManager ism = this.serviceCollection.storageManager();
-        ism.getUserService().ensureSaved();
-        ism.getWorldService().ensureSaved();
+        try {
+            // Wait for these, anything queued for write-behind must be written before we stop.
+            CompletableFuture.allOf(ism.getUserService().ensureSaved(), ism.getWorldService().ensureSaved()).join();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
 
         if (Sponge.getGame().getState().ordinal() > GameState.SERVER_ABOUT_TO_START.ordinal()) {
             try {
@@ -237,9 +237,11 @@ public class Util {
             try (OutputStream os = new GZIPOutputStream(new FileOutputStream(to.toFile()))) {
                 Files.copy(from, os);
                 os.flush();
-                Files.delete(from);
             }
 
+            // Only once the archive is complete.
+            Files.delete(from);
+
         }
 
     }
@@ -0,0 +1,33 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.configurate.config;
+
+import ninja.leaping.configurate.objectmapping.Setting;
+import ninja.leaping.configurate.objectmapping.serialize.ConfigSerializable;
+
+@ConfigSerializable
+public class LogFileWriterConfig {
+
+    @Setting(value = "flush-interval-millis", comment = "config.common.logwriter.interval")
+    private long flushInterval = 1000;
+
+    @Setting(value = "flush-after-entries", comment = "config.common.logwriter.entries")
+    private int flushAfterEntries = 64;
+
+    @Setting(value = "queue-capacity", comment = "config.common.logwriter.capacity")
+    private int queueCapacity = 10000;
+
+    public long getFlushInterval() {
+        return Math.max(50, this.flushInterval);
+    }
+
+    public int getFlushAfterEntries() {
+        return Math.max(1, this.flushAfterEntries);
+    }
+
+    public int getQueueCapacity() {
+        return Math.max(1, this.queueCapacity);
+    }
+}
@@ -30,6 +30,9 @@ public class UserCacheDataNode {
     @Setting
     private boolean isMuted = false;
 
+    @Setting
+    private long lastModified = 0;
+
     public UserCacheDataNode() {
         // ignored - for Configurate
     }
@@ -42,6 +45,7 @@ public class UserCacheDataNode {
         this.ipAddress = x.get(CoreKeys.IP_ADDRESS).map(y -> y.replace("/", "")).orElse(null);
         this.jail = x.get(JailKeys.JAIL_DATA).map(JailData::getJailName).orElse(null);
         this.isMuted = x.get(MuteKeys.MUTE_DATA).isPresent();
+        this.lastModified = 0;
     }
 
     public Optional<String> getIpAddress() {
@@ -59,4 +63,18 @@ public class UserCacheDataNode {
     public boolean isMuted() {
         return this.isMuted;
     }
+
+    /**
+     * Gets the time that the user's data was last written when this node was built,
+     * or 0 if that is not known.
+     *
+     * @return The time, in milliseconds since the epoch
+     */
+    public long getLastModified() {
+        return this.lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
 }
@@ -20,6 +20,9 @@ public class UserCacheVersionNode {
     @Setting
     private Map<UUID, UserCacheDataNode> node = Maps.newHashMap();
 
+    @Setting
+    private boolean complete = true;
+
     public int getVersion() {
         return this.version;
     }
@@ -27,4 +30,30 @@ public class UserCacheVersionNode {
     public Map<UUID, UserCacheDataNode> getNode() {
         return this.node;
     }
+
+    /**
+     * Gets whether the last rebuild of the cache ran to completion.
+     *
+     * @return true if so
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    /**
+     * Creates a copy of this node, with its own map of entries. The entries themselves are shared.
+     *
+     * @return The copy
+     */
+    public UserCacheVersionNode copy() {
+        UserCacheVersionNode copy = new UserCacheVersionNode();
+        copy.version = this.version;
+        copy.node.putAll(this.node);
+        copy.complete = this.complete;
+        return copy;
+    }
 }
@@ -51,11 +51,19 @@ public abstract class EndTimestamp implements TimedEntry {
         this.endtimestamp = null;
     }
 
-    public void nextLoginToTimestamp() {
+    /**
+     * Turns a time that counts from the next login into a fixed end time, counting from now.
+     *
+     * @return true if this changed, in which case it needs to be saved
+     */
+    public boolean nextLoginToTimestamp() {
         if (this.timeFromNextLogin != null && this.endtimestamp == null) {
             this.endtimestamp = Instant.now().plus(this.timeFromNextLogin, ChronoUnit.SECONDS).getEpochSecond();
             this.timeFromNextLogin = null;
+            return true;
         }
+
+        return false;
     }
 
     @Override
@@ -5,7 +5,7 @@
 package io.github.nucleuspowered.nucleus.logging;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
+import io.github.nucleuspowered.nucleus.configurate.config.LogFileWriterConfig;
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
 import org.slf4j.Logger;
@@ -18,11 +18,25 @@ import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
+/**
+ * Queues log entries and writes them to a {@link DateRotatableFileLogger} from a dedicated thread.
+ *
+ * <p>Entries are written in groups, with one flush per group. A group is written once the flush interval
+ * has passed, or earlier if enough entries have been queued. If the queue is full, entries are dropped
+ * rather than holding up the thread that is logging them.</p>
+ */
 public abstract class AbstractLoggingHandler implements IReloadableService.Reloadable {
 
     private static final DateTimeFormatter formatter = DateTimeFormatter
@@ -31,11 +45,14 @@ public abstract class AbstractLoggingHandler implements IReloadableService.Reloa
             .withZone(ZoneId.systemDefault());
     private final IMessageProviderService messageProviderService;
     private final Logger slogger;
-    protected DateRotatableFileLogger logger;
-    private final List<String> queueEntry = Lists.newArrayList();
+    @Nullable protected volatile DateRotatableFileLogger logger;
+    private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
     private final String directoryName;
     private final String filePrefix;
-    private final Object locking = new Object();
+    private volatile LogFileWriterConfig writerConfig = new LogFileWriterConfig();
+    @Nullable private volatile Thread writerThread;
 
     @Inject
     public AbstractLoggingHandler(String directoryName,
@@ -50,68 +67,110 @@ public abstract class AbstractLoggingHandler implements IReloadableService.Reloa
 
     public void queueEntry(String s) {
         if (this.logger != null) {
-            synchronized (this.locking) {
-                this.queueEntry.add(s);
+            LogFileWriterConfig config = this.writerConfig;
+            int size = this.queueSize.incrementAndGet();
+            if (size > config.getQueueCapacity()) {
+                this.queueSize.decrementAndGet();
+                this.dropped.incrementAndGet();
+                return;
+            }
+
+            this.queue.offer(s);
+            if (size >= config.getFlushAfterEntries()) {
+                Thread thread = this.writerThread;
+                if (thread != null) {
+                    LockSupport.unpark(thread);
+                }
             }
         }
     }
 
+    protected void setWriterConfig(LogFileWriterConfig writerConfig) {
+        this.writerConfig = writerConfig;
+    }
+
     public void onServerShutdown() throws IOException {
         Preconditions.checkState(Sponge.getGame().getState().equals(GameState.SERVER_STOPPED));
         onShutdown();
     }
 
-    protected void onShutdown() throws IOException {
-        if (this.logger != null) {
-            this.logger.close();
-            this.logger = null;
+    protected synchronized void onShutdown() throws IOException {
+        Thread thread = this.writerThread;
+        this.writerThread = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        DateRotatableFileLogger fileLogger = this.logger;
+        this.logger = null;
+        if (fileLogger != null) {
+            fileLogger.close();
         }
     }
 
     protected abstract boolean enabledLog();
 
-    public void onTick() {
-        if (this.queueEntry.isEmpty()) {
+    protected synchronized void createLogger() throws IOException {
+        this.logger = new DateRotatableFileLogger(this.directoryName, this.filePrefix, s -> "[" +
+            formatter.format(Instant.now().atZone(ZoneOffset.systemDefault())) +
+            "] " + s);
+        if (this.writerThread == null) {
+            Thread thread = new Thread(this::runWriter, "Nucleus " + this.directoryName + " log writer");
+            thread.setDaemon(true);
+            this.writerThread = thread;
+            thread.start();
+        }
+    }
+
+    private void runWriter() {
+        Thread current = Thread.currentThread();
+        while (this.writerThread == current) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(this.writerConfig.getFlushInterval()));
+            writeQueued();
+        }
+
+        // Write anything that was left as we were stopped.
+        writeQueued();
+    }
+
+    private void writeQueued() {
+        int droppedEntries = this.dropped.getAndSet(0);
+        if (droppedEntries > 0) {
+            this.slogger.warn("The " + this.directoryName + " log queue was full, " + droppedEntries + " entries were not logged.");
+        }
+
+        if (this.queue.isEmpty()) {
             return;
         }
 
-        List<String> l;
-        synchronized (this.locking) {
-            l = Lists.newArrayList(this.queueEntry);
-            this.queueEntry.clear();
+        DateRotatableFileLogger fileLogger = this.logger;
+        if (fileLogger == null) {
+            // There is no logger to write to right now, so leave the entries for the next one.
+            return;
         }
 
-        if (this.logger == null) {
-            if (enabledLog()) {
-                try {
-                    createLogger();
-                } catch (IOException e) {
-                    this.slogger.warn(this.messageProviderService.getMessageString("commandlog.couldnotwrite"));
-                    e.printStackTrace();
-                    return;
-                }
-            } else {
-                return;
-            }
+        List<String> entries = new ArrayList<>();
+        String entry;
+        while ((entry = this.queue.poll()) != null) {
+            entries.add(entry);
+        }
+
+        this.queueSize.addAndGet(-entries.size());
+        if (!enabledLog()) {
+            // Logging has been turned off, so these are not wanted.
+            return;
         }
 
         try {
-            writeEntry(l);
-        } catch (IOException e) {
+            fileLogger.logEntry(entries);
+        } catch (IOException | IllegalStateException e) {
             this.slogger.warn(this.messageProviderService.getMessageString("commandlog.couldnotwrite"));
             e.printStackTrace();
         }
     }
-
-    protected void createLogger() throws IOException {
-        this.logger = new DateRotatableFileLogger(this.directoryName, this.filePrefix, s -> "[" +
-            formatter.format(Instant.now().atZone(ZoneOffset.systemDefault())) +
-            "] " + s);
-    }
-
-    private void writeEntry(Iterable<String> entry) throws IOException {
-        if (this.logger != null) {
-            this.logger.logEntry(entry);
-        }
-    }
 }
@@ -6,7 +6,10 @@ package io.github.nucleuspowered.nucleus.logging;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.github.nucleuspowered.nucleus.Util;
+import org.spongepowered.api.GameState;
+import org.spongepowered.api.Sponge;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -18,12 +21,22 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 
 public class DateRotatableFileLogger implements Closeable {
 
     private final static Path nucleusBase = Paths.get("logs/nucleus");
 
+    // Old log files are compressed here, so that writing new entries doesn't wait for it.
+    private final static ExecutorService compressor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Nucleus Log Compressor").setDaemon(true).build());
+    private final static long COMPRESSOR_WAIT_SECONDS = 30;
+
     private final Path directory;
     private final String filenamePrefix;
     private Instant currentDate;
@@ -48,7 +61,7 @@ public class DateRotatableFileLogger implements Closeable {
 
         if (this.file != null && !this.file.isClosed()) {
             try {
-                this.file.close();
+                closeAndCompress(this.file);
             } finally {
                 this.file = null;
             }
@@ -62,11 +75,8 @@ public class DateRotatableFileLogger implements Closeable {
             fileName = this.directory.toString() + "/" + this.filenamePrefix + "-" + DateTimeFormatter.ofPattern("yyyy-MM-dd").format(Instant.now().atZone(ZoneId.systemDefault())) + "-" + count + ".log";
             Path nextFile = Paths.get(fileName);
             if (Files.exists(nextFile)) {
-                try {
-                    Util.compressAndDeleteFile(nextFile);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+                // Left over from before, compress it and move on to the next file name.
+                compress(nextFile);
             } else if (!Files.exists(Paths.get(fileName + ".gz"))) {
                 this.file = new LogFile(nextFile, this.formatter);
                 go = true;
@@ -121,9 +131,47 @@ public class DateRotatableFileLogger implements Closeable {
         }
 
         if (this.file != null && !this.file.isClosed()) {
-            this.file.close();
+            if (isServerStopping()) {
+                // The compressor thread is a daemon, so it can be stopped part way through a file
+                // once the server has gone. Finish anything it was given, then do this file here.
+                waitForCompressor();
+                this.file.close();
+                Util.compressAndDeleteFile(this.file.getLocation());
+            } else {
+                closeAndCompress(this.file);
+            }
+
             this.file = null;
             this.isClosed = true;
         }
     }
+
+    private static boolean isServerStopping() {
+        return Sponge.getGame().getState().ordinal() >= GameState.SERVER_STOPPING.ordinal();
+    }
+
+    private static void waitForCompressor() {
+        try {
+            compressor.submit(() -> {}).get(COMPRESSOR_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void closeAndCompress(LogFile logFile) throws IOException {
+        logFile.close();
+        compress(logFile.getLocation());
+    }
+
+    private static void compress(Path path) {
+        compressor.execute(() -> {
+            try {
+                Util.compressAndDeleteFile(path);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
 }
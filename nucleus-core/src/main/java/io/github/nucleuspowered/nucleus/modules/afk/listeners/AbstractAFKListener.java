@@ -23,6 +23,10 @@ abstract class AbstractAFKListener implements ListenerBase {
         this.handler.stageUserActivityUpdate(player);
     }
 
+    final void remove(Player player) {
+        this.handler.onDisconnect(player.getUniqueId());
+    }
+
     final boolean getTriggerConfigEntry(AFKConfig config, Predicate<AFKConfig.Triggers> triggersPredicate) {
         return triggersPredicate.test(config.getTriggers());
     }
@@ -26,4 +26,9 @@ public class BasicAFKListener extends AbstractAFKListener {
         update(player);
     }
 
+    @Listener(order = Order.LAST)
+    public void onPlayerDisconnect(final ClientConnectionEvent.Disconnect event, @Getter("getTargetEntity") Player player) {
+        remove(player);
+    }
+
 }
@@ -5,10 +5,8 @@
 package io.github.nucleuspowered.nucleus.modules.afk.services;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import io.github.nucleuspowered.nucleus.api.module.afk.NucleusAFKService;
 import io.github.nucleuspowered.nucleus.api.util.NoExceptionAutoClosable;
@@ -40,19 +38,31 @@ import org.spongepowered.api.text.chat.ChatTypes;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.GuardedBy;
 import javax.inject.Inject;
 
+/**
+ * Tracks player activity and moves players to and from AFK.
+ *
+ * <p>Recording activity only writes the time of the activity to the player's {@link AFKData}, as it
+ * happens on every movement event. Each player has a deadline for their next AFK or kick check, held in
+ * a queue ordered by deadline, so {@link #onTick()} only looks at players whose deadline has passed.
+ * Deadlines are checked against the last activity time when they are reached, and pushed back if there
+ * has been activity since, so activity never has to touch the queue.</p>
+ */
 @APIService(NucleusAFKService.class)
 public class AFKHandler implements NucleusAFKService, IReloadableService.Reloadable, ServiceBase {
 
@@ -60,13 +70,10 @@ public class AFKHandler implements NucleusAFKService, IReloadableService.Reloada
     private final INucleusServiceCollection serviceCollection;
     private AFKConfig config = new AFKConfig();
 
-    @GuardedBy("lock")
-    private final Set<UUID> activity = Sets.newHashSet();
-
-    @GuardedBy("lock2")
-    private final Multimap<UUID, UUID> disabledTracking = HashMultimap.create();
-    private final Object lock = new Object();
-    private final Object lock2 = new Object();
+    // Players that were AFK when they did something, and so need to be moved out of AFK.
+    private final Queue<AFKData> returning = new ConcurrentLinkedQueue<>();
+    private final PriorityBlockingQueue<Deadline> deadlines = new PriorityBlockingQueue<>(16, Comparator.comparingLong((Deadline x) -> x.time));
+    private final Map<UUID, Set<UUID>> disabledTracking = Maps.newConcurrentMap();
 
     private final String afkOption = "nucleus.afk.toggletime";
     private final String afkKickOption = "nucleus.afk.kicktime";
@@ -83,82 +90,131 @@ public class AFKHandler implements NucleusAFKService, IReloadableService.Reloada
     }
 
     private void stageUserActivityUpdate(UUID uuid) {
-        synchronized (this.lock) {
-            synchronized (this.lock2) {
-                if (this.disabledTracking.containsKey(uuid)) {
-                    return;
-                }
-            }
+        if (this.disabledTracking.containsKey(uuid)) {
+            return;
+        }
+
+        AFKData afkData = this.data.get(uuid);
+        if (afkData == null) {
+            getOrCreateData(uuid);
+            return;
+        }
 
-            this.activity.add(uuid);
+        afkData.lastActivityTime = System.currentTimeMillis();
+        if (afkData.isKnownAfk && !afkData.returnQueued) {
+            afkData.returnQueued = true;
+            this.returning.offer(afkData);
         }
     }
 
+    public void onDisconnect(UUID uuid) {
+        // Any deadlines left in the queue are discarded when they are reached.
+        this.data.remove(uuid);
+    }
+
     public void onTick() {
-        synchronized (this.lock) {
-            this.activity.forEach(u -> this.data.compute(u, ((uuid, afkData) -> afkData == null ? new AFKData(uuid) : updateActivity(uuid, afkData))));
-            this.activity.clear();
+        AFKData returningData;
+        while ((returningData = this.returning.poll()) != null) {
+            returningData.returnQueued = false;
+            if (isTracked(returningData) && returningData.isKnownAfk && returningData.lastActivityTime > returningData.afkSince) {
+                updateActivity(returningData.uuid, returningData);
+            }
         }
 
-        List<UUID> uuidList = Sponge.getServer().getOnlinePlayers().stream().map(Player::getUniqueId).collect(Collectors.toList());
+        long now = System.currentTimeMillis();
+        Deadline next;
+        while ((next = this.deadlines.peek()) != null && next.time <= now) {
+            this.deadlines.poll();
+            AFKData afkData = next.data;
+            if (afkData.scheduledDeadline != next.time || !isTracked(afkData)) {
+                // Superseded by a newer deadline, or the player has left.
+                continue;
+            }
 
-        // Remove all offline players.
-        Set<Map.Entry<UUID, AFKData>> entries = this.data.entrySet();
-        entries.removeIf(refactor -> !uuidList.contains(refactor.getKey()));
-        entries.stream().filter(x -> !x.getValue().cacheValid).forEach(x -> x.getValue().updateFromPermissions());
+            Optional<Player> player = Sponge.getServer().getPlayer(afkData.uuid);
+            if (!player.isPresent()) {
+                this.data.remove(afkData.uuid, afkData);
+                continue;
+            }
 
-        long now = System.currentTimeMillis();
+            afkData.updateFromPermissions();
+            long deadline = afkData.nextDeadline();
+            if (deadline > now) {
+                // There has been activity since this was scheduled, or the times have changed.
+                schedule(afkData);
+            } else if (deadline < 0) {
+                afkData.scheduledDeadline = -1;
+            } else if (afkData.isKnownAfk) {
+                afkData.willKick = true;
+                afkData.scheduledDeadline = -1;
+                kick(player.get());
+            } else {
+                // Schedules the kick, if there is one.
+                setAfkInternal(player.get());
+            }
+        }
+    }
 
-        // Check AFK status.
-        entries.stream().filter(x -> x.getValue().isKnownAfk && !x.getValue().willKick && x.getValue().timeToKick > 0).forEach(e -> {
-            if (now - e.getValue().lastActivityTime > e.getValue().timeToKick) {
-                // Kick them
-                e.getValue().willKick = true;
-                NucleusTextTemplateImpl message = this.config.getMessages().getKickMessage();
-                TextRepresentable t;
-                if (message == null || message.isEmpty()) {
-                    t = this.serviceCollection.messageProvider().getMessageForDefault("afk.kickreason");
-                } else {
-                    t = message;
-                }
+    private void kick(Player player) {
+        NucleusTextTemplateImpl message = this.config.getMessages().getKickMessage();
+        TextRepresentable t;
+        if (message == null || message.isEmpty()) {
+            t = this.serviceCollection.messageProvider().getMessageForDefault("afk.kickreason");
+        } else {
+            t = message;
+        }
 
-                final NucleusTextTemplateImpl messageToServer = this.config.getMessages().getOnKick();
+        final NucleusTextTemplateImpl messageToServer = this.config.getMessages().getOnKick();
+        MessageChannel mc;
+        if (this.config.isBroadcastOnKick()) {
+            mc = MessageChannel.TO_ALL;
+        } else {
+            mc = new PermissionMessageChannel(this.serviceCollection.permissionService(), AFKPermissions.AFK_NOTIFY);
+        }
 
-                Sponge.getServer().getPlayer(e.getKey()).ifPresent(player -> {
-                    MessageChannel mc;
-                    if (this.config.isBroadcastOnKick()) {
-                        mc = MessageChannel.TO_ALL;
-                    } else {
-                        mc = new PermissionMessageChannel(serviceCollection.permissionService(), AFKPermissions.AFK_NOTIFY);
-                    }
+        AFKEvents.Kick events = new AFKEvents.Kick(player, messageToServer.getForCommandSource(player), mc);
+        if (Sponge.getEventManager().post(events)) {
+            // Cancelled.
+            return;
+        }
 
-                    AFKEvents.Kick events = new AFKEvents.Kick(player, messageToServer.getForCommandSource(player), mc);
-                    if (Sponge.getEventManager().post(events)) {
-                        // Cancelled.
-                        return;
-                    }
+        Text toSend = t instanceof NucleusTextTemplateImpl ? ((NucleusTextTemplateImpl) t).getForCommandSource(player) : t.toText();
+        Sponge.getScheduler().createSyncExecutor(this.serviceCollection.pluginContainer()).execute(() -> player.kick(toSend));
+        events.getMessage().ifPresent(m -> events.getChannel().send(player, m, ChatTypes.SYSTEM));
+    }
 
-                    Text toSend = t instanceof NucleusTextTemplateImpl ? ((NucleusTextTemplateImpl) t).getForCommandSource(player) : t.toText();
-                    Sponge.getScheduler().createSyncExecutor(this.serviceCollection.pluginContainer()).execute(() -> player.kick(toSend));
-                    events.getMessage().ifPresent(m -> events.getChannel().send(player, m, ChatTypes.SYSTEM));
-                });
-            }
-        });
+    private void schedule(AFKData afkData) {
+        long deadline = afkData.nextDeadline();
+        afkData.scheduledDeadline = deadline;
+        if (deadline > 0) {
+            this.deadlines.offer(new Deadline(afkData, deadline));
+        }
+    }
 
-        // Check AFK status.
-        entries.stream().filter(x -> !x.getValue().isKnownAfk && x.getValue().timeToAfk > 0).forEach(e -> {
-            if (now - e.getValue().lastActivityTime  > e.getValue().timeToAfk) {
-                Sponge.getServer().getPlayer(e.getKey()).ifPresent(this::setAfkInternal);
-            }
+    private boolean isTracked(AFKData afkData) {
+        return this.data.get(afkData.uuid) == afkData;
+    }
+
+    private AFKData getOrCreateData(UUID uuid) {
+        return this.data.computeIfAbsent(uuid, u -> {
+            AFKData afkData = new AFKData(u);
+            schedule(afkData);
+            return afkData;
         });
     }
 
     public void invalidateAfkCache() {
-        this.data.forEach((k, v) -> v.cacheValid = false);
+        this.data.forEach((k, v) -> {
+            v.cacheValid = false;
+
+            // Reschedules if the times have changed.
+            v.updateFromPermissions();
+        });
     }
 
     private boolean isAFK(UUID uuid) {
-        return this.data.containsKey(uuid) && this.data.get(uuid).isKnownAfk;
+        AFKData afkData = this.data.get(uuid);
+        return afkData != null && afkData.isKnownAfk;
     }
 
     private void setAfkInternal(Player player) {
@@ -174,8 +230,7 @@ public class AFKHandler implements NucleusAFKService, IReloadableService.Reloada
             return false;
         }
 
-        UUID uuid = player.getUniqueId();
-        AFKData a = this.data.compute(uuid, ((u, afkData) -> afkData == null ? new AFKData(u) : afkData));
+        AFKData a = getOrCreateData(player.getUniqueId());
         if (force) {
             a.isKnownAfk = false;
         } else if (a.isKnownAfk) {
@@ -183,17 +238,15 @@ public class AFKHandler implements NucleusAFKService, IReloadableService.Reloada
         }
 
         if (a.canGoAfk()) {
-            // Don't accident undo setting AFK, remove any activity from the list.
-            synchronized (this.lock) {
-                this.activity.remove(uuid);
-            }
-
+            // Activity from before now won't undo setting AFK, as it is older than afkSince.
+            a.afkSince = System.currentTimeMillis();
             Tuples.NullableTuple<Text, MessageChannel> ttmc = getAFKMessage(player, true);
             AFKEvents.To event = new AFKEvents.To(player, ttmc.getFirstUnwrapped(), ttmc.getSecondUnwrapped(), cause);
             Sponge.getEventManager().post(event);
             actionEvent(event, "command.afk.to.nobc", "command.afk.to.console");
 
             a.isKnownAfk = true;
+            schedule(a);
             return true;
         }
 
@@ -225,6 +278,7 @@ public class AFKHandler implements NucleusAFKService, IReloadableService.Reloada
 
         }
 
+        schedule(data);
         return data;
     }
 
@@ -261,7 +315,7 @@ public class AFKHandler implements NucleusAFKService, IReloadableService.Reloada
 
     @Override public boolean setAFK(Cause cause, Player player, boolean isAfk) {
         Preconditions.checkArgument(cause.root() instanceof PluginContainer, "The root object MUST be a plugin container.");
-        AFKData data = this.data.computeIfAbsent(player.getUniqueId(), AFKData::new);
+        AFKData data = getOrCreateData(player.getUniqueId());
         if (data.isKnownAfk == isAfk) {
             // Already AFK
             return false;
@@ -279,7 +333,7 @@ public class AFKHandler implements NucleusAFKService, IReloadableService.Reloada
     }
 
     @Override public Instant lastActivity(Player player) {
-        return Instant.ofEpochMilli(this.data.computeIfAbsent(player.getUniqueId(), AFKData::new).lastActivityTime);
+        return Instant.ofEpochMilli(getOrCreateData(player.getUniqueId()).lastActivityTime);
     }
 
     @Override public Optional<Duration> timeForInactivity(User user) {
@@ -310,15 +364,16 @@ public class AFKHandler implements NucleusAFKService, IReloadableService.Reloada
 
     @Override public NoExceptionAutoClosable disableTrackingForPlayer(final Player player, int ticks) {
         // Disable tracking now with a new UUID.
-        Task n = Task.builder().execute(t -> {
-            synchronized (this.lock2) {
-                this.disabledTracking.remove(player.getUniqueId(), t.getUniqueId());
-            }
-        }).delayTicks(ticks).submit(this.serviceCollection.pluginContainer());
-
-        synchronized (this.lock2) {
-            this.disabledTracking.put(player.getUniqueId(), n.getUniqueId());
-        }
+        Task n = Task.builder().execute(t -> this.disabledTracking.computeIfPresent(player.getUniqueId(), (uuid, tasks) -> {
+            tasks.remove(t.getUniqueId());
+            return tasks.isEmpty() ? null : tasks;
+        })).delayTicks(ticks).submit(this.serviceCollection.pluginContainer());
+
+        this.disabledTracking.compute(player.getUniqueId(), (uuid, tasks) -> {
+            Set<UUID> result = tasks == null ? Sets.newHashSet() : tasks;
+            result.add(n.getUniqueId());
+            return result;
+        });
 
         return () -> {
             n.cancel();
@@ -350,17 +405,31 @@ public class AFKHandler implements NucleusAFKService, IReloadableService.Reloada
                 .collect(Collectors.toList());
     }
 
+    private static final class Deadline {
+
+        private final AFKData data;
+        private final long time;
+
+        private Deadline(AFKData data, long time) {
+            this.data = data;
+            this.time = time;
+        }
+    }
+
     class AFKData {
 
         private final UUID uuid;
 
-        private long lastActivityTime = System.currentTimeMillis();
-        boolean isKnownAfk = false;
-        private boolean willKick = false;
+        private volatile long lastActivityTime = System.currentTimeMillis();
+        private volatile long afkSince = 0;
+        volatile boolean isKnownAfk = false;
+        private volatile boolean willKick = false;
+        private volatile boolean returnQueued = false;
+        private volatile long scheduledDeadline = -1;
 
-        private boolean cacheValid = false;
-        private long timeToAfk = -1;
-        private long timeToKick = -1;
+        private volatile boolean cacheValid = false;
+        private volatile long timeToAfk = -1;
+        private volatile long timeToKick = -1;
 
         private AFKData(UUID uuid) {
             this(uuid, true);
@@ -373,6 +442,21 @@ public class AFKHandler implements NucleusAFKService, IReloadableService.Reloada
             }
         }
 
+        /**
+         * Gets the time at which this player should next be checked, or -1 if they never need to be.
+         *
+         * @return The time, in milliseconds since the epoch
+         */
+        private long nextDeadline() {
+            if (!this.isKnownAfk) {
+                return this.timeToAfk > 0 ? this.lastActivityTime + this.timeToAfk : -1;
+            } else if (!this.willKick && this.timeToKick > 0) {
+                return this.lastActivityTime + this.timeToKick;
+            }
+
+            return -1;
+        }
+
         private boolean canGoAfk() {
             this.cacheValid = false;
             updateFromPermissions();
@@ -388,6 +472,8 @@ public class AFKHandler implements NucleusAFKService, IReloadableService.Reloada
         void updateFromPermissions() {
             synchronized (this) {
                 if (!this.cacheValid) {
+                    long previousAfk = this.timeToAfk;
+                    long previousKick = this.timeToKick;
                     // Get the subject.
                     IPermissionService service = AFKHandler.this.serviceCollection.permissionService();
                     Sponge.getServer().getPlayer(this.uuid).ifPresent(x -> {
@@ -407,6 +493,10 @@ public class AFKHandler implements NucleusAFKService, IReloadableService.Reloada
 
                         this.cacheValid = true;
                     });
+
+                    if ((previousAfk != this.timeToAfk || previousKick != this.timeToKick) && isTracked(this)) {
+                        schedule(this);
+                    }
                 }
             }
         }
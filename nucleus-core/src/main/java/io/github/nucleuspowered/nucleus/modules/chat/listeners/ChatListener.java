@@ -27,6 +27,8 @@ import org.spongepowered.api.text.serializer.TextSerializers;
 import org.spongepowered.api.text.transform.SimpleTextFormatter;
 import org.spongepowered.api.text.transform.SimpleTextTemplateApplier;
 
+import java.util.regex.Pattern;
+
 import javax.inject.Inject;
 
 /**
@@ -36,6 +38,8 @@ import javax.inject.Inject;
  */
 public class ChatListener implements IReloadableService.Reloadable, ListenerBase.Conditional {
 
+    private static final Pattern BLUE_UNDERLINE = Pattern.compile("&9&n([A-Za-z0-9-.]+)(&r)?");
+
     private final ChatService chatService;
     private final ITextStyleService textStyleService;
     private final IPermissionService permissionService;
@@ -114,8 +118,8 @@ public class ChatListener implements IReloadableService.Reloadable, ListenerBase
 
     private Text useMessage(Player player, Text rawMessage, ChatTemplateConfig chatTemplateConfig) {
         String m = TextSerializers.FORMATTING_CODE.serialize(rawMessage);
-        if (this.chatConfig.isRemoveBlueUnderline()) {
-            m = m.replaceAll("&9&n([A-Za-z0-9-.]+)(&r)?", "$1");
+        if (this.chatConfig.isRemoveBlueUnderline() && m.contains("&9&n")) {
+            m = BLUE_UNDERLINE.matcher(m).replaceAll("$1");
         }
 
         m = this.textStyleService.stripPermissionless(ChatPermissions.CHAT_COLOR, ChatPermissions.CHAT_STYLE, player, m);
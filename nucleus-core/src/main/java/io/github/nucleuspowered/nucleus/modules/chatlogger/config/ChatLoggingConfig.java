@@ -4,6 +4,7 @@
  */
 package io.github.nucleuspowered.nucleus.modules.chatlogger.config;
 
+import io.github.nucleuspowered.nucleus.configurate.config.LogFileWriterConfig;
 import ninja.leaping.configurate.objectmapping.Setting;
 import ninja.leaping.configurate.objectmapping.serialize.ConfigSerializable;
 
@@ -22,6 +23,9 @@ public class ChatLoggingConfig {
     @Setting(value = "log-mail", comment = "config.chatlog.mail")
     private boolean logMail = false;
 
+    @Setting(value = "file-writer", comment = "config.common.logwriter.base")
+    private LogFileWriterConfig fileWriterConfig = new LogFileWriterConfig();
+
     public boolean isEnableLog() {
         return this.enableLog;
     }
@@ -37,4 +41,8 @@ public class ChatLoggingConfig {
     public boolean isLogMail() {
         return this.logMail;
     }
+
+    public LogFileWriterConfig getFileWriterConfig() {
+        return this.fileWriterConfig;
+    }
 }
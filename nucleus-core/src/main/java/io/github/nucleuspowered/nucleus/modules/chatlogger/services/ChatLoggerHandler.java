@@ -26,6 +26,7 @@ public class ChatLoggerHandler extends AbstractLoggingHandler implements Service
     public void onReload(INucleusServiceCollection serviceCollection) {
         ChatLoggingConfig clca = serviceCollection.moduleDataProvider().getModuleConfig(ChatLoggingConfig.class);
         this.enabled = clca.isEnableLog();
+        this.setWriterConfig(clca.getFileWriterConfig());
         try {
             if (this.enabled && this.logger == null) {
                 this.createLogger();
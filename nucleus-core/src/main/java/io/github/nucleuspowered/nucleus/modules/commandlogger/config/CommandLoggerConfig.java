@@ -5,6 +5,7 @@
 package io.github.nucleuspowered.nucleus.modules.commandlogger.config;
 
 import com.google.common.collect.ImmutableList;
+import io.github.nucleuspowered.nucleus.configurate.config.LogFileWriterConfig;
 import ninja.leaping.configurate.objectmapping.Setting;
 import ninja.leaping.configurate.objectmapping.serialize.ConfigSerializable;
 
@@ -26,6 +27,9 @@ public class CommandLoggerConfig {
     @Setting(value = "log-to-file", comment = "config.commandlogger.file")
     private boolean logToFile = false;
 
+    @Setting(value = "file-writer", comment = "config.common.logwriter.base")
+    private LogFileWriterConfig fileWriterConfig = new LogFileWriterConfig();
+
     @Setting(value = "cause-enhanced", comment = "config.commandlogger.causeenhanced")
     private boolean causeEnhanced = true;
 
@@ -45,6 +49,10 @@ public class CommandLoggerConfig {
         return this.logToFile;
     }
 
+    public LogFileWriterConfig getFileWriterConfig() {
+        return this.fileWriterConfig;
+    }
+
     public boolean isCauseEnhanced() {
         return this.causeEnhanced;
     }
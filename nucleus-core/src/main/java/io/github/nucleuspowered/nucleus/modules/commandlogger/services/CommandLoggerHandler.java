@@ -26,6 +26,7 @@ public class CommandLoggerHandler extends AbstractLoggingHandler implements IRel
     @Override
     public void onReload(INucleusServiceCollection serviceCollection) {
         this.config = serviceCollection.moduleDataProvider().getModuleConfig(CommandLoggerConfig.class);
+        this.setWriterConfig(this.config.getFileWriterConfig());
         try {
             if (this.config.isLogToFile() && this.logger == null) {
                 this.createLogger();
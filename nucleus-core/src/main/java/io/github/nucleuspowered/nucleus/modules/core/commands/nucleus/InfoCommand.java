@@ -130,6 +130,12 @@ public class InfoCommand implements ICommandExecutor<CommandSource> {
             disabled.stream().sorted().forEach(information::add);
         }
 
+        information.add(separator);
+        information.add("Nucleus: Permission Cache");
+        information.add(separator);
+
+        information.add("Hits: " + context.getServiceCollection().permissionService().getPermissionCacheHits());
+        information.add("Misses: " + context.getServiceCollection().permissionService().getPermissionCacheMisses());
 
         String fileName = "nucleus-info-" + DateTimeFormatter.BASIC_ISO_DATE.format(LocalDateTime.now()) + "-" + DateTimeFormatter.ofPattern("HHmmss").format(LocalDateTime.now()) + ".txt";
         try (BufferedWriter fw = new BufferedWriter(new FileWriter(fileName, false))) {
@@ -24,7 +24,8 @@ public class RebuildUserCacheCommand implements ICommandExecutor<CommandSource>
     @Override
     public ICommandResult execute(ICommandContext<? extends CommandSource> context) {
         context.sendMessage("command.nucleus.rebuild.start");
-        if (context.getServiceCollection().userCacheService().fileWalk()) {
+        if (context.getServiceCollection().userCacheService()
+                .fileWalk((done, total) -> context.sendMessage("command.nucleus.rebuild.progress", done, total))) {
             context.sendMessage("command.nucleus.rebuild.end");
             return context.successResult();
         } else {
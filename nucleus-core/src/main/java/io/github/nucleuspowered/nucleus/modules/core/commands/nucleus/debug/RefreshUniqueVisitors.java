@@ -40,7 +40,12 @@ public class RefreshUniqueVisitors implements ICommandExecutor<CommandSource> {
             scs = Sponge.getServer()::getConsole;
         }
 
-        uus.resetUniqueUserCount(l -> context.sendMessageTo(scs.get(), "command.nucleus.debug.refreshuniquevisitors.done", l));
+        if (!uus.resetUniqueUserCount(
+                (checked, total) -> context.sendMessageTo(scs.get(), "command.nucleus.debug.refreshuniquevisitors.progress", checked, total),
+                l -> context.sendMessageTo(scs.get(), "command.nucleus.debug.refreshuniquevisitors.done", l))) {
+            return context.errorResult("command.nucleus.debug.refreshuniquevisitors.running");
+        }
+
         return context.successResult();
     }
 }
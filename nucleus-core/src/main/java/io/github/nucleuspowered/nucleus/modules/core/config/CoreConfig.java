@@ -82,6 +82,9 @@ public class CoreConfig {
     @Setting(value = "check-first-date-played-on-first-joined", comment = "config.core.firstdateplayed")
     private boolean checkFirstDatePlayed = true;
 
+    @Setting(value = "storage", comment = "config.core.storage.info")
+    private StorageConfig storageConfig = new StorageConfig();
+
     public boolean isDebugmode() {
         return this.debugmode;
     }
@@ -165,4 +168,8 @@ public class CoreConfig {
     public boolean isCheckFirstDatePlayed() {
         return this.checkFirstDatePlayed;
     }
+
+    public StorageConfig getStorageConfig() {
+        return this.storageConfig;
+    }
 }
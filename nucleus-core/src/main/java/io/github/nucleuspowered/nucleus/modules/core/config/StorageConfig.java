@@ -0,0 +1,56 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.core.config;
+
+import ninja.leaping.configurate.objectmapping.Setting;
+import ninja.leaping.configurate.objectmapping.serialize.ConfigSerializable;
+
+import java.time.Duration;
+
+@ConfigSerializable
+public class StorageConfig {
+
+    @Setting(value = "storage-engine", comment = "config.core.storage.engine")
+    private String storageEngine = "nucleus:flatfile";
+
+    @Setting(value = "pretty-print-json", comment = "config.core.storage.prettyprint")
+    private boolean prettyPrintJson = true;
+
+    @Setting(value = "write-behind", comment = "config.core.storage.writebehind.enabled")
+    private boolean writeBehind = false;
+
+    @Setting(value = "write-behind-interval-seconds", comment = "config.core.storage.writebehind.interval")
+    private long writeBehindInterval = 10;
+
+    @Setting(value = "write-behind-dirty-threshold", comment = "config.core.storage.writebehind.threshold")
+    private int writeBehindThreshold = 200;
+
+    @Setting(value = "write-behind-batch-size", comment = "config.core.storage.writebehind.batch")
+    private int writeBehindBatchSize = 50;
+
+    public String getStorageEngine() {
+        return this.storageEngine;
+    }
+
+    public boolean isPrettyPrintJson() {
+        return this.prettyPrintJson;
+    }
+
+    public boolean isWriteBehind() {
+        return this.writeBehind;
+    }
+
+    public Duration getWriteBehindInterval() {
+        return Duration.ofSeconds(Math.max(1, this.writeBehindInterval));
+    }
+
+    public int getWriteBehindThreshold() {
+        return Math.max(1, this.writeBehindThreshold);
+    }
+
+    public int getWriteBehindBatchSize() {
+        return Math.max(1, this.writeBehindBatchSize);
+    }
+}
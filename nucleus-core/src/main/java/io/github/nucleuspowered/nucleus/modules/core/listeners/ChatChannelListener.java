@@ -18,7 +18,10 @@ import org.spongepowered.api.text.channel.MessageChannel;
 import org.spongepowered.api.text.channel.MessageReceiver;
 import org.spongepowered.api.text.channel.MutableMessageChannel;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 public class ChatChannelListener implements ListenerBase {
 
@@ -36,18 +39,21 @@ public class ChatChannelListener implements ListenerBase {
         if (channelOptional.map(IChatMessageFormatterService.Channel::willFormat).orElse(false)) {
             IChatMessageFormatterService.Channel channel = channelOptional.get();
             channel.formatMessageEvent(source, chat.getFormatter());
+            // Work out who can receive the message once, rather than once per member.
+            final Collection<MessageReceiver> receivers = channel.receivers();
             chat.setChannel(chat.getChannel().map(x -> {
+                Set<MessageReceiver> receiverSet = new HashSet<>(receivers);
                 MutableMessageChannel messageChannel = x.asMutable();
                 // Copy to make sure we don't CME
                 for (MessageReceiver toSendTo : ImmutableList.copyOf(messageChannel.getMembers())) {
-                    if (!channel.receivers().contains(toSendTo)) {
+                    if (!receiverSet.contains(toSendTo)) {
                         // If the receiver is not in the channel, remove
                         messageChannel.removeMember(toSendTo);
                     }
                 }
 
                 return (MessageChannel) messageChannel;
-            }).orElseGet(() -> MessageChannel.fixed(channel.receivers())));
+            }).orElseGet(() -> MessageChannel.fixed(receivers)));
         }
     }
 
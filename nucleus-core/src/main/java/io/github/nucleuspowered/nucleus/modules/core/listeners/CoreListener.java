@@ -18,7 +18,6 @@ import io.github.nucleuspowered.nucleus.scaffold.listener.ListenerBase;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
-import io.github.nucleuspowered.nucleus.services.impl.storage.services.UserService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
 import io.github.nucleuspowered.storage.services.IStorageService;
@@ -31,6 +30,7 @@ import org.spongepowered.api.event.CauseStackManager;
 import org.spongepowered.api.event.Listener;
 import org.spongepowered.api.event.Order;
 import org.spongepowered.api.event.filter.Getter;
+import org.spongepowered.api.event.filter.IsCancelled;
 import org.spongepowered.api.event.game.GameReloadEvent;
 import org.spongepowered.api.event.game.state.GameStoppingServerEvent;
 import org.spongepowered.api.event.network.ClientConnectionEvent;
@@ -40,6 +40,7 @@ import org.spongepowered.api.service.pagination.PaginationService;
 import org.spongepowered.api.text.Text;
 import org.spongepowered.api.text.action.TextActions;
 import org.spongepowered.api.text.format.TextColors;
+import org.spongepowered.api.util.Tristate;
 
 import java.net.InetAddress;
 import java.net.MalformedURLException;
@@ -72,6 +73,11 @@ public class CoreListener implements IReloadableService.Reloadable, ListenerBase
             e.printStackTrace();
         }
         this.url = u;
+        final IStorageService.Keyed.Prefetching<UUID, IUserQueryObject, IUserDataObject> userService =
+                serviceCollection.storageManager().getUserService();
+        userService.registerPrefetchKey(CoreKeys.FIRST_JOIN_PROCESSED);
+        userService.registerPrefetchKey(CoreKeys.LAST_LOGIN);
+        userService.registerPrefetchKey(CoreKeys.LAST_KNOWN_NAME);
     }
 
     @Listener(order = Order.POST)
@@ -81,9 +87,9 @@ public class CoreListener implements IReloadableService.Reloadable, ListenerBase
             return;
         }
 
-        // Create user data if required, and place into cache.
-        // As this is already async, load on thread.
-        final IUserDataObject dataObject = this.serviceCollection.storageManager().getUserService().getOrNewOnThread(userId);
+        // Create user data if required, decode what the login and join listeners will need, and keep
+        // it in memory until they have run. As this is already async, load on thread.
+        final IUserDataObject dataObject = this.serviceCollection.storageManager().getUserService().prefetchOnThread(userId);
 
         // Fire the event, which will be async too, perhaps unsurprisingly.
         // The main use for this will be migrations.
@@ -99,6 +105,21 @@ public class CoreListener implements IReloadableService.Reloadable, ListenerBase
         this.serviceCollection.messageProvider().invalidateLocaleCacheFor(userId);
     }
 
+    @Listener(order = Order.POST)
+    @IsCancelled(Tristate.TRUE)
+    public void onPlayerAuthCancelled(final ClientConnectionEvent.Auth event) {
+        final UUID userId = event.getProfile().getUniqueId();
+        if (userId != null) {
+            this.serviceCollection.storageManager().getUserService().unpin(userId);
+        }
+    }
+
+    @Listener(order = Order.POST)
+    @IsCancelled(Tristate.TRUE)
+    public void onPlayerLoginCancelled(final ClientConnectionEvent.Login event, @Getter("getTargetUser") User user) {
+        this.serviceCollection.storageManager().getUserService().unpin(user.getUniqueId());
+    }
+
     /* (non-Javadoc)
      * We do this last to avoid interfering with other modules.
      */
@@ -156,7 +177,7 @@ public class CoreListener implements IReloadableService.Reloadable, ListenerBase
                 .orElse(false)) {
 
             if (!this.checkSponge || !Util.hasPlayedBeforeSponge(player)) {
-                this.serviceCollection.getServiceUnchecked(UniqueUserService.class).resetUniqueUserCount();
+                this.serviceCollection.getServiceUnchecked(UniqueUserService.class).addUniqueUser(player.getUniqueId());
 
                 NucleusFirstJoinEvent firstJoinEvent = new OnFirstLoginEvent(
                         event.getCause(), player, event.getOriginalChannel(), event.getChannel().orElse(null), event.getOriginalMessage(),
@@ -202,8 +223,18 @@ public class CoreListener implements IReloadableService.Reloadable, ListenerBase
         }
     }
 
+    /* (non-Javadoc)
+     * The join listeners have all run, so the prefetched data can go back to the normal cache.
+     */
+    @Listener(order = Order.POST)
+    public void onPlayerJoinPost(final ClientConnectionEvent.Join event, @Getter("getTargetEntity") final Player player) {
+        this.serviceCollection.storageManager().getUserService().unpin(player.getUniqueId());
+    }
+
     @Listener(order = Order.LAST)
     public void onPlayerQuit(final ClientConnectionEvent.Disconnect event, @Getter("getTargetEntity") final Player player) {
+        this.serviceCollection.storageManager().getUserService().unpin(player.getUniqueId());
+
         // There is an issue in Sponge where the connection may not even exist, because they were disconnected before the connection was
         // completely established.
         //noinspection ConstantConditions
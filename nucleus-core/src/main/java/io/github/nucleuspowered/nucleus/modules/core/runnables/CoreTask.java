@@ -24,6 +24,9 @@ import java.util.stream.Collectors;
 @NonnullByDefault
 public class CoreTask implements TaskBase, IReloadableService.Reloadable {
 
+    // Logging in takes seconds, so data pinned for longer than this belongs to a client that dropped before it joined.
+    private static final Duration PIN_EXPIRY = Duration.of(1, ChronoUnit.MINUTES);
+
     private boolean printSave = false;
     private final INucleusServiceCollection serviceCollection;
 
@@ -48,6 +51,8 @@ public class CoreTask implements TaskBase, IReloadableService.Reloadable {
             this.serviceCollection.logger().info(this.serviceCollection.messageProvider().getMessageString("core.savetask.starting"));
         }
 
+        this.serviceCollection.storageManager().getUserService().expirePins(PIN_EXPIRY);
+
         // Only do maintenance on the cache once it's been saved.
         this.serviceCollection.storageManager().saveAll().thenAccept(x -> {
             if (this.printSave) {
@@ -13,108 +13,284 @@ import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
 import io.github.nucleuspowered.storage.services.IStorageService;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.data.manipulator.mutable.entity.JoinData;
+import org.spongepowered.api.entity.living.player.User;
 import org.spongepowered.api.profile.GameProfile;
 import org.spongepowered.api.scheduler.Task;
 import org.spongepowered.api.service.user.UserStorageService;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+/**
+ * Keeps track of the players who have ever joined the server, for the {{uniquevisitor}} token.
+ *
+ * <p>The visitors are kept in a file, sixteen bytes to a player, which is added to as players join
+ * for the first time. Going through every user that the server knows about only happens if the file
+ * does not exist yet, or when a rebuild is asked for.</p>
+ */
 @Singleton
-public class UniqueUserService implements ServiceBase, IReloadableService.Reloadable {
+public class UniqueUserService implements ServiceBase, IReloadableService.Reloadable, IReloadableService.DataLocationReloadable {
+
+    private static final String FILE_NAME = "uniquevisitors.dat";
+    private static final int ENTRY_SIZE = 16;
+    private static final int PROGRESS_STEPS = 10;
 
     public static UniqueUserService INSTANCE;
     private final INucleusServiceCollection serviceCollection;
+    private final Supplier<Path> file;
     private boolean isMoreAccurate = false;
 
+    private final Set<UUID> visitors = ConcurrentHashMap.newKeySet();
+
+    // First joins that happen while a rebuild is in progress, which the rebuild may not see.
+    private final Set<UUID> joinedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private final Object fileLock = new Object();
+
     @Inject
     public UniqueUserService(INucleusServiceCollection serviceCollection) {
         if (INSTANCE == null) {
             INSTANCE = this;
         }
         this.serviceCollection = serviceCollection;
+        final Supplier<Path> dataDir = serviceCollection.dataDir();
+        this.file = () -> dataDir.get().resolve(FILE_NAME);
     }
 
     private static boolean ERROR_REPORTED = false;
 
-    // This is a session variable - does not get saved on restart.
-    private long userCount = 0;
-    private boolean userCountIsDirty = false;
-
     public long getUniqueUserCount() {
-        if (this.userCountIsDirty) {
-            return this.userCount + 1;
+        return this.visitors.size();
+    }
+
+    /**
+     * Loads the visitors from their file, building the file if it does not exist.
+     */
+    public void load() {
+        Task.builder().async().execute(t -> {
+            synchronized (this.fileLock) {
+                final Path path = this.file.get();
+                if (!Files.exists(path)) {
+                    this.visitors.clear();
+                    resetUniqueUserCount();
+                    return;
+                }
+
+                try {
+                    final Set<UUID> loaded = read(path);
+                    if (Files.size(path) % ENTRY_SIZE != 0) {
+                        // A write was cut off, tidy up so that new entries line up again.
+                        writeAll(path, loaded);
+                    }
+
+                    this.visitors.clear();
+                    this.visitors.addAll(loaded);
+                } catch (IOException e) {
+                    this.serviceCollection.logger().error("Could not read the unique visitors file, it will be rebuilt.", e);
+                    resetUniqueUserCount();
+                }
+            }
+        }).submit(this.serviceCollection.pluginContainer());
+    }
+
+    /**
+     * Counts a player as a visitor, if they have not been counted already.
+     *
+     * @param uuid The {@link UUID} of the player
+     */
+    public void addUniqueUser(final UUID uuid) {
+        if (this.rebuilding.get()) {
+            this.joinedDuringRebuild.add(uuid);
         }
 
-        return this.userCount;
+        if (this.visitors.add(uuid)) {
+            Task.builder().async().execute(t -> {
+                synchronized (this.fileLock) {
+                    final Path path = this.file.get();
+                    try (DataOutputStream outputStream = new DataOutputStream(Files.newOutputStream(path,
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND))) {
+                        write(outputStream, uuid);
+                    } catch (IOException e) {
+                        this.serviceCollection.logger().error("Could not add to the unique visitors file.", e);
+                    }
+                }
+            }).submit(this.serviceCollection.pluginContainer());
+        }
     }
 
     public void resetUniqueUserCount() {
-        resetUniqueUserCount(null);
+        resetUniqueUserCount(null, null);
     }
 
-    public void resetUniqueUserCount(@Nullable final Consumer<Long> resultConsumer) {
-        if (!this.userCountIsDirty) {
-            this.userCountIsDirty = true;
+    /**
+     * Rebuilds the visitors from the users the server knows about, off the main thread. Only one
+     * rebuild runs at a time.
+     *
+     * @param progressConsumer Called with the number of users checked and the total as the rebuild
+     *                         goes on, if not null
+     * @param resultConsumer Called with the new count, if not null
+     * @return Whether the rebuild was started
+     */
+    public boolean resetUniqueUserCount(
+            @Nullable final BiConsumer<Integer, Integer> progressConsumer,
+            @Nullable final Consumer<Long> resultConsumer) {
+        if (this.rebuilding.compareAndSet(false, true)) {
             ERROR_REPORTED = false;
 
             if (Sponge.getServer().isMainThread()) {
-                Task.builder().async().execute(t -> this.doTask(resultConsumer)).submit(this.serviceCollection.pluginContainer());
+                Task.builder().async().execute(t -> this.doTask(progressConsumer, resultConsumer))
+                        .submit(this.serviceCollection.pluginContainer());
             } else {
-                this.doTask(resultConsumer);
+                this.doTask(progressConsumer, resultConsumer);
             }
+
+            return true;
         }
+
+        return false;
     }
 
-    private void doTask(@Nullable final Consumer<Long> resultConsumer) {
-        UserStorageService uss = Sponge.getServiceManager().provideUnchecked(UserStorageService.class);
-        IStorageService.Keyed<UUID, IUserQueryObject, IUserDataObject> service =
-                this.serviceCollection.storageManager().getUserService();
-
-        // This could be slow...
-        if (this.isMoreAccurate) {
-            this.userCount = uss.getAll().stream().filter(GameProfile::isFilled)
-                    .map(uss::get).filter(Optional::isPresent)
-                    .filter(x -> {
-                        boolean ret = x.get().getPlayer().isPresent() || service.exists(x.get().getUniqueId()).join(); // already async
-                        if (!ret) {
-                            try {
-                                // Temporary until Data is hooked up properly, I hope.
-                                return x.get().get(JoinData.class).map(y -> y.firstPlayed().getDirect().isPresent()).orElse(false);
-                            } catch (IllegalStateException e) {
-                                if (!ERROR_REPORTED) {
-                                    ERROR_REPORTED = true;
-                                    this.serviceCollection.logger().warn("The Sponge player data provider has not yet been initialised, not "
-                                            + "using join data in this count.");
-                                }
-                            } catch (NoSuchElementException e) {
-                                if (!ERROR_REPORTED) {
-                                    ERROR_REPORTED = true;
-                                    this.serviceCollection.logger().warn("The join data can not be constructed on some users.");
-                                }
-                            }
-                        }
-
-                        return ret;
-                    }).count();
-        } else {
-            this.userCount = uss.getAll().stream().filter(GameProfile::isFilled).filter(x -> service.exists(x.getUniqueId()).join()).count();
+    private void doTask(@Nullable final BiConsumer<Integer, Integer> progressConsumer, @Nullable final Consumer<Long> resultConsumer) {
+        try {
+            final Set<UUID> result = new HashSet<>();
+            UserStorageService uss = Sponge.getServiceManager().provideUnchecked(UserStorageService.class);
+            IStorageService.Keyed<UUID, IUserQueryObject, IUserDataObject> service =
+                    this.serviceCollection.storageManager().getUserService();
+
+            final List<GameProfile> profiles = new ArrayList<>(uss.getAll());
+            final int total = profiles.size();
+            final int step = Math.max(1, total / PROGRESS_STEPS);
+
+            // This could be slow...
+            for (int i = 0; i < total; i++) {
+                final GameProfile profile = profiles.get(i);
+                if (profile.isFilled() && isVisitor(uss, service, profile)) {
+                    result.add(profile.getUniqueId());
+                }
+
+                if (progressConsumer != null && (i + 1) % step == 0 && i + 1 < total) {
+                    progressConsumer.accept(i + 1, total);
+                }
+            }
+
+            synchronized (this.fileLock) {
+                result.addAll(this.joinedDuringRebuild);
+                this.visitors.addAll(result);
+                this.visitors.retainAll(result);
+                try {
+                    writeAll(this.file.get(), result);
+                } catch (IOException e) {
+                    this.serviceCollection.logger().error("Could not write the unique visitors file.", e);
+                }
+            }
+        } finally {
+            this.joinedDuringRebuild.clear();
+            this.rebuilding.set(false);
         }
 
-        this.userCountIsDirty = false;
         if (resultConsumer != null) {
-            resultConsumer.accept(this.userCount);
+            resultConsumer.accept(getUniqueUserCount());
+        }
+    }
+
+    private boolean isVisitor(
+            UserStorageService uss,
+            IStorageService.Keyed<UUID, IUserQueryObject, IUserDataObject> service,
+            GameProfile profile) {
+        if (!this.isMoreAccurate) {
+            return service.exists(profile.getUniqueId()).join(); // already async
+        }
+
+        Optional<User> user = uss.get(profile);
+        if (!user.isPresent()) {
+            return false;
+        }
+
+        if (user.get().getPlayer().isPresent() || service.exists(user.get().getUniqueId()).join()) { // already async
+            return true;
+        }
+
+        try {
+            // Temporary until Data is hooked up properly, I hope.
+            return user.get().get(JoinData.class).map(y -> y.firstPlayed().getDirect().isPresent()).orElse(false);
+        } catch (IllegalStateException e) {
+            if (!ERROR_REPORTED) {
+                ERROR_REPORTED = true;
+                this.serviceCollection.logger().warn("The Sponge player data provider has not yet been initialised, not "
+                        + "using join data in this count.");
+            }
+        } catch (NoSuchElementException e) {
+            if (!ERROR_REPORTED) {
+                ERROR_REPORTED = true;
+                this.serviceCollection.logger().warn("The join data can not be constructed on some users.");
+            }
         }
+
+        return false;
+    }
+
+    private static Set<UUID> read(Path path) throws IOException {
+        final Set<UUID> result = new HashSet<>();
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                try {
+                    result.add(new UUID(inputStream.readLong(), inputStream.readLong()));
+                } catch (EOFException e) {
+                    // The end of the file, or a partial entry from a write that was cut off, which is ignored.
+                    return result;
+                }
+            }
+        }
+    }
+
+    private static void writeAll(Path path, Collection<UUID> uuids) throws IOException {
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            for (UUID uuid : uuids) {
+                write(outputStream, uuid);
+            }
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void write(DataOutputStream outputStream, UUID uuid) throws IOException {
+        outputStream.writeLong(uuid.getMostSignificantBits());
+        outputStream.writeLong(uuid.getLeastSignificantBits());
     }
 
     @Override public void onReload(INucleusServiceCollection serviceCollection) {
         this.isMoreAccurate = serviceCollection.moduleDataProvider().getModuleConfig(CoreConfig.class)
                 .isMoreAccurate();
     }
+
+    @Override
+    public void onDataFileLocationChange(INucleusServiceCollection serviceCollection) {
+        load();
+    }
 }
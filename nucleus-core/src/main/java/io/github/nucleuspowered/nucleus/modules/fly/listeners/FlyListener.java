@@ -35,6 +35,7 @@ public class FlyListener implements IReloadableService.Reloadable, ListenerBase
     public FlyListener(INucleusServiceCollection serviceCollection) {
         this.serviceCollection = serviceCollection;
         this.flyConfig = serviceCollection.moduleDataProvider().getDefaultModuleConfig(FlyConfig.class);
+        serviceCollection.storageManager().getUserService().registerPrefetchKey(FlyKeys.FLY_TOGGLE);
     }
 
     // Do it first, so other plugins can have a say.
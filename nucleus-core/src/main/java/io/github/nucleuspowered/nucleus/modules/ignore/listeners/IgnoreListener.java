@@ -4,7 +4,6 @@
  */
 package io.github.nucleuspowered.nucleus.modules.ignore.listeners;
 
-import com.google.common.collect.Lists;
 import io.github.nucleuspowered.nucleus.Util;
 import io.github.nucleuspowered.nucleus.api.module.mail.event.NucleusMailEvent;
 import io.github.nucleuspowered.nucleus.api.module.message.event.NucleusMessageEvent;
@@ -14,18 +13,27 @@ import io.github.nucleuspowered.nucleus.scaffold.listener.ListenerBase;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.interfaces.IChatMessageFormatterService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IPermissionService;
+import org.spongepowered.api.Sponge;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.entity.living.player.User;
 import org.spongepowered.api.event.Listener;
 import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.filter.Getter;
+import org.spongepowered.api.event.filter.IsCancelled;
 import org.spongepowered.api.event.filter.cause.Root;
+import org.spongepowered.api.event.game.state.GameStoppingServerEvent;
 import org.spongepowered.api.event.message.MessageChannelEvent;
+import org.spongepowered.api.event.network.ClientConnectionEvent;
 import org.spongepowered.api.text.channel.MessageReceiver;
 import org.spongepowered.api.text.channel.MutableMessageChannel;
+import org.spongepowered.api.util.Tristate;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 import javax.inject.Inject;
 
@@ -42,6 +50,42 @@ public class IgnoreListener implements ListenerBase {
         this.chatMessageFormatterService = serviceCollection.chatMessageFormatter();
     }
 
+    @Listener
+    public void onAuth(ClientConnectionEvent.Auth event) {
+        // We're off the main thread here, so this is the place to go to storage.
+        this.service.load(event.getProfile().getUniqueId());
+    }
+
+    @Listener(order = Order.POST)
+    @IsCancelled(Tristate.TRUE)
+    public void onAuthCancelled(ClientConnectionEvent.Auth event) {
+        // The player won't get as far as joining, so won't disconnect either.
+        unload(event.getProfile().getUniqueId());
+    }
+
+    @Listener(order = Order.POST)
+    @IsCancelled(Tristate.TRUE)
+    public void onLoginCancelled(ClientConnectionEvent.Login event, @Getter("getTargetUser") User user) {
+        unload(user.getUniqueId());
+    }
+
+    @Listener
+    public void onQuit(ClientConnectionEvent.Disconnect event, @Getter("getTargetEntity") Player player) {
+        this.service.unload(player.getUniqueId());
+    }
+
+    private void unload(UUID uuid) {
+        // The same player may already be online, in which case they're still needed.
+        if (!Sponge.getServer().getPlayer(uuid).isPresent()) {
+            this.service.unload(uuid);
+        }
+    }
+
+    @Listener
+    public void onServerStopping(GameStoppingServerEvent event) {
+        this.service.saveAll();
+    }
+
     @Listener(order = Order.LAST)
     public void onChat(MessageChannelEvent.Chat event) {
         Util.onPlayerSimulatedOrPlayer(event, this::onChat);
@@ -92,28 +136,18 @@ public class IgnoreListener implements ListenerBase {
             return Optional.empty();
         }
 
-        List<MessageReceiver> list = Lists.newArrayList(collection);
-        list.removeIf(x -> {
-            try {
-                if (!(x instanceof Player)) {
-                    // Remove if not a player.
-                    return true;
-                }
-
-                if (x.equals(player)) {
-                    // Remove if the same player.
-                    return true;
-                }
-
-                // Don't remove if they are in the list.
-                return !this.service.isIgnored(((Player) x).getUniqueId(), player.getUniqueId());
-            } catch (Exception e) {
-                e.printStackTrace();
+        // Everyone online is loaded, so we only need to look at who ignores the sender once.
+        Set<UUID> ignoredBy = this.service.getIgnoredBy(player.getUniqueId());
+        if (ignoredBy.isEmpty()) {
+            return Optional.empty();
+        }
 
-                // Remove them.
-                return true;
+        List<MessageReceiver> list = new ArrayList<>();
+        for (MessageReceiver x : collection) {
+            if (x instanceof Player && !x.equals(player) && ignoredBy.contains(((Player) x).getUniqueId())) {
+                list.add(x);
             }
-        });
+        }
 
         // We do this so we don't have to recreate a channel if nothing changes.
         if (list.isEmpty()) {
@@ -5,75 +5,209 @@
 package io.github.nucleuspowered.nucleus.modules.ignore.services;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import io.github.nucleuspowered.nucleus.modules.ignore.IgnoreKeys;
 import io.github.nucleuspowered.nucleus.scaffold.service.ServiceBase;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
+import org.spongepowered.api.Sponge;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
 
+/**
+ * Holds who ignores whom, in both directions, for players that have been loaded.
+ *
+ * <p>Players are loaded as they connect, so that lookups during chat do not go to storage. Changes
+ * are written back to storage in batches, shortly after they are made. Players who have not been
+ * loaded, such as the offline recipient of a mail, are read from storage without being kept.</p>
+ */
 public class IgnoreService implements ServiceBase {
 
+    private static final long SAVE_DELAY_SECONDS = 5;
+
     private final INucleusServiceCollection serviceCollection;
 
-    private final Map<UUID, List<UUID>> ignoredBy = new HashMap<>();
+    // ignorer -> the players they ignore
+    private final Map<UUID, Set<UUID>> ignoring = new ConcurrentHashMap<>();
+
+    // ignoree -> the loaded players that ignore them
+    private final Map<UUID, Set<UUID>> ignoredBy = new ConcurrentHashMap<>();
+
+    private final Set<UUID> toSave = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean(false);
 
     @Inject
     public IgnoreService(INucleusServiceCollection serviceCollection) {
         this.serviceCollection = serviceCollection;
     }
 
-    private void addPlayer(UUID player, List<UUID> ignored) {
-        removePlayer(player);
-        this.ignoredBy.put(player, new ArrayList<>(ignored));
+    /**
+     * Loads the ignore list of a player from storage, if it has not already been loaded.
+     *
+     * <p>This reads from storage, and so should be called off the main thread.</p>
+     *
+     * @param player The player
+     */
+    public void load(UUID player) {
+        getLoaded(player);
     }
 
-    private void removePlayer(UUID player) {
-        this.ignoredBy.remove(player);
+    /**
+     * Removes a player's ignore list from memory, saving it first if it has changed.
+     *
+     * @param player The player
+     */
+    public void unload(UUID player) {
+        if (this.toSave.remove(player)) {
+            save(player);
+        }
+
+        Set<UUID> ignored = this.ignoring.remove(player);
+        if (ignored != null) {
+            for (UUID ignoree : ignored) {
+                removeReverse(player, ignoree);
+            }
+        }
     }
 
     public void ignore(UUID ignorer, UUID ignoree) {
-        List<UUID> uuid = get(ignorer);
-        if (!uuid.contains(ignoree)) {
-            uuid.add(ignoree);
-            this.serviceCollection.storageManager().getUserService()
-                    .getOrNew(ignorer)
-                    .thenAccept(x -> x.set(IgnoreKeys.IGNORED, new ArrayList<>(uuid)));
+        Set<UUID> ignored = this.ignoring.get(ignorer);
+        if (ignored == null) {
+            ignored = new HashSet<>(getStored(ignorer));
+            if (ignored.add(ignoree)) {
+                save(ignorer, ignored);
+            }
+        } else if (ignored.add(ignoree)) {
+            addReverse(ignorer, ignoree);
+            markForSave(ignorer);
         }
     }
 
     public void unignore(UUID ignorer, UUID ignoree) {
-        List<UUID> uuid = get(ignorer);
-        if (uuid.contains(ignoree)) {
-            uuid.remove(ignoree);
-            this.serviceCollection.storageManager().getUserService()
-                    .getOrNew(ignorer)
-                    .thenAccept(x -> x.set(IgnoreKeys.IGNORED, new ArrayList<>(uuid)));
+        Set<UUID> ignored = this.ignoring.get(ignorer);
+        if (ignored == null) {
+            ignored = new HashSet<>(getStored(ignorer));
+            if (ignored.remove(ignoree)) {
+                save(ignorer, ignored);
+            }
+        } else if (ignored.remove(ignoree)) {
+            removeReverse(ignorer, ignoree);
+            markForSave(ignorer);
         }
     }
 
     public boolean isIgnored(UUID ignorer, UUID ignoree) {
-        return get(ignorer).contains(ignoree);
+        Set<UUID> ignored = this.ignoring.get(ignorer);
+        return ignored == null ? getStored(ignorer).contains(ignoree) : ignored.contains(ignoree);
     }
 
     public List<UUID> getAllIgnored(UUID ignorer) {
-        return ImmutableList.copyOf(get(ignorer));
+        Set<UUID> ignored = this.ignoring.get(ignorer);
+        return ignored == null ? getStored(ignorer) : ImmutableList.copyOf(ignored);
+    }
+
+    /**
+     * Gets the loaded players who ignore the given player. As all online players are loaded, this
+     * can be used to filter the recipients of a message in one pass.
+     *
+     * @param ignoree The player who might be ignored
+     * @return The players who ignore them
+     */
+    public Set<UUID> getIgnoredBy(UUID ignoree) {
+        Set<UUID> ignorers = this.ignoredBy.get(ignoree);
+        return ignorers == null ? ImmutableSet.of() : ignorers;
+    }
+
+    /**
+     * Writes any changes that are waiting to be saved.
+     */
+    public void saveAll() {
+        for (UUID uuid : new ArrayList<>(this.toSave)) {
+            if (this.toSave.remove(uuid)) {
+                save(uuid);
+            }
+        }
+    }
+
+    private Set<UUID> getLoaded(UUID player) {
+        Set<UUID> ignored = this.ignoring.get(player);
+        if (ignored == null) {
+            Set<UUID> loaded = ConcurrentHashMap.newKeySet();
+            loaded.addAll(getStored(player));
+            ignored = this.ignoring.putIfAbsent(player, loaded);
+            if (ignored == null) {
+                ignored = loaded;
+                for (UUID ignoree : loaded) {
+                    addReverse(player, ignoree);
+                }
+            }
+        }
+
+        return ignored;
+    }
+
+    private List<UUID> getStored(UUID player) {
+        return this.serviceCollection.storageManager().getUserService()
+                .getOnThread(player)
+                .flatMap(x -> x.get(IgnoreKeys.IGNORED))
+                .orElseGet(ImmutableList::of);
+    }
+
+    private void addReverse(UUID ignorer, UUID ignoree) {
+        this.ignoredBy.compute(ignoree, (k, v) -> {
+            Set<UUID> set = v == null ? ConcurrentHashMap.newKeySet() : v;
+            set.add(ignorer);
+            return set;
+        });
     }
 
-    private List<UUID> get(UUID player) {
-        if (!this.ignoredBy.containsKey(player)) {
-            addPlayer(player,
-                    this.serviceCollection.storageManager().getUserService()
-                            .getOnThread(player)
-                            .flatMap(x -> x.get(IgnoreKeys.IGNORED))
-                            .orElseGet(ImmutableList::of));
+    private void removeReverse(UUID ignorer, UUID ignoree) {
+        this.ignoredBy.computeIfPresent(ignoree, (k, v) -> {
+            v.remove(ignorer);
+            return v.isEmpty() ? null : v;
+        });
+    }
+
+    private void markForSave(UUID ignorer) {
+        this.toSave.add(ignorer);
+        if (this.saveScheduled.compareAndSet(false, true)) {
+            Sponge.getScheduler().createTaskBuilder()
+                    .async()
+                    .delay(SAVE_DELAY_SECONDS, TimeUnit.SECONDS)
+                    .name("Nucleus ignore list save")
+                    .execute(() -> {
+                        this.saveScheduled.set(false);
+                        saveAll();
+                    })
+                    .submit(this.serviceCollection.pluginContainer());
+        }
+    }
+
+    private void save(UUID ignorer) {
+        Set<UUID> ignored = this.ignoring.get(ignorer);
+        if (ignored != null) {
+            save(ignorer, ignored);
         }
+    }
 
-        return this.ignoredBy.get(player);
+    private void save(UUID ignorer, Set<UUID> ignored) {
+        final List<UUID> toStore = new ArrayList<>(ignored);
+        IStorageManager storageManager = this.serviceCollection.storageManager();
+        storageManager.getUserService()
+                .getOrNew(ignorer)
+                .thenAccept(x -> {
+                    x.set(IgnoreKeys.IGNORED, toStore);
+                    storageManager.getUserService().save(ignorer, x);
+                });
     }
 }
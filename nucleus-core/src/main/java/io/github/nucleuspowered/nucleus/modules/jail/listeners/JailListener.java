@@ -10,6 +10,7 @@ import io.github.nucleuspowered.nucleus.api.teleport.event.NucleusTeleportEvent;
 import io.github.nucleuspowered.nucleus.api.util.data.NamedLocation;
 import io.github.nucleuspowered.nucleus.modules.core.events.NucleusOnLoginEvent;
 import io.github.nucleuspowered.nucleus.modules.fly.FlyKeys;
+import io.github.nucleuspowered.nucleus.modules.jail.JailKeys;
 import io.github.nucleuspowered.nucleus.modules.jail.JailPermissions;
 import io.github.nucleuspowered.nucleus.modules.jail.config.JailConfig;
 import io.github.nucleuspowered.nucleus.modules.jail.data.JailData;
@@ -63,6 +64,8 @@ public class JailListener implements IReloadableService.Reloadable, ListenerBase
         this.playerDisplayNameService = serviceCollection.playerDisplayNameService();
         this.handler = serviceCollection.getServiceUnchecked(JailHandler.class);
         this.pluginContainer = serviceCollection.pluginContainer();
+        serviceCollection.storageManager().getUserService().registerPrefetchKey(JailKeys.JAIL_DATA);
+        serviceCollection.storageManager().getUserService().registerPrefetchKey(JailKeys.JAIL_ON_NEXT_LOGIN);
     }
 
     // fires after spawn login event
@@ -143,19 +146,28 @@ public class JailListener implements IReloadableService.Reloadable, ListenerBase
             Optional<JailData> omd = this.handler.getPlayerJailDataInternal(user);
             if (omd.isPresent()) {
                 JailData md = omd.get();
-                md.nextLoginToTimestamp();
+                if (md.nextLoginToTimestamp()) {
+                    // The data object shares this instance, but it still has to be saved.
+                    this.handler.updateJailData(user, md);
+                }
 
                 if (md.expired()) {
                     // free.
                     this.handler.unjailPlayer(user);
                 } else {
                     // ensure jailing is current
+                    this.handler.scheduleExpiry(user, md);
                     this.handler.onJail(md, event.getTargetEntity());
                 }
             }
         }).submit(this.pluginContainer);
     }
 
+    @Listener
+    public void onPlayerQuit(final ClientConnectionEvent.Disconnect event, @Getter("getTargetEntity") Player player) {
+        this.handler.cancelExpiry(player.getUniqueId());
+    }
+
     @Listener
     public void onRequestSent(NucleusTeleportEvent.Request event, @Root Player cause, @Getter("getTargetEntity") Player player) {
         if (this.handler.isPlayerJailed(cause)) {
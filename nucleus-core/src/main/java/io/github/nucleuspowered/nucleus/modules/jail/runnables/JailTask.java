@@ -16,6 +16,7 @@ import org.spongepowered.api.scheduler.Task;
 
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.UUID;
 
 import javax.inject.Inject;
 
@@ -33,12 +34,18 @@ public class JailTask implements TaskBase {
 
     @Override
     public void accept(Task task) {
-        Sponge.getServer()
-                .getOnlinePlayers()
-                .stream()
-                .filter(x -> this.jailHandler.isPlayerJailedCached(x))
-                .filter(x -> this.jailHandler.getPlayerJailDataInternal(x).map(y -> y.expired()).orElse(false))
-                .forEach(x -> this.jailHandler.unjailPlayer(x, Cause.of(EventContext.empty(), this.pluginContainer)));
+        // Only players whose jails have ended are looked at, the data is checked again in case it has changed.
+        for (UUID uuid : this.jailHandler.pollExpiredJails()) {
+            Sponge.getServer().getPlayer(uuid).ifPresent(player ->
+                    this.jailHandler.getPlayerJailDataInternal(player).ifPresent(data -> {
+                        if (data.expired()) {
+                            this.jailHandler.unjailPlayer(player, Cause.of(EventContext.empty(), this.pluginContainer));
+                        } else {
+                            // The jail was extended, so wait for the new end.
+                            this.jailHandler.scheduleExpiry(player, data);
+                        }
+                    }));
+        }
     }
 
     @Override
@@ -29,7 +29,9 @@ import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modula
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
 import io.github.nucleuspowered.nucleus.services.interfaces.INucleusTeleportService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
+import io.github.nucleuspowered.nucleus.services.interfaces.IUserCacheService;
 import io.github.nucleuspowered.nucleus.util.CauseStackHelper;
+import io.github.nucleuspowered.nucleus.util.ExpiryQueue;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.command.CommandSource;
 import org.spongepowered.api.data.key.Keys;
@@ -52,6 +54,7 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -66,6 +69,7 @@ public class JailHandler implements NucleusJailService, ContextCalculator<Subjec
 
     @Nullable private Map<String, NamedLocation> jailLocations = null;
     private final IStorageManager storageManager;
+    private final IUserCacheService userCacheService;
     private final INucleusTeleportService teleportService;
     private final IMessageProviderService messageProviderService;
 
@@ -74,9 +78,13 @@ public class JailHandler implements NucleusJailService, ContextCalculator<Subjec
     private final static Context jailContext = new Context(NucleusJailService.JAILED_CONTEXT, "true");
     private final PluginContainer pluginContainer;
 
+    // When the jails of online players end.
+    private final ExpiryQueue<UUID> jailExpiries = new ExpiryQueue<>();
+
     @Inject
     public JailHandler(INucleusServiceCollection serviceCollection) {
         this.storageManager = serviceCollection.storageManager();
+        this.userCacheService = serviceCollection.userCacheService();
         this.teleportService = serviceCollection.teleportService();
         this.messageProviderService = serviceCollection.messageProvider();
         this.pluginContainer = serviceCollection.pluginContainer();
@@ -237,6 +245,8 @@ public class JailHandler implements NucleusJailService, ContextCalculator<Subjec
         this.storageManager.saveUser(user.getUniqueId(), udo);
         this.jailDataCache.put(user.getUniqueId(), new Context(NucleusJailService.JAIL_CONTEXT, data.getJailName()));
         this.storageManager.saveUser(user.getUniqueId(), udo);
+        this.userCacheService.updateCacheForPlayer(user.getUniqueId(), udo);
+        scheduleExpiry(user, data);
 
         Sponge.getEventManager().post(new JailEvent.Jailed(
                 user,
@@ -252,6 +262,37 @@ public class JailHandler implements NucleusJailService, ContextCalculator<Subjec
         IUserDataObject udo = this.storageManager.getOrCreateUserOnThread(user.getUniqueId());
         udo.set(JailKeys.JAIL_DATA, data);
         this.storageManager.saveUser(user.getUniqueId(), udo);
+        this.userCacheService.updateCacheForPlayer(user.getUniqueId(), udo);
+        scheduleExpiry(user, data);
+    }
+
+    /**
+     * Schedules the end of the jail for an online player, if it has a fixed end time. Jails that
+     * only count down while the player is online are scheduled when they log in.
+     *
+     * @param user The user
+     * @param data The jail data
+     */
+    public void scheduleExpiry(User user, JailData data) {
+        Optional<Instant> end = data.getEndTimestamp();
+        if (end.isPresent() && user.isOnline()) {
+            this.jailExpiries.schedule(user.getUniqueId(), end.get());
+        } else {
+            this.jailExpiries.cancel(user.getUniqueId());
+        }
+    }
+
+    public void cancelExpiry(UUID uuid) {
+        this.jailExpiries.cancel(uuid);
+    }
+
+    /**
+     * Gets the players whose jails have ended since this was last called.
+     *
+     * @return The {@link UUID}s of the players
+     */
+    public List<UUID> pollExpiredJails() {
+        return this.jailExpiries.pollExpired(Instant.now());
     }
 
     // Test
@@ -269,6 +310,7 @@ public class JailHandler implements NucleusJailService, ContextCalculator<Subjec
 
         Optional<Location<World>> ow = ojd.get().getPreviousLocation();
         this.jailDataCache.put(user.getUniqueId(), null);
+        this.jailExpiries.cancel(user.getUniqueId());
         if (user.isOnline()) {
             Player player = user.getPlayer().get();
             Sponge.getScheduler().createSyncExecutor(this.pluginContainer).execute(() -> {
@@ -278,6 +320,7 @@ public class JailHandler implements NucleusJailService, ContextCalculator<Subjec
                 // Remove after the teleport for the back data.
                 udo.remove(JailKeys.JAIL_DATA);
                 udo.remove(JailKeys.JAIL_ON_NEXT_LOGIN);
+                this.userCacheService.updateCacheForPlayer(user.getUniqueId(), udo);
             });
         } else {
             if (ow.isPresent()) {
@@ -294,6 +337,7 @@ public class JailHandler implements NucleusJailService, ContextCalculator<Subjec
         }
 
         this.storageManager.saveUser(user.getUniqueId(), udo);
+        this.userCacheService.updateCacheForPlayer(user.getUniqueId(), udo);
 
         Sponge.getEventManager().post(new JailEvent.Unjailed(user, cause));
         return true;
@@ -17,30 +17,46 @@ import io.github.nucleuspowered.nucleus.scaffold.service.annotations.APIService;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
+import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.entity.living.player.User;
 import org.spongepowered.api.text.Text;
 
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 @SuppressWarnings("UnstableApiUsage")
 @APIService(NucleusMailService.class)
-public class MailHandler implements NucleusMailService, ServiceBase {
+public class MailHandler implements NucleusMailService, ServiceBase, IReloadableService.DataLocationReloadable {
 
     private final INucleusServiceCollection serviceCollection;
+    private final MailboxStore mailboxStore;
+
+    // Players whose mailboxes are known to be marked, so they don't need to be checked again.
+    private final Set<UUID> migrated = ConcurrentHashMap.newKeySet();
 
     @Inject
     public MailHandler(INucleusServiceCollection serviceCollection) {
         this.serviceCollection = serviceCollection;
+        final Supplier<Path> dataDir = serviceCollection.dataDir();
+        this.mailboxStore = new MailboxStore(serviceCollection.logger(), () -> dataDir.get().resolve("mail"));
     }
 
     @Override
@@ -49,67 +65,77 @@ public class MailHandler implements NucleusMailService, ServiceBase {
     }
 
     public final List<MailMessage> getMailInternal(User player, MailFilter... filters) {
-        List<MailMessage> data = this.serviceCollection.storageManager().getUserService()
-                .getOrNewOnThread(player.getUniqueId())
-                .getNullable(MailKeys.MAIL_DATA);
-        if (data == null || data.isEmpty()) {
-            return ImmutableList.of();
-        }
-
-        if (filters.length == 0) {
-            return ImmutableList.copyOf(data);
-        }
+        return getMailInternal(player, 0, Integer.MAX_VALUE, filters);
+    }
 
+    /**
+     * Gets a page of the mail for a player that matches all the given filters.
+     *
+     * @param player The player
+     * @param skip The number of matching messages to skip
+     * @param limit The largest number of messages to return
+     * @param filters The filters
+     * @return The mail
+     */
+    public final List<MailMessage> getMailInternal(User player, int skip, int limit, MailFilter... filters) {
+        migrateLegacyMail(player.getUniqueId());
         Predicate<MailMessage> lmf = Arrays.stream(filters).map(x -> (Predicate<MailMessage>)x).reduce(Predicate::and).orElse(x -> true);
-        return data.stream().filter(lmf).collect(ImmutableList.toImmutableList());
+        return ImmutableList.copyOf(this.mailboxStore.read(player.getUniqueId(), lmf, skip, limit));
+    }
+
+    public int getMailCount(User player) {
+        migrateLegacyMail(player.getUniqueId());
+        return this.mailboxStore.count(player.getUniqueId());
     }
 
     @Override
     public boolean removeMail(User player, MailMessage mailData) {
-        IUserDataObject dataObject = this.serviceCollection.storageManager().getUserService().getOrNewOnThread(player.getUniqueId());
-        List<MailMessage> data = dataObject.get(MailKeys.MAIL_DATA).orElseGet(ArrayList::new);
-        boolean result = data.removeIf(x ->
+        migrateLegacyMail(player.getUniqueId());
+        return this.mailboxStore.remove(player.getUniqueId(), x ->
                 mailData.getDate().equals(x.getDate()) &&
                 mailData.getMessage().equalsIgnoreCase(x.getMessage()) &&
                 Objects.equals(mailData.getSender().orElse(null), x.getSender().orElse(null)));
-
-        if (result) {
-            dataObject.set(MailKeys.MAIL_DATA, data);
-            this.serviceCollection.storageManager().getUserService().save(player.getUniqueId(), dataObject);
-        }
-
-        return result;
     }
 
     @Override
     public void sendMail(@Nullable User playerFrom, User playerTo, String message) {
-        IUserDataObject dataObject = this.serviceCollection.storageManager().getUserService().getOrNewOnThread(playerTo.getUniqueId());
+        sendMail(playerFrom, Collections.singletonList(playerTo), message);
+    }
 
-        // Message is about to be sent. Send the event out. If canceled, then
-        // that's that.
+    @Override
+    public void sendMail(@Nullable User playerFrom, Collection<? extends User> playersTo, String message) {
+        // Message is about to be sent. Send the event out for each recipient. If canceled, then
+        // that's that for them.
         IMessageProviderService messageProvider = this.serviceCollection.messageProvider();
-        if (Sponge.getEventManager().post(new InternalNucleusMailEvent(playerFrom, playerTo, message))) {
-            if (playerFrom == null) {
-                messageProvider.sendMessageTo(
-                        Sponge.getServer().getConsole(),
-                        "message.cancel");
+        List<User> recipients = new ArrayList<>();
+        for (User playerTo : playersTo) {
+            if (Sponge.getEventManager().post(new InternalNucleusMailEvent(playerFrom, playerTo, message))) {
+                if (playerFrom == null) {
+                    messageProvider.sendMessageTo(
+                            Sponge.getServer().getConsole(),
+                            "message.cancel");
+                } else {
+                    playerFrom.getPlayer()
+                            .ifPresent(x -> messageProvider.sendMessageTo(x, "message.cancel"));
+                }
             } else {
-                playerFrom.getPlayer()
-                        .ifPresent(x -> messageProvider.sendMessageTo(x, "message.cancel"));
+                recipients.add(playerTo);
             }
+        }
+
+        if (recipients.isEmpty()) {
             return;
         }
 
-        List<MailMessage> messages = dataObject.get(MailKeys.MAIL_DATA).orElseGet(ArrayList::new);
         MailData md = new MailData(playerFrom == null ? Util.CONSOLE_FAKE_UUID : playerFrom.getUniqueId(), Instant.now(), message);
-        messages.add(md);
-        dataObject.set(MailKeys.MAIL_DATA, messages);
-        this.serviceCollection.storageManager().getUserService().save(playerTo.getUniqueId(), dataObject);
+        this.mailboxStore.append(recipients.stream().map(User::getUniqueId).collect(Collectors.toList()), md);
 
         Text from = playerFrom == null ? Text.of(Sponge.getServer().getConsole().getName()) :
                 this.serviceCollection.playerDisplayNameService().getDisplayName(playerFrom);
-        playerTo.getPlayer().ifPresent(x ->
-                x.sendMessage(Text.builder().append(messageProvider.getMessageFor(x, "mail.youvegotmail")).append(Text.of(" ", from)).build()));
+        for (User playerTo : recipients) {
+            playerTo.getPlayer().ifPresent(x ->
+                    x.sendMessage(Text.builder().append(messageProvider.getMessageFor(x, "mail.youvegotmail")).append(Text.of(" ", from)).build()));
+        }
     }
 
     @Override
@@ -119,14 +145,51 @@ public class MailHandler implements NucleusMailService, ServiceBase {
 
     @Override
     public boolean clearUserMail(User player) {
-        IStorageManager storageManager = this.serviceCollection.storageManager();
-        IUserDataObject dataObject = storageManager.getUserService().getOrNewOnThread(player.getUniqueId());
-        if (dataObject.getNullable(MailKeys.MAIL_DATA) != null) {
-            dataObject.remove(MailKeys.MAIL_DATA);
-            storageManager.getUserService().save(player.getUniqueId(), dataObject);
-            return true;
+        migrateLegacyMail(player.getUniqueId());
+        return this.mailboxStore.clear(player.getUniqueId());
+    }
+
+    /**
+     * Waits for all mail that has been sent to be written.
+     */
+    public void flush() {
+        this.mailboxStore.flush();
+    }
+
+    @Override
+    public void onDataFileLocationChange(INucleusServiceCollection serviceCollection) {
+        this.migrated.clear();
+    }
+
+    /**
+     * Moves mail that was kept in the player's user data into their mailbox. This only reads the
+     * user data once per player, as the mailbox is marked when it is done.
+     *
+     * @param uuid The {@link UUID} of the player
+     */
+    public void migrateLegacyMail(UUID uuid) {
+        if (this.migrated.contains(uuid)) {
+            return;
+        }
+
+        if (!this.mailboxStore.isMigrated(uuid)) {
+            IStorageManager storageManager = this.serviceCollection.storageManager();
+            Optional<IUserDataObject> dataObject = storageManager.getUserService().getOnThread(uuid);
+            List<MailMessage> legacy = dataObject.map(x -> x.getNullable(MailKeys.MAIL_DATA)).orElse(null);
+
+            // The mailbox is marked in the same write as the mail is added, so if the server stops before
+            // the user data is saved, the mail is not added again next time.
+            if (!this.mailboxStore.migrate(uuid, legacy == null ? Collections.emptyList() : legacy)) {
+                // Leave it where it is, we'll try again next time.
+                return;
+            }
+
+            if (legacy != null) {
+                dataObject.get().remove(MailKeys.MAIL_DATA);
+                storageManager.getUserService().save(uuid, dataObject.get());
+            }
         }
 
-        return false;
+        this.migrated.add(uuid);
     }
 }
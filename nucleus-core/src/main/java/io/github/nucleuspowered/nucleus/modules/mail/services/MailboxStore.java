@@ -0,0 +1,400 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.mail.services;
+
+import com.google.common.util.concurrent.Striped;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import io.github.nucleuspowered.nucleus.Util;
+import io.github.nucleuspowered.nucleus.api.module.mail.data.MailMessage;
+import io.github.nucleuspowered.nucleus.modules.mail.data.MailData;
+import org.slf4j.Logger;
+import org.spongepowered.api.util.Identifiable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+/**
+ * Stores each player's mail in its own file, separately from the rest of their data.
+ *
+ * <p>Each message is one line of JSON, so sending mail only appends a line to the recipient's file.
+ * Reads go through the file a line at a time, so filters and paging do not need the whole mailbox
+ * in memory. Removing a message rewrites that mailbox only.</p>
+ *
+ * <p>Sent mail is written on a background thread. Until it is written, it is held in memory, and
+ * reads include it, so a read always sees mail that was sent before it. Everything else happens on
+ * the calling thread, and only waits for other access to the same mailbox.</p>
+ *
+ * <p>A mailbox that mail from the old user data has been moved into starts with a marker line, so
+ * that the mail is only ever moved once.</p>
+ */
+@SuppressWarnings("UnstableApiUsage")
+class MailboxStore {
+
+    private static final Gson GSON = new Gson();
+    private static final String UUID_KEY = "uuid";
+    private static final String DATE_KEY = "date";
+    private static final String MESSAGE_KEY = "message";
+    private static final String MIGRATED_LINE = "{\"migrated\":true}";
+
+    private final Logger logger;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Nucleus mailbox writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Striped<Lock> locks = Striped.lock(64);
+    private final Map<UUID, Queue<MailMessage>> pending = new ConcurrentHashMap<>();
+    private final Supplier<Path> directory;
+
+    MailboxStore(Logger logger, Supplier<Path> directory) {
+        this.logger = logger;
+        this.directory = directory;
+    }
+
+    /**
+     * Adds a message to the end of each of the given mailboxes.
+     *
+     * @param recipients The {@link UUID}s of the mailbox owners
+     * @param message The message
+     * @return A future that completes when the messages have been written
+     */
+    CompletableFuture<Void> append(Collection<UUID> recipients, MailData message) {
+        for (UUID recipient : recipients) {
+            this.pending.compute(recipient, (key, queue) -> {
+                Queue<MailMessage> result = queue == null ? new ConcurrentLinkedQueue<>() : queue;
+                result.add(message);
+                return result;
+            });
+        }
+
+        return CompletableFuture.runAsync(() -> {
+            for (UUID recipient : recipients) {
+                locked(recipient, () -> {
+                    List<MailMessage> toWrite = getPending(recipient);
+                    if (!toWrite.isEmpty()) {
+                        Path file = getFile(recipient);
+                        Files.createDirectories(file.getParent());
+                        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                            for (MailMessage mailMessage : toWrite) {
+                                writer.write(toJson(mailMessage));
+                                writer.newLine();
+                            }
+                        }
+
+                        removePending(recipient, toWrite.size());
+                    }
+
+                    return true;
+                }, false);
+            }
+        }, this.executor);
+    }
+
+    /**
+     * Gets whether mail from elsewhere has been moved into a mailbox.
+     *
+     * @param owner The owner of the mailbox
+     * @return Whether the mailbox has been marked
+     */
+    boolean isMigrated(UUID owner) {
+        return locked(owner, () -> {
+            Path file = getFile(owner);
+            if (!Files.exists(file)) {
+                return false;
+            }
+
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                return MIGRATED_LINE.equals(reader.readLine());
+            }
+        }, false);
+    }
+
+    /**
+     * Puts messages that were stored elsewhere at the start of a mailbox, and marks it so this only
+     * happens once. If the mailbox has already been marked, the messages are not added again.
+     *
+     * @param owner The owner of the mailbox
+     * @param messages The messages
+     * @return Whether the mailbox is now marked
+     */
+    boolean migrate(UUID owner, List<MailMessage> messages) {
+        return locked(owner, () -> {
+            List<MailMessage> sent = getPending(owner);
+            List<MailMessage> all = new ArrayList<>(messages);
+            if (forEach(owner, sent, all::add)) {
+                return true;
+            }
+
+            writeAll(owner, true, all);
+            removePending(owner, sent.size());
+            return true;
+        }, false);
+    }
+
+    /**
+     * Gets a page of the messages in a mailbox that match the filter.
+     *
+     * @param owner The owner of the mailbox
+     * @param filter The filter
+     * @param skip The number of matching messages to skip
+     * @param limit The largest number of messages to return
+     * @return The messages
+     */
+    List<MailMessage> read(UUID owner, Predicate<MailMessage> filter, int skip, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        return locked(owner, () -> {
+            List<MailMessage> result = new ArrayList<>();
+            int[] matched = { 0 };
+            forEach(owner, getPending(owner), message -> {
+                if (filter.test(message) && matched[0]++ >= skip) {
+                    result.add(message);
+                }
+
+                return result.size() < limit;
+            });
+            return result;
+        }, new ArrayList<>());
+    }
+
+    /**
+     * Counts the messages in a mailbox.
+     *
+     * @param owner The owner of the mailbox
+     * @return The number of messages
+     */
+    int count(UUID owner) {
+        return locked(owner, () -> {
+            int count = getPending(owner).size();
+            Path file = getFile(owner);
+            if (!Files.exists(file)) {
+                return count;
+            }
+
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty() && !line.equals(MIGRATED_LINE)) {
+                        count++;
+                    }
+                }
+
+                return count;
+            }
+        }, 0);
+    }
+
+    /**
+     * Removes the first message in a mailbox that the predicate matches.
+     *
+     * @param owner The owner of the mailbox
+     * @param toRemove The predicate
+     * @return Whether a message was removed
+     */
+    boolean remove(UUID owner, Predicate<MailMessage> toRemove) {
+        return locked(owner, () -> {
+            List<MailMessage> sent = getPending(owner);
+            List<MailMessage> messages = new ArrayList<>();
+            boolean migrated = forEach(owner, sent, messages::add);
+            for (int i = 0; i < messages.size(); i++) {
+                if (toRemove.test(messages.get(i))) {
+                    messages.remove(i);
+                    writeAll(owner, migrated, messages);
+                    removePending(owner, sent.size());
+                    return true;
+                }
+            }
+
+            return false;
+        }, false);
+    }
+
+    /**
+     * Removes all the messages in a mailbox.
+     *
+     * @param owner The owner of the mailbox
+     * @return Whether there were any messages
+     */
+    boolean clear(UUID owner) {
+        return locked(owner, () -> {
+            List<MailMessage> sent = getPending(owner);
+            List<MailMessage> messages = new ArrayList<>();
+            boolean migrated = forEach(owner, sent, messages::add);
+            writeAll(owner, migrated, new ArrayList<>());
+            removePending(owner, sent.size());
+            return !messages.isEmpty();
+        }, false);
+    }
+
+    /**
+     * Waits for anything that has been sent to be written.
+     */
+    void flush() {
+        CompletableFuture.runAsync(() -> {}, this.executor).join();
+    }
+
+    private <T> T locked(UUID owner, IOSupplier<T> supplier, T onError) {
+        Lock lock = this.locks.get(owner);
+        lock.lock();
+        try {
+            return supplier.get();
+        } catch (IOException e) {
+            this.logger.error("Could not access the mailbox for " + owner.toString(), e);
+            return onError;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Sent mail that has not been written yet, oldest first. The lock for the mailbox must be held.
+    private List<MailMessage> getPending(UUID owner) {
+        Queue<MailMessage> queue = this.pending.get(owner);
+        return queue == null ? new ArrayList<>() : new ArrayList<>(queue);
+    }
+
+    // Drops the given number of messages from the front of the sent mail, once they are in the file.
+    private void removePending(UUID owner, int count) {
+        if (count > 0) {
+            this.pending.computeIfPresent(owner, (key, queue) -> {
+                for (int i = 0; i < count; i++) {
+                    queue.poll();
+                }
+
+                return queue.isEmpty() ? null : queue;
+            });
+        }
+    }
+
+    // Reads the mailbox a line at a time, then the given sent mail that has not been written yet, until
+    // the visitor returns false. Returns whether the mailbox is marked.
+    private boolean forEach(UUID owner, List<MailMessage> sent, Predicate<MailMessage> visitor) throws IOException {
+        boolean migrated = false;
+        Path file = getFile(owner);
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line = reader.readLine();
+                if (MIGRATED_LINE.equals(line)) {
+                    migrated = true;
+                    line = reader.readLine();
+                }
+
+                for (; line != null; line = reader.readLine()) {
+                    MailMessage message = fromJson(file, line);
+                    if (message != null && !visitor.test(message)) {
+                        return migrated;
+                    }
+                }
+            }
+        }
+
+        for (MailMessage message : sent) {
+            if (!visitor.test(message)) {
+                break;
+            }
+        }
+
+        return migrated;
+    }
+
+    private void writeAll(UUID owner, boolean migrated, List<MailMessage> messages) throws IOException {
+        Path file = getFile(owner);
+        if (messages.isEmpty() && !migrated) {
+            Files.deleteIfExists(file);
+            return;
+        }
+
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                if (migrated) {
+                    writer.write(MIGRATED_LINE);
+                    writer.newLine();
+                }
+
+                for (MailMessage message : messages) {
+                    writer.write(toJson(message));
+                    writer.newLine();
+                }
+            }
+
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path getFile(UUID owner) {
+        String name = owner.toString();
+        return this.directory.get().resolve(name.substring(0, 2)).resolve(name + ".jsonl");
+    }
+
+    private static String toJson(MailMessage message) {
+        JsonObject object = new JsonObject();
+        object.addProperty(UUID_KEY, message instanceof MailData ? ((MailData) message).getUuid().toString() :
+                message.getSender().map(Identifiable::getUniqueId).orElse(Util.CONSOLE_FAKE_UUID).toString());
+        object.addProperty(DATE_KEY, message.getDate().toEpochMilli());
+        object.addProperty(MESSAGE_KEY, message.getMessage());
+        return GSON.toJson(object);
+    }
+
+    @Nullable
+    private MailMessage fromJson(Path file, String line) {
+        if (line.isEmpty()) {
+            return null;
+        }
+
+        try {
+            JsonObject object = GSON.fromJson(line, JsonObject.class);
+            return new MailData(
+                    UUID.fromString(object.get(UUID_KEY).getAsString()),
+                    Instant.ofEpochMilli(object.get(DATE_KEY).getAsLong()),
+                    object.get(MESSAGE_KEY).getAsString());
+        } catch (JsonParseException | IllegalArgumentException | NullPointerException e) {
+            // A partial line from a write that was cut off, most likely.
+            this.logger.warn("Skipping unreadable mail in " + file.toString());
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface IOSupplier<T> {
+
+        T get() throws IOException;
+    }
+}
@@ -35,6 +35,8 @@ import org.spongepowered.api.util.Tristate;
 import org.spongepowered.api.util.annotation.NonnullByDefault;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -161,38 +163,77 @@ public class MessageHandler implements NucleusPrivateMessagingService, IReloadab
             throw new IllegalArgumentException("sourceToSpyOn must have at least one CommandSource");
         }
 
+        Set<CommandSource> sources = playersCanSpyOn(Sponge.getServer().getOnlinePlayers(), sourceToSpyOn);
+        if (includeConsole) {
+            sources.add(Sponge.getServer().getConsole());
+        }
+
+        return sources;
+    }
+
+    /**
+     * Gets the players who can spy on the given sources.
+     *
+     * @param players The players to check
+     * @param sourceToSpyOn The sources being spied on
+     * @return The players who can spy
+     */
+    Set<CommandSource> playersCanSpyOn(Collection<? extends Player> players, CommandSource... sourceToSpyOn) {
         // Get the users to scan.
         List<CommandSource> toSpyOn = Arrays.asList(sourceToSpyOn);
         Set<UUID> uuidsToSpyOn = toSpyOn.stream().map(x -> x instanceof User ? ((User)x).getUniqueId() : Util.CONSOLE_FAKE_UUID)
                 .collect(Collectors.toSet());
 
-        // Get those who aren't the subjects and have social spy on.
-        Set<CommandSource> sources = Sponge.getServer().getOnlinePlayers().stream()
-                .filter(x -> !uuidsToSpyOn.contains(x.getUniqueId()))
-                .filter(this::isSocialSpy)
-                .collect(Collectors.toSet());
+        // Work out the level to beat once, then check each online player in a single pass.
+        final int highestLevel = this.useLevels ? toSpyOn.stream().mapToInt(this::getSocialSpyLevelForSource).max().orElse(0) : 0;
+        Set<CommandSource> sources = new HashSet<>();
+        for (Player player : players) {
+            if (uuidsToSpyOn.contains(player.getUniqueId())) {
+                continue;
+            }
 
-        if (!this.useLevels) {
-            if (includeConsole) {
-                sources.add(Sponge.getServer().getConsole());
+            SocialSpyState state = getSocialSpyState(player);
+            if (!state.canUse) {
+                continue;
             }
 
-            return sources;
-        }
+            if (!(this.messageConfig.isSocialSpyAllowForced() && state.forced) &&
+                    !this.serviceCollection.userPreferenceService().getUnwrapped(player.getUniqueId(), NucleusKeysProvider.SOCIAL_SPY)) {
+                continue;
+            }
 
-        // Get the highest level from the sources to spy on.
-        int highestLevel = toSpyOn.stream().mapToInt(this::getSocialSpyLevelForSource).max().orElse(0);
-        sources = sources.stream()
-            .filter(x -> this.sameLevel ? getSocialSpyLevelForSource(x) >= highestLevel : getSocialSpyLevelForSource(x) > highestLevel)
-            .collect(Collectors.toSet());
+            if (this.useLevels) {
+                int level = state.level;
+                if (this.sameLevel ? level < highestLevel : level <= highestLevel) {
+                    continue;
+                }
+            }
 
-        if (includeConsole) {
-            sources.add(Sponge.getServer().getConsole());
+            sources.add(player);
         }
 
         return sources;
     }
 
+    /**
+     * Gets the permission based social spy state for an online player, which is cached alongside
+     * their permissions rather than worked out for every message.
+     *
+     * <p>Config is not taken into account here, so that a reload does not need to clear it.</p>
+     *
+     * @param player The player
+     * @return The state
+     */
+    private SocialSpyState getSocialSpyState(Player player) {
+        return this.serviceCollection.permissionService().getDerivedValue(player, "message.socialspy", subject -> {
+            IPermissionService permissionService = this.serviceCollection.permissionService();
+            return new SocialSpyState(
+                    permissionService.hasPermission(subject, MessagePermissions.BASE_SOCIALSPY),
+                    permissionService.hasPermission(subject, MessagePermissions.SOCIALSPY_FORCE),
+                    permissionService.getPositiveIntOptionFromSubject(subject, MessagePermissions.SOCIALSPY_LEVEL_KEY).orElse(0));
+        });
+    }
+
     @Override
     public boolean sendMessage(CommandSource sender, CommandSource receiver, String message) {
         // Message is about to be sent. Send the event out. If canceled, then that's that.
@@ -457,4 +498,20 @@ public class MessageHandler implements NucleusPrivateMessagingService, IReloadab
             return this.uuid;
         }
     }
+
+    /**
+     * The permission based social spy state for a player.
+     */
+    private static final class SocialSpyState {
+
+        private final boolean canUse;
+        private final boolean forced;
+        private final int level;
+
+        private SocialSpyState(boolean canUse, boolean forced, int level) {
+            this.canUse = canUse;
+            this.forced = forced;
+            this.level = level;
+        }
+    }
 }
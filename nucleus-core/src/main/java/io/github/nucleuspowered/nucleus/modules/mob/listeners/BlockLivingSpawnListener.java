@@ -25,17 +25,24 @@ import org.spongepowered.api.world.World;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
 
 public class BlockLivingSpawnListener implements IReloadableService.Reloadable, ListenerBase.Conditional {
 
     private MobConfig config = new MobConfig();
 
+    // Entities are constructed and spawned very often, so the answers for each entity class, and
+    // for each entity type in each world, are worked out once and kept until the next reload.
+    private final Map<Class<?>, Boolean> alwaysAllowed = new ConcurrentHashMap<>();
+    private final Map<UUID, WorldFilter> worldFilters = new ConcurrentHashMap<>();
+
     @Listener
     public void onConstruct(ConstructEntityEvent.Pre event, @Getter("getTransform") Transform<World> worldTransform, @Getter("getTargetType") EntityType type) {
         // No, let's not prevent players from spawning...
-        Class<? extends Entity> entityType = type.getEntityClass();
-        if (!checkIsValid(entityType) && !isSpawnable(type, worldTransform.getExtent())) {
+        if (shouldBlock(type, type.getEntityClass(), worldTransform.getExtent())) {
             event.setCancelled(true);
         }
     }
@@ -43,30 +50,28 @@ public class BlockLivingSpawnListener implements IReloadableService.Reloadable,
     // Most will be caught by the attempt above, but just in case, this catches them.
     @Listener
     public void onSpawn(SpawnEntityEvent event) {
-        event.filterEntities(x -> {
-            Class<? extends Entity> entityType = x.getClass();
-            return checkIsValid(entityType) || isSpawnable(x.getType(), x.getWorld());
-        });
+        event.filterEntities(x -> !shouldBlock(x.getType(), x.getClass(), x.getWorld()));
+    }
+
+    // Package private for benchmarks.
+    boolean shouldBlock(EntityType type, Class<? extends Entity> entityClass, World world) {
+        return isBlocked(type, world) && !checkIsValid(entityClass);
     }
 
     // Checks to see if the entity is of a type that should spawn regardless
     private boolean checkIsValid(Class<? extends Entity> entityType) {
-        return !Living.class.isAssignableFrom(entityType) || Player.class.isAssignableFrom(entityType) ||
-                ArmorStand.class.isAssignableFrom(entityType);
+        return this.alwaysAllowed.computeIfAbsent(entityType, x -> !Living.class.isAssignableFrom(x) || Player.class.isAssignableFrom(x) ||
+                ArmorStand.class.isAssignableFrom(x));
     }
 
-    private boolean isSpawnable(EntityType type, World world) {
-        Optional<BlockSpawnsConfig> bsco = this.config.getBlockSpawnsConfigForWorld(world);
-        if (!bsco.isPresent()) {
-            return true;
-        }
-
-        String id = type.getId().toLowerCase();
-        return !(bsco.get().isBlockVanillaMobs() && id.startsWith("minecraft:") || bsco.get().getIdsToBlock().contains(id));
+    private boolean isBlocked(EntityType type, World world) {
+        return this.worldFilters.computeIfAbsent(world.getUniqueId(), x -> new WorldFilter(this.config.getBlockSpawnsConfigForWorld(world).orElse(null)))
+                .isBlocked(type);
     }
 
     @Override public void onReload(INucleusServiceCollection serviceCollection) {
         this.config = serviceCollection.moduleDataProvider().getModuleConfig(MobConfig.class);
+        this.worldFilters.clear();
     }
 
     @Override public boolean shouldEnable(INucleusServiceCollection serviceCollection) {
@@ -87,4 +92,25 @@ public class BlockLivingSpawnListener implements IReloadableService.Reloadable,
 
             return false;
     }
+
+    private static final class WorldFilter {
+
+        @Nullable private final BlockSpawnsConfig config;
+        private final Map<EntityType, Boolean> blocked = new ConcurrentHashMap<>();
+
+        private WorldFilter(@Nullable BlockSpawnsConfig config) {
+            this.config = config;
+        }
+
+        private boolean isBlocked(EntityType type) {
+            if (this.config == null) {
+                return false;
+            }
+
+            return this.blocked.computeIfAbsent(type, x -> {
+                String id = x.getId().toLowerCase();
+                return this.config.isBlockVanillaMobs() && id.startsWith("minecraft:") || this.config.getIdsToBlock().contains(id);
+            });
+        }
+    }
 }
@@ -8,6 +8,7 @@ import io.github.nucleuspowered.nucleus.Util;
 import io.github.nucleuspowered.nucleus.api.module.message.event.NucleusMessageEvent;
 import io.github.nucleuspowered.nucleus.datatypes.EndTimestamp;
 import io.github.nucleuspowered.nucleus.modules.message.events.InternalNucleusHelpOpEvent;
+import io.github.nucleuspowered.nucleus.modules.mute.MuteKeys;
 import io.github.nucleuspowered.nucleus.modules.mute.MutePermissions;
 import io.github.nucleuspowered.nucleus.modules.mute.config.MuteConfig;
 import io.github.nucleuspowered.nucleus.modules.mute.data.MuteData;
@@ -50,6 +51,7 @@ public class MuteListener implements IReloadableService.Reloadable, ListenerBase
         this.messageProvider = serviceCollection.messageProvider();
         this.permissionService = serviceCollection.permissionService();
         this.pluginContainer = serviceCollection.pluginContainer();
+        serviceCollection.storageManager().getUserService().registerPrefetchKey(MuteKeys.MUTE_DATA);
     }
 
     /**
@@ -65,15 +67,24 @@ public class MuteListener implements IReloadableService.Reloadable, ListenerBase
             Optional<MuteData> omd = this.handler.getPlayerMuteData(user);
             if (omd.isPresent()) {
                 MuteData md = omd.get();
-                md.nextLoginToTimestamp();
+                if (md.nextLoginToTimestamp()) {
+                    // The data object shares this instance, but it still has to be saved.
+                    this.handler.updateMuteData(user, md);
+                }
 
                 if (isMuted(user)) {
+                    this.handler.scheduleExpiry(user, md);
                     this.handler.onMute(md, event.getTargetEntity());
                 }
             }
         }).submit(this.pluginContainer);
     }
 
+    @Listener
+    public void onPlayerQuit(final ClientConnectionEvent.Disconnect event, @Getter("getTargetEntity") Player player) {
+        this.handler.cancelExpiry(player.getUniqueId());
+    }
+
     @Listener(order = Order.LATE)
     public void onChat(MessageChannelEvent.Chat event) {
         Util.onPlayerSimulatedOrPlayer(event, this::onChat);
@@ -4,7 +4,6 @@
  */
 package io.github.nucleuspowered.nucleus.modules.mute.runnables;
 
-import io.github.nucleuspowered.nucleus.datatypes.EndTimestamp;
 import io.github.nucleuspowered.nucleus.modules.mute.services.MuteHandler;
 import io.github.nucleuspowered.nucleus.scaffold.task.TaskBase;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
@@ -13,6 +12,7 @@ import org.spongepowered.api.scheduler.Task;
 
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.UUID;
 
 import javax.inject.Inject;
 
@@ -27,12 +27,18 @@ public class MuteTask implements TaskBase {
 
     @Override
     public void accept(Task task) {
-        Sponge.getServer()
-                .getOnlinePlayers()
-                .stream()
-                .filter(this.muteHandler::isMutedCached)
-                .filter(x -> this.muteHandler.getPlayerMuteData(x).map(EndTimestamp::expired).orElse(false))
-                .forEach(this.muteHandler::unmutePlayer);
+        // Only players whose mutes have ended are looked at, the data is checked again in case it has changed.
+        for (UUID uuid : this.muteHandler.pollExpiredMutes()) {
+            Sponge.getServer().getPlayer(uuid).ifPresent(player ->
+                    this.muteHandler.getPlayerMuteData(player).ifPresent(data -> {
+                        if (data.expired()) {
+                            this.muteHandler.unmutePlayer(player);
+                        } else {
+                            // The mute was extended, so wait for the new end.
+                            this.muteHandler.scheduleExpiry(player, data);
+                        }
+                    }));
+        }
     }
 
     @Override
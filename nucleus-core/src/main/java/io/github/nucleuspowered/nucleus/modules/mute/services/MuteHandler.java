@@ -19,7 +19,9 @@ import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
+import io.github.nucleuspowered.nucleus.services.interfaces.IUserCacheService;
 import io.github.nucleuspowered.nucleus.util.CauseStackHelper;
+import io.github.nucleuspowered.nucleus.util.ExpiryQueue;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.entity.living.player.User;
@@ -47,10 +49,14 @@ public class MuteHandler implements ContextCalculator<Subject>, NucleusMuteServi
 
     private final IMessageProviderService messageProviderService;
     private final IStorageManager storageManager;
+    private final IUserCacheService userCacheService;
     private final PluginContainer pluginContainer;
     private final Map<UUID, Boolean> muteContextCache = Maps.newHashMap();
     private final Context mutedContext = new Context(NucleusMuteService.MUTED_CONTEXT, "true");
 
+    // When the mutes of online players end.
+    private final ExpiryQueue<UUID> muteExpiries = new ExpiryQueue<>();
+
     private boolean globalMuteEnabled = false;
     private final List<UUID> voicedUsers = Lists.newArrayList();
 
@@ -58,6 +64,7 @@ public class MuteHandler implements ContextCalculator<Subject>, NucleusMuteServi
     public MuteHandler(INucleusServiceCollection serviceCollection) {
         this.messageProviderService = serviceCollection.messageProvider();
         this.storageManager = serviceCollection.storageManager();
+        this.userCacheService = serviceCollection.userCacheService();
         this.pluginContainer = serviceCollection.pluginContainer();
     }
 
@@ -94,6 +101,14 @@ public class MuteHandler implements ContextCalculator<Subject>, NucleusMuteServi
         return mutePlayer(user, new MuteData(first, reason, duration), cause);
     }
 
+    public void updateMuteData(User user, MuteData data) {
+        IUserDataObject udo = this.storageManager.getOrCreateUserOnThread(user.getUniqueId());
+        udo.set(MuteKeys.MUTE_DATA, data);
+        this.storageManager.saveUser(user.getUniqueId(), udo);
+        this.userCacheService.updateCacheForPlayer(user.getUniqueId(), udo);
+        scheduleExpiry(user, data);
+    }
+
     public boolean mutePlayer(User user, MuteData data) {
         return mutePlayer(user, data, CauseStackHelper.createCause((Util.getObjectFromUUID(data.getMuterInternal()))));
     }
@@ -116,7 +131,9 @@ public class MuteHandler implements ContextCalculator<Subject>, NucleusMuteServi
 
         u.set(MuteKeys.MUTE_DATA, data);
         this.storageManager.saveUser(user.getUniqueId(), u);
+        this.userCacheService.updateCacheForPlayer(user.getUniqueId(), u);
         this.muteContextCache.put(user.getUniqueId(), true);
+        scheduleExpiry(user, data);
         Sponge.getEventManager().post(new MuteEvent.Muted(
                 cause,
                 user,
@@ -140,7 +157,9 @@ public class MuteHandler implements ContextCalculator<Subject>, NucleusMuteServi
                 IUserDataObject udo = o.get();
                 udo.remove(MuteKeys.MUTE_DATA);
                 this.storageManager.saveUser(user.getUniqueId(), udo);
+                this.userCacheService.updateCacheForPlayer(user.getUniqueId(), udo);
                 this.muteContextCache.put(user.getUniqueId(), false);
+                this.muteExpiries.cancel(user.getUniqueId());
                 Sponge.getEventManager().post(new MuteEvent.Unmuted(
                         cause,
                         user,
@@ -155,6 +174,35 @@ public class MuteHandler implements ContextCalculator<Subject>, NucleusMuteServi
         return false;
     }
 
+    /**
+     * Schedules the end of the mute for an online player, if it has a fixed end time. Mutes that
+     * only count down while the player is online are scheduled when they log in.
+     *
+     * @param user The user
+     * @param data The mute data
+     */
+    public void scheduleExpiry(User user, MuteData data) {
+        Optional<Instant> end = data.getEndTimestamp();
+        if (end.isPresent() && user.isOnline()) {
+            this.muteExpiries.schedule(user.getUniqueId(), end.get());
+        } else {
+            this.muteExpiries.cancel(user.getUniqueId());
+        }
+    }
+
+    public void cancelExpiry(UUID uuid) {
+        this.muteExpiries.cancel(uuid);
+    }
+
+    /**
+     * Gets the players whose mutes have ended since this was last called.
+     *
+     * @return The {@link UUID}s of the players
+     */
+    public List<UUID> pollExpiredMutes() {
+        return this.muteExpiries.pollExpired(Instant.now());
+    }
+
     public boolean isGlobalMuteEnabled() {
         return this.globalMuteEnabled;
     }
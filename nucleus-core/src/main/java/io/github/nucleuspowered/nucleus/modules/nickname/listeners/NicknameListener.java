@@ -4,6 +4,7 @@
  */
 package io.github.nucleuspowered.nucleus.modules.nickname.listeners;
 
+import io.github.nucleuspowered.nucleus.modules.nickname.NicknameKeys;
 import io.github.nucleuspowered.nucleus.modules.nickname.services.NicknameService;
 import io.github.nucleuspowered.nucleus.scaffold.listener.ListenerBase;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
@@ -26,6 +27,7 @@ public class NicknameListener implements ListenerBase {
     @Inject
     public NicknameListener(INucleusServiceCollection serviceCollection) {
         this.nicknameService = serviceCollection.getServiceUnchecked(NicknameService.class);
+        serviceCollection.storageManager().getUserService().registerPrefetchKey(NicknameKeys.USER_NICKNAME_JSON);
     }
 
     @Listener(order = Order.FIRST)
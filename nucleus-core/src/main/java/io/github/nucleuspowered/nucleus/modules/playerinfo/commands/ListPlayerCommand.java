@@ -6,11 +6,10 @@ package io.github.nucleuspowered.nucleus.modules.playerinfo.commands;
 
 import com.google.common.collect.Lists;
 import io.github.nucleuspowered.nucleus.Util;
-import io.github.nucleuspowered.nucleus.api.text.NucleusTextTemplate;
-import io.github.nucleuspowered.nucleus.modules.afk.services.AFKHandler;
 import io.github.nucleuspowered.nucleus.modules.playerinfo.PlayerInfoPermissions;
 import io.github.nucleuspowered.nucleus.modules.playerinfo.config.ListConfig;
 import io.github.nucleuspowered.nucleus.modules.playerinfo.config.PlayerInfoConfig;
+import io.github.nucleuspowered.nucleus.modules.playerinfo.services.PlayerRosterService;
 import io.github.nucleuspowered.nucleus.scaffold.command.ICommandContext;
 import io.github.nucleuspowered.nucleus.scaffold.command.ICommandExecutor;
 import io.github.nucleuspowered.nucleus.scaffold.command.ICommandResult;
@@ -19,14 +18,10 @@ import io.github.nucleuspowered.nucleus.scaffold.command.annotation.CommandModif
 import io.github.nucleuspowered.nucleus.scaffold.command.annotation.EssentialsEquivalent;
 import io.github.nucleuspowered.nucleus.scaffold.command.modifier.CommandModifiers;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
-import io.github.nucleuspowered.nucleus.services.interfaces.IPermissionService;
-import io.github.nucleuspowered.nucleus.services.interfaces.IPlayerOnlineService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.command.CommandException;
 import org.spongepowered.api.command.CommandSource;
-import org.spongepowered.api.data.key.Keys;
-import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.service.pagination.PaginationList;
 import org.spongepowered.api.service.permission.PermissionService;
 import org.spongepowered.api.text.Text;
@@ -58,16 +53,15 @@ import java.util.stream.Collectors;
 )
 public class ListPlayerCommand implements ICommandExecutor<CommandSource>, IReloadableService.Reloadable {
 
-    public static final String LIST_OPTION = "nucleus.list.group";
-
     private ListConfig listConfig = new ListConfig();
 
     @Override public ICommandResult execute(ICommandContext<? extends CommandSource> context) throws CommandException {
         boolean showVanished = context.testPermission(PlayerInfoPermissions.LIST_SEEVANISHED);
 
-        Collection<Player> players = Sponge.getServer().getOnlinePlayers();
-        long playerCount = players.size();
-        long hiddenCount = players.stream().filter(x -> x.get(Keys.VANISH).orElse(false)).count();
+        List<PlayerRosterService.Entry> roster =
+                context.getServiceCollection().getServiceUnchecked(PlayerRosterService.class).getRoster();
+        long playerCount = roster.size();
+        long hiddenCount = roster.stream().filter(PlayerRosterService.Entry::isVanished).count();
 
         Text header;
         if (showVanished && hiddenCount > 0) {
@@ -80,35 +74,35 @@ public class ListPlayerCommand implements ICommandExecutor<CommandSource>, IRelo
 
         PaginationList.Builder builder = Util.getPaginationBuilder(context.getCommandSource()).title(header);
 
+        List<PlayerRosterService.Entry> toList = showVanished ? roster : roster.stream().filter(x -> !x.isVanished()).collect(Collectors.toList());
         Optional<PermissionService> optPermissionService = Sponge.getServiceManager().provide(PermissionService.class);
         if (this.listConfig.isGroupByPermissionGroup() && optPermissionService.isPresent()) {
-            builder.contents(listByPermissionGroup(context, showVanished));
+            builder.contents(listByPermissionGroup(context, toList));
         } else {
             // If we have players, send them on.
-            builder.contents(getPlayerList(players, showVanished, context));
+            builder.contents(getPlayerList(toList, context));
         }
 
         builder.sendTo(context.getCommandSource());
         return context.successResult();
     }
 
-    private List<Text> listByPermissionGroup(ICommandContext<? extends CommandSource> context, boolean showVanished) {
+    private List<Text> listByPermissionGroup(ICommandContext<? extends CommandSource> context, List<PlayerRosterService.Entry> roster) {
         // Messages
         final List<Text> messages = Lists.newArrayList();
 
         String defName = this.listConfig.getDefaultGroupName();
-        final Map<String, List<Player>> groupToPlayer = playerList(
-                context,
-                showVanished,
-                defName
-        );
+        final Map<String, List<PlayerRosterService.Entry>> groupToPlayer = new HashMap<>();
+        for (PlayerRosterService.Entry entry : roster) {
+            groupToPlayer.computeIfAbsent(entry.getGroup(), y -> new ArrayList<>()).add(entry);
+        }
 
         this.listConfig.getOrder().forEach(alias -> {
-            List<Player> plList = groupToPlayer.get(alias);
+            List<PlayerRosterService.Entry> plList = groupToPlayer.get(alias);
             if (plList != null && !plList.isEmpty()) {
                 // Get and put the player list into the map, if there is a
                 // player to show. There might not be, they might be vanished!
-                getList(plList, showVanished, messages, alias, context);
+                getList(plList, messages, alias, context);
             }
 
             groupToPlayer.remove(alias);
@@ -118,44 +112,25 @@ public class ListPlayerCommand implements ICommandExecutor<CommandSource>, IRelo
                 .filter(x -> !x.getValue().isEmpty())
                 .filter(x -> !x.getKey().equals(defName))
                 .sorted((x, y) -> x.getKey().compareToIgnoreCase(y.getKey()))
-                .forEach(x -> getList(x.getValue(), showVanished, messages, x.getKey(), context));
+                .forEach(x -> getList(x.getValue(), messages, x.getKey(), context));
 
-        List<Player> pl = groupToPlayer.get(defName);
+        List<PlayerRosterService.Entry> pl = groupToPlayer.get(defName);
         if (pl != null && !pl.isEmpty()) {
-            getList(pl, showVanished, messages, defName, context);
+            getList(pl, messages, defName, context);
         }
 
         return messages;
     }
 
-    private Map<String, List<Player>> playerList(
-            ICommandContext<? extends CommandSource> context,
-            boolean showVanished,
-            String def) {
-        IPlayerOnlineService playerOnlineService = context.getServiceCollection().playerOnlineService();
-        IPermissionService permissionService = context.getServiceCollection().permissionService();
-        Map<String, List<Player>> map = new HashMap<>();
-        for (Player player : Sponge.getServer().getOnlinePlayers()) {
-            if (showVanished || playerOnlineService.isOnline(context.getCommandSourceUnchecked(), player)) {
-                String perm = permissionService.getOptionFromSubject(player, LIST_OPTION).orElse(def);
-                if (perm.trim().isEmpty()) {
-                    perm = def;
-                }
-                map.computeIfAbsent(perm, y -> new ArrayList<>()).add(player);
-            }
-        }
-        return map;
-    }
-
     @Override
     public void onReload(INucleusServiceCollection serviceCollection) {
         this.listConfig = serviceCollection.moduleDataProvider().getModuleConfig(PlayerInfoConfig.class).getList();
     }
 
-    private void getList(Collection<Player> player, boolean showVanished, List<Text> messages, String groupName,
+    private void getList(Collection<PlayerRosterService.Entry> player, List<Text> messages, String groupName,
             ICommandContext<? extends CommandSource> context) {
         Text groupNameText = TextSerializers.FORMATTING_CODE.deserialize(groupName);
-        List<Text> m = getPlayerList(player, showVanished, context);
+        List<Text> m = getPlayerList(player, context);
         if (this.listConfig.isCompact()) {
             boolean isFirst = true;
             for (Text y : m) {
@@ -175,42 +150,29 @@ public class ListPlayerCommand implements ICommandExecutor<CommandSource>, IRelo
     /**
      * Gets {@link Text} that represents the provided player list.
      *
-     * @param playersToList The {@link Player}s to list.
-     * @param showVanished <code>true</code> if those who are vanished are to be
-     *        shown.
+     * @param playersToList The roster entries to list, in the order to list them.
      * @return An {@link Optional} of {@link Text} objects, returning
      *         <code>empty</code> if the player list is of zero length.
      */
-    @SuppressWarnings("ConstantConditions")
-    private List<Text> getPlayerList(Collection<Player> playersToList, boolean showVanished, ICommandContext<? extends CommandSource> context) {
-        NucleusTextTemplate template = this.listConfig.getListTemplate();
-        final AFKHandler handler = context.getServiceCollection().getService(AFKHandler.class).orElse(null);
+    private List<Text> getPlayerList(Collection<PlayerRosterService.Entry> playersToList, ICommandContext<? extends CommandSource> context) {
         final Text afk = context.getMessage("command.list.afk");
         final Text hidden = context.getMessage("command.list.hidden");
 
-        List<Text> playerList = playersToList.stream().filter(x -> showVanished || !x.get(Keys.VANISH).orElse(false))
-                .sorted((x, y) -> x.getName().compareToIgnoreCase(y.getName())).map(x -> {
+        List<Text> playerList = playersToList.stream().map(x -> {
+                    if (!x.isAFK() && !x.isVanished()) {
+                        return x.getName();
+                    }
+
                     Text.Builder tb = Text.builder();
-                    boolean appendSpace = false;
-                    if (handler != null && handler.isAFK(x)) {
+                    if (x.isAFK()) {
                         tb.append(afk);
-                        appendSpace = true;
                     }
 
-                    if (x.get(Keys.VANISH).orElse(false)) {
+                    if (x.isVanished()) {
                         tb.append(hidden);
-                        appendSpace = true;
                     }
 
-                    if (appendSpace) {
-                        tb.append(Text.of(" "));
-                    }
-
-                    if (template != null) { // it shouldn't be, but if it is, fallback...
-                        return tb.append(template.getForCommandSource(x)).build();
-                    } else {
-                        return tb.append(context.getDisplayName(x.getUniqueId())).build();
-                    }
+                    return tb.append(Text.of(" ")).append(x.getName()).build();
                 }).collect(Collectors.toList());
 
         if (this.listConfig.isCompact() && !playerList.isEmpty()) {
@@ -99,13 +99,17 @@ public class NearCommand implements ICommandExecutor<CommandSource>, IReloadable
 
         final CommandSource src = context.getCommandSource();
         final IPlayerOnlineService playerOnlineService = context.getServiceCollection().playerOnlineService();
-        final List<Text> messagesToSend =
+        final List<Player> nearbyPlayers =
                 location.getExtent()
                         .getNearbyEntities(location.getPosition(), radius)
                         .stream()
                         .filter(Player.class::isInstance)
                         .map(Player.class::cast)
-                        .filter(e -> e.getUniqueId() != user.getUniqueId() && playerOnlineService.isOnline(src, e))
+                        .filter(e -> e.getUniqueId() != user.getUniqueId())
+                        .collect(Collectors.toList());
+        final List<Text> messagesToSend =
+                playerOnlineService.getVisiblePlayers(src, nearbyPlayers)
+                        .stream()
                         .map(x -> Tuple.of(x, position.distance(x.getPosition())))
                         .sorted(Comparator.comparingDouble(Tuple::getSecond))
                         .map(tuple -> createPlayerLine(context, tuple))
@@ -0,0 +1,53 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.playerinfo.listeners;
+
+import io.github.nucleuspowered.nucleus.api.module.afk.event.NucleusAFKEvent;
+import io.github.nucleuspowered.nucleus.api.module.nickname.event.NucleusChangeNicknameEvent;
+import io.github.nucleuspowered.nucleus.modules.playerinfo.services.PlayerRosterService;
+import io.github.nucleuspowered.nucleus.scaffold.listener.ListenerBase;
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.event.Listener;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.filter.Getter;
+import org.spongepowered.api.event.network.ClientConnectionEvent;
+
+import javax.inject.Inject;
+
+public class PlayerRosterListener implements ListenerBase {
+
+    private final PlayerRosterService rosterService;
+
+    @Inject
+    public PlayerRosterListener(INucleusServiceCollection serviceCollection) {
+        this.rosterService = serviceCollection.getServiceUnchecked(PlayerRosterService.class);
+    }
+
+    @Listener(order = Order.POST)
+    public void onJoin(ClientConnectionEvent.Join event, @Getter("getTargetEntity") Player player) {
+        this.rosterService.refresh(player);
+    }
+
+    @Listener(order = Order.POST)
+    public void onQuit(ClientConnectionEvent.Disconnect event, @Getter("getTargetEntity") Player player) {
+        this.rosterService.remove(player.getUniqueId());
+    }
+
+    @Listener(order = Order.POST)
+    public void onGoingAFK(NucleusAFKEvent.GoingAFK event, @Getter("getTargetEntity") Player player) {
+        this.rosterService.setAFK(player.getUniqueId(), true);
+    }
+
+    @Listener(order = Order.POST)
+    public void onReturningFromAFK(NucleusAFKEvent.ReturningFromAFK event, @Getter("getTargetEntity") Player player) {
+        this.rosterService.setAFK(player.getUniqueId(), false);
+    }
+
+    @Listener(order = Order.POST)
+    public void onNicknameChange(NucleusChangeNicknameEvent.Post event) {
+        event.getUser().getPlayer().ifPresent(this.rosterService::refresh);
+    }
+}
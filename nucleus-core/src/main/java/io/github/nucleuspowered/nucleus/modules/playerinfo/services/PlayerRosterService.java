@@ -0,0 +1,209 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.playerinfo.services;
+
+import com.google.common.collect.ImmutableList;
+import io.github.nucleuspowered.nucleus.api.text.NucleusTextTemplate;
+import io.github.nucleuspowered.nucleus.modules.afk.services.AFKHandler;
+import io.github.nucleuspowered.nucleus.modules.playerinfo.config.ListConfig;
+import io.github.nucleuspowered.nucleus.modules.playerinfo.config.PlayerInfoConfig;
+import io.github.nucleuspowered.nucleus.scaffold.service.ServiceBase;
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.interfaces.IPermissionService;
+import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.data.key.Keys;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.text.Text;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+/**
+ * Holds what /list needs to know about each online player, so that it does not have to be worked
+ * out for every player each time the command is run.
+ *
+ * <p>Entries are refreshed when a player joins, goes or returns from AFK, vanishes or unvanishes,
+ * or changes their nickname. The group and name are cached alongside the player's permissions, so
+ * entries are also worked out again when those are thrown away, as the group may have changed.</p>
+ */
+public class PlayerRosterService implements ServiceBase, IReloadableService.Reloadable {
+
+    public static final String LIST_OPTION = "nucleus.list.group";
+    private static final String DETAILS_KEY = "playerinfo.roster";
+
+    private final INucleusServiceCollection serviceCollection;
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    @Nullable private volatile List<Entry> snapshot = null;
+    private ListConfig listConfig = new ListConfig();
+
+    @Inject
+    public PlayerRosterService(INucleusServiceCollection serviceCollection) {
+        this.serviceCollection = serviceCollection;
+    }
+
+    /**
+     * Gets the online players, sorted by name.
+     *
+     * @return The entries for the online players
+     */
+    public List<Entry> getRoster() {
+        final IPermissionService permissionService = this.serviceCollection.permissionService();
+        boolean changed = this.entries.size() != Sponge.getServer().getOnlinePlayers().size();
+        for (Player player : Sponge.getServer().getOnlinePlayers()) {
+            Details details = permissionService.getDerivedValue(player, DETAILS_KEY, x -> createDetails(player));
+            Entry entry = this.entries.get(player.getUniqueId());
+            if (entry == null || entry.details != details) {
+                this.entries.put(player.getUniqueId(), createEntry(player, details));
+                changed = true;
+            }
+        }
+
+        List<Entry> result = this.snapshot;
+        if (changed || result == null) {
+            // Players who left without us hearing about it.
+            this.entries.keySet().removeIf(x -> !Sponge.getServer().getPlayer(x).isPresent());
+            List<Entry> list = new ArrayList<>(this.entries.values());
+            list.sort(Comparator.comparing(x -> x.sortKey));
+            result = ImmutableList.copyOf(list);
+            this.snapshot = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Works out the entry for a player again.
+     *
+     * @param player The player
+     */
+    public void refresh(Player player) {
+        final IPermissionService permissionService = this.serviceCollection.permissionService();
+        permissionService.invalidateDerivedValue(player, DETAILS_KEY);
+        this.entries.put(player.getUniqueId(),
+                createEntry(player, permissionService.getDerivedValue(player, DETAILS_KEY, x -> createDetails(player))));
+        this.snapshot = null;
+    }
+
+    public void setAFK(UUID uuid, boolean isAFK) {
+        this.entries.computeIfPresent(uuid, (k, v) -> v.afk == isAFK ? v : new Entry(v, isAFK));
+        this.snapshot = null;
+    }
+
+    public void remove(UUID uuid) {
+        if (this.entries.remove(uuid) != null) {
+            this.snapshot = null;
+        }
+    }
+
+    @Override
+    public void onReload(INucleusServiceCollection serviceCollection) {
+        this.listConfig = serviceCollection.moduleDataProvider().getModuleConfig(PlayerInfoConfig.class).getList();
+        for (Player player : Sponge.getServer().getOnlinePlayers()) {
+            serviceCollection.permissionService().invalidateDerivedValue(player, DETAILS_KEY);
+        }
+
+        this.entries.clear();
+        this.snapshot = null;
+    }
+
+    private Details createDetails(Player player) {
+        final String def = this.listConfig.getDefaultGroupName();
+        String group = this.serviceCollection.permissionService().getOptionFromSubject(player, LIST_OPTION).orElse(def);
+        if (group.trim().isEmpty()) {
+            group = def;
+        }
+
+        final NucleusTextTemplate template = this.listConfig.getListTemplate();
+        final Text name;
+        if (template != null) { // it shouldn't be, but if it is, fallback...
+            name = template.getForCommandSource(player);
+        } else {
+            name = this.serviceCollection.playerDisplayNameService().getDisplayName(player.getUniqueId());
+        }
+
+        return new Details(group, name);
+    }
+
+    private Entry createEntry(Player player, Details details) {
+        return new Entry(
+                player.getUniqueId(),
+                player.getName(),
+                details,
+                player.get(Keys.VANISH).orElse(false),
+                this.serviceCollection.getService(AFKHandler.class).map(x -> x.isAFK(player)).orElse(false));
+    }
+
+    /**
+     * The parts of an entry that may depend on the player's permissions.
+     */
+    private static final class Details {
+
+        private final String group;
+        private final Text name;
+
+        private Details(String group, Text name) {
+            this.group = group;
+            this.name = name;
+        }
+    }
+
+    public static final class Entry {
+
+        private final UUID uuid;
+        private final String sortKey;
+        private final Details details;
+        private final boolean vanished;
+        private final boolean afk;
+
+        private Entry(UUID uuid, String name, Details details, boolean vanished, boolean afk) {
+            this.uuid = uuid;
+            this.sortKey = name.toLowerCase();
+            this.details = details;
+            this.vanished = vanished;
+            this.afk = afk;
+        }
+
+        private Entry(Entry entry, boolean afk) {
+            this.uuid = entry.uuid;
+            this.sortKey = entry.sortKey;
+            this.details = entry.details;
+            this.vanished = entry.vanished;
+            this.afk = afk;
+        }
+
+        public UUID getUniqueId() {
+            return this.uuid;
+        }
+
+        public String getGroup() {
+            return this.details.group;
+        }
+
+        public boolean isVanished() {
+            return this.vanished;
+        }
+
+        public boolean isAFK() {
+            return this.afk;
+        }
+
+        public Text getName() {
+            return this.details.name;
+        }
+
+        public Optional<Player> getPlayer() {
+            return Sponge.getServer().getPlayer(this.uuid);
+        }
+    }
+}
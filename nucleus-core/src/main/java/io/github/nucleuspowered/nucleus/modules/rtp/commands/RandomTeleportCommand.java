@@ -190,62 +190,20 @@ public class RandomTeleportCommand implements ICommandExecutor<CommandSource>, I
             try (Timing dummy = TIMINGS.startTiming()) {
                 this.logger.debug(String.format("RTP of %s, attempt %s of %s", this.target.getName(), this.maxCount - this.count, this.maxCount));
 
+                Optional<Location<World>> pooledLocation = this.source.getServiceCollection()
+                        .getServiceUnchecked(RTPService.class)
+                        .getPooledLocation(this.targetWorld, this.kernel);
+                if (pooledLocation.isPresent() && tryLocation(task, pooledLocation.get())) {
+                    return;
+                }
+
                 int counter = 0;
                 while (++counter <= 10) {
                     try {
                         Optional<Location<World>> optionalLocation =
                                 this.kernel.getLocation(this.target.getLocation(), this.targetWorld, this.options);
-                        if (optionalLocation.isPresent()) {
-                            Location<World> targetLocation = optionalLocation.get();
-                            if (Sponge.getEventManager().post(new RTPSelectedLocationEvent(
-                                    targetLocation,
-                                    this.target,
-                                    this.cause
-                            ))) {
-                                continue;
-                            }
-
-                            this.source.getServiceCollection().logger().debug(String.format("RTP of %s, found location %s, %s, %s",
-                                    this.target.getName(),
-                                    String.valueOf(targetLocation.getBlockX()),
-                                    String.valueOf(targetLocation.getBlockY()),
-                                    String.valueOf(targetLocation.getBlockZ())));
-                            if (this.source.getServiceCollection().teleportService().setLocation(this.target, targetLocation)) {
-                                if (!this.isSelf) {
-                                    this.source.sendMessageTo(this.target, "command.rtp.other");
-                                    this.source.sendMessage("command.rtp.successother",
-                                            this.target.getName(),
-                                            targetLocation.getBlockX(),
-                                            targetLocation.getBlockY(),
-                                            targetLocation.getBlockZ());
-                                }
-
-                                this.source.sendMessageTo(this.target, "command.rtp.success",
-                                        targetLocation.getBlockX(),
-                                        targetLocation.getBlockY(),
-                                        targetLocation.getBlockZ());
-                                if (this.isSelf) {
-                                    this.source.getServiceCollection()
-                                            .cooldownService()
-                                            .setCooldown(
-                                                    this.source.getCommandKey(),
-                                                    this.target,
-                                                    Duration.ofSeconds(this.source.getServiceCollection()
-                                                            .commandMetadataService()
-                                                            .getControl(RandomTeleportCommand.class)
-                                                            .orElseThrow(IllegalStateException::new)
-                                                            .getCooldown(this.target))
-                                            );
-                                    synchronized (RandomTeleportCommand.this.cachedTasks) {
-                                        RandomTeleportCommand.this.cachedTasks.remove(task);
-                                    }
-                                }
-                                return;
-                            } else {
-                                this.source.sendMessage("command.rtp.cancelled");
-                                onCancel();
-                                return;
-                            }
+                        if (optionalLocation.isPresent() && tryLocation(task, optionalLocation.get())) {
+                            return;
                         }
                     } catch (PositionOutOfBoundsException ignore) {
                         // treat as fail.
@@ -256,6 +214,66 @@ public class RandomTeleportCommand implements ICommandExecutor<CommandSource>, I
             }
         }
 
+        /**
+         * Attempts to teleport the target to the given location.
+         *
+         * @param task The task
+         * @param targetLocation The location
+         * @return true if the teleport was attempted, false if the location was rejected and another
+         *         should be tried.
+         */
+        private boolean tryLocation(Task task, Location<World> targetLocation) {
+            if (Sponge.getEventManager().post(new RTPSelectedLocationEvent(
+                    targetLocation,
+                    this.target,
+                    this.cause
+            ))) {
+                return false;
+            }
+
+            this.source.getServiceCollection().logger().debug(String.format("RTP of %s, found location %s, %s, %s",
+                    this.target.getName(),
+                    String.valueOf(targetLocation.getBlockX()),
+                    String.valueOf(targetLocation.getBlockY()),
+                    String.valueOf(targetLocation.getBlockZ())));
+            if (this.source.getServiceCollection().teleportService().setLocation(this.target, targetLocation)) {
+                if (!this.isSelf) {
+                    this.source.sendMessageTo(this.target, "command.rtp.other");
+                    this.source.sendMessage("command.rtp.successother",
+                            this.target.getName(),
+                            targetLocation.getBlockX(),
+                            targetLocation.getBlockY(),
+                            targetLocation.getBlockZ());
+                }
+
+                this.source.sendMessageTo(this.target, "command.rtp.success",
+                        targetLocation.getBlockX(),
+                        targetLocation.getBlockY(),
+                        targetLocation.getBlockZ());
+                if (this.isSelf) {
+                    this.source.getServiceCollection()
+                            .cooldownService()
+                            .setCooldown(
+                                    this.source.getCommandKey(),
+                                    this.target,
+                                    Duration.ofSeconds(this.source.getServiceCollection()
+                                            .commandMetadataService()
+                                            .getControl(RandomTeleportCommand.class)
+                                            .orElseThrow(IllegalStateException::new)
+                                            .getCooldown(this.target))
+                            );
+                    synchronized (RandomTeleportCommand.this.cachedTasks) {
+                        RandomTeleportCommand.this.cachedTasks.remove(task);
+                    }
+                }
+            } else {
+                this.source.sendMessage("command.rtp.cancelled");
+                onCancel();
+            }
+
+            return true;
+        }
+
         private void onUnsuccesfulAttempt(Task task) {
             synchronized (RandomTeleportCommand.this.cachedTasks) {
                 if (this.count <= 0) {
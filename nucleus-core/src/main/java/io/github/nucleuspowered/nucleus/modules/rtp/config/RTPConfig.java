@@ -66,6 +66,9 @@ public class RTPConfig {
             BiomeTypes.FROZEN_OCEAN.getId()
     );
 
+    @Setting(value = "location-pool", comment = "config.rtp.pool.base")
+    private LocationPoolConfig locationPool = new LocationPoolConfig();
+
     private ImmutableSet<BiomeType> lazyLoadProhbitedBiomes;
 
     public int getNoOfAttempts() {
@@ -125,6 +128,34 @@ public class RTPConfig {
         return this.defaultRTPKernel;
     }
 
+    public LocationPoolConfig getLocationPool() {
+        return this.locationPool;
+    }
+
+    @ConfigSerializable
+    public static class LocationPoolConfig {
+        @Setting(value = "size", comment = "config.rtp.pool.size")
+        private int size = 5;
+
+        @Setting(value = "refill-interval-ticks", comment = "config.rtp.pool.interval")
+        private int refillInterval = 5;
+
+        @Setting(value = "max-age-seconds", comment = "config.rtp.pool.maxage")
+        private long maxAge = 600;
+
+        public int getSize() {
+            return Math.max(0, this.size);
+        }
+
+        public int getRefillInterval() {
+            return Math.max(1, this.refillInterval);
+        }
+
+        public long getMaxAge() {
+            return Math.max(1, this.maxAge);
+        }
+    }
+
     @ConfigSerializable
     public static class PerWorldRTPConfig {
         @Setting(value = "radius")
@@ -88,6 +88,36 @@ public class DefaultKernel implements RTPKernel {
         return true;
     }
 
+    /**
+     * Gets whether the locations this kernel returns do not depend on the player that is being
+     * teleported, so can be found before they are needed.
+     *
+     * <p>Kernels that extend this one may use the player, so they have to opt in by overriding
+     * this.</p>
+     *
+     * @return true if so
+     */
+    public boolean isPlayerIndependent() {
+        return getClass() == DefaultKernel.class;
+    }
+
+    /**
+     * Checks that a location this kernel returned earlier is still safe to teleport to.
+     *
+     * @param location The location
+     * @return true if it is still safe
+     */
+    public boolean isStillSafe(Location<World> location) {
+        return Sponge.getTeleportHelper().getSafeLocation(location,
+                0,
+                0,
+                TeleportHelper.DEFAULT_FLOOR_CHECK_DISTANCE,
+                TeleportHelperFilters.CONFIG,
+                filterToUse())
+                .filter(x -> x.getBlockPosition().equals(location.getBlockPosition()))
+                .isPresent() && verifyLocation(location);
+    }
+
     @Override public String getId() {
         return "nucleus:default";
     }
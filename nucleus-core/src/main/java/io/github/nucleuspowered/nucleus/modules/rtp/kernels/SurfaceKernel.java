@@ -25,6 +25,10 @@ public class SurfaceKernel extends DefaultKernel {
         return TeleportHelperFilters.SURFACE_ONLY;
     }
 
+    @Override public boolean isPlayerIndependent() {
+        return getClass() == SurfaceKernel.class;
+    }
+
     @Override public String getId() {
         return "nucleus:surface_only";
     }
@@ -0,0 +1,173 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.rtp.services;
+
+import co.aikar.timings.Timing;
+import co.aikar.timings.Timings;
+import com.flowpowered.math.vector.Vector3d;
+import io.github.nucleuspowered.nucleus.api.module.rtp.kernel.RTPKernel;
+import io.github.nucleuspowered.nucleus.modules.rtp.config.RTPConfig;
+import io.github.nucleuspowered.nucleus.modules.rtp.kernels.DefaultKernel;
+import io.github.nucleuspowered.nucleus.modules.rtp.options.RTPOptions;
+import org.slf4j.Logger;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.scheduler.Task;
+import org.spongepowered.api.util.PositionOutOfBoundsException;
+import org.spongepowered.api.world.Location;
+import org.spongepowered.api.world.World;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Keeps a small number of safe locations ready for each world and kernel that /rtp has been used with.
+ *
+ * <p>Pools are filled by a task that makes one search attempt per pool each time it runs, so the cost
+ * of finding a location is spread out over many ticks rather than being paid when the command is
+ * used. Only kernels that do not depend on the player are pooled. Locations are checked again before
+ * they are handed out, as the world may have changed since they were found.</p>
+ */
+class RTPLocationPool {
+
+    private final Logger logger;
+    private final Map<PoolKey, Queue<PooledLocation>> pools = new ConcurrentHashMap<>();
+    private final Timing timings;
+    private RTPConfig config = new RTPConfig();
+    @Nullable private Task task;
+
+    RTPLocationPool(Logger logger, PluginContainer pluginContainer) {
+        this.logger = logger;
+        this.timings = Timings.of(pluginContainer, "RTP location pool refill");
+    }
+
+    /**
+     * Takes a location from the pool for the given world and kernel, if there is one.
+     *
+     * <p>Must be called on the main thread.</p>
+     *
+     * @param world The world
+     * @param kernel The kernel
+     * @return The location, if there is one.
+     */
+    Optional<Location<World>> take(World world, RTPKernel kernel) {
+        if (this.task == null || !(kernel instanceof DefaultKernel) || !((DefaultKernel) kernel).isPlayerIndependent()) {
+            return Optional.empty();
+        }
+
+        Queue<PooledLocation> pool = this.pools.computeIfAbsent(new PoolKey(world.getUniqueId(), kernel), k -> new ConcurrentLinkedQueue<>());
+        long oldest = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(this.config.getLocationPool().getMaxAge());
+        PooledLocation pooledLocation;
+        while ((pooledLocation = pool.poll()) != null) {
+            if (pooledLocation.found >= oldest) {
+                Location<World> location = new Location<>(world, pooledLocation.position);
+                if (((DefaultKernel) kernel).isStillSafe(location)) {
+                    return Optional.of(location);
+                }
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    void onReload(RTPConfig config, PluginContainer pluginContainer) {
+        this.config = config;
+        this.pools.clear();
+        if (this.task != null) {
+            this.task.cancel();
+            this.task = null;
+        }
+
+        RTPConfig.LocationPoolConfig poolConfig = config.getLocationPool();
+        if (poolConfig.getSize() > 0) {
+            this.task = Sponge.getScheduler().createTaskBuilder()
+                    .intervalTicks(poolConfig.getRefillInterval())
+                    .delayTicks(poolConfig.getRefillInterval())
+                    .name("Nucleus RTP location pool refill")
+                    .execute(this::refill)
+                    .submit(pluginContainer);
+        }
+    }
+
+    private void refill() {
+        if (this.pools.isEmpty()) {
+            return;
+        }
+
+        try (Timing dummy = this.timings.startTiming()) {
+            int size = this.config.getLocationPool().getSize();
+            long oldest = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(this.config.getLocationPool().getMaxAge());
+            for (Map.Entry<PoolKey, Queue<PooledLocation>> entry : this.pools.entrySet()) {
+                Queue<PooledLocation> pool = entry.getValue();
+                pool.removeIf(x -> x.found < oldest);
+                if (pool.size() >= size) {
+                    continue;
+                }
+
+                Optional<World> world = Sponge.getServer().getWorld(entry.getKey().world);
+                if (!world.isPresent()) {
+                    // Start again if the world is loaded and used again.
+                    this.pools.remove(entry.getKey());
+                    continue;
+                }
+
+                try {
+                    entry.getKey().kernel.getLocation(null, world.get(), new RTPOptions(this.config, world.get().getName()))
+                            .ifPresent(x -> pool.offer(new PooledLocation(x)));
+                } catch (PositionOutOfBoundsException ignore) {
+                    // treat as fail.
+                } catch (Exception e) {
+                    this.logger.debug("Could not search for an RTP location in " + world.get().getName(), e);
+                }
+            }
+        }
+    }
+
+    private static final class PoolKey {
+
+        private final UUID world;
+        private final RTPKernel kernel;
+
+        private PoolKey(UUID world, RTPKernel kernel) {
+            this.world = world;
+            this.kernel = kernel;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            PoolKey poolKey = (PoolKey) o;
+            return this.world.equals(poolKey.world) && this.kernel.getId().equals(poolKey.kernel.getId());
+        }
+
+        @Override public int hashCode() {
+            return Objects.hash(this.world, this.kernel.getId());
+        }
+    }
+
+    private static final class PooledLocation {
+
+        private final Vector3d position;
+        private final long found = System.currentTimeMillis();
+
+        private PooledLocation(Location<World> location) {
+            this.position = location.getPosition();
+        }
+    }
+}
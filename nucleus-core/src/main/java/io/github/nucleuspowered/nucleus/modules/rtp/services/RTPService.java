@@ -17,6 +17,8 @@ import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.spongepowered.api.Sponge;
+import org.spongepowered.api.world.Location;
+import org.spongepowered.api.world.World;
 import org.spongepowered.api.world.storage.WorldProperties;
 
 import java.util.Map;
@@ -32,10 +34,12 @@ public class RTPService implements NucleusRTPService, IReloadableService.Reloada
     private RTPConfig config = new RTPConfig();
     @Nullable private RTPKernel lazyLoadedKernel = null;
     private final Map<RTPConfig.PerWorldRTPConfig, RTPKernel> perWorldLazyLoadedKernel = new WeakHashMap<>();
+    private final RTPLocationPool locationPool;
 
     @Inject
     public RTPService(INucleusServiceCollection serviceCollection) {
         this.logger = serviceCollection.logger();
+        this.locationPool = new RTPLocationPool(this.logger, serviceCollection.pluginContainer());
     }
 
     @Override
@@ -92,6 +96,18 @@ public class RTPService implements NucleusRTPService, IReloadableService.Reloada
         }).orElseGet(this::getDefaultKernel);
     }
 
+    /**
+     * Gets a safe location that was found ahead of time for the given world and kernel, if one is
+     * available. Must be called on the main thread.
+     *
+     * @param world The world
+     * @param kernel The kernel
+     * @return The location, if there is one.
+     */
+    public Optional<Location<World>> getPooledLocation(World world, RTPKernel kernel) {
+        return this.locationPool.take(world, kernel);
+    }
+
     @Override
     public void registerKernel(RTPKernel kernel) {
         RTPRegistryModule.getInstance().registerAdditionalCatalog(kernel);
@@ -101,5 +117,6 @@ public class RTPService implements NucleusRTPService, IReloadableService.Reloada
     public void onReload(INucleusServiceCollection serviceCollection) {
         // create the new RTPOptions
         this.config = serviceCollection.moduleDataProvider().getModuleConfig(RTPConfig.class);
+        this.locationPool.onReload(this.config, serviceCollection.pluginContainer());
     }
 }
@@ -4,7 +4,7 @@
  */
 package io.github.nucleuspowered.nucleus.modules.serverlist.listener;
 
-import io.github.nucleuspowered.nucleus.api.text.NucleusTextTemplate;
+import com.google.common.collect.ImmutableList;
 import io.github.nucleuspowered.nucleus.modules.serverlist.config.ServerListConfig;
 import io.github.nucleuspowered.nucleus.modules.serverlist.services.ServerListService;
 import io.github.nucleuspowered.nucleus.scaffold.listener.ListenerBase;
@@ -15,24 +15,30 @@ import org.spongepowered.api.Sponge;
 import org.spongepowered.api.data.key.Keys;
 import org.spongepowered.api.entity.living.player.User;
 import org.spongepowered.api.event.Listener;
+import org.spongepowered.api.event.Order;
 import org.spongepowered.api.event.filter.Getter;
+import org.spongepowered.api.event.network.ClientConnectionEvent;
 import org.spongepowered.api.event.server.ClientPingServerEvent;
 import org.spongepowered.api.profile.GameProfile;
 import org.spongepowered.api.text.Text;
 
-import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
-import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 public class ServerListListener implements IReloadableService.Reloadable, ListenerBase.Conditional {
 
+    // Pings can arrive far more often than anything shown in them changes, so what is sent is
+    // worked out at most this often. Players joining, leaving, vanishing and unvanishing clear the cache early.
+    private static final long REFRESH_MILLIS = 5000;
+
     private final ServerListService service;
     private final Random random = new Random();
     private ServerListConfig config = new ServerListConfig();
+    @Nullable private volatile CachedResponse cachedResponse = null;
 
     @Inject
     public ServerListListener(INucleusServiceCollection serviceCollection) {
@@ -41,48 +47,102 @@ public class ServerListListener implements IReloadableService.Reloadable, Listen
 
     @Listener
     public void onServerListPing(ClientPingServerEvent event, @Getter("getResponse") ClientPingServerEvent.Response response) {
+        final CachedResponse cached = getCachedResponse();
         if (this.config.isModifyServerList()) {
-            List<NucleusTextTemplateImpl> list = null;
             Optional<Text> ott = this.service.getMessage();
 
             if (ott.isPresent()) {
                 response.setDescription(ott.get());
-            } else {
-                if (Sponge.getServer().hasWhitelist() && !this.config.getWhitelist().isEmpty()) {
-                    list = this.config.getWhitelist();
-                } else if (!this.config.getMessages().isEmpty()) {
-                    list = this.config.getMessages();
-                }
-
-                if (list != null) {
-                    NucleusTextTemplate template = list.get(this.random.nextInt(list.size()));
-                    response.setDescription(template.getForCommandSource(Sponge.getServer().getConsole()));
-                }
+            } else if (!cached.descriptions.isEmpty()) {
+                response.setDescription(cached.descriptions.get(this.random.nextInt(cached.descriptions.size())));
             }
         }
 
         if (this.config.isHidePlayerCount()) {
             response.setHidePlayers(true);
-        } else if (this.config.isHideVanishedPlayers()) {
-            Collection<GameProfile> players = Sponge.getServer().getOnlinePlayers().stream()
-                    .filter(x -> !x.get(Keys.VANISH).orElse(false))
-                    .map(User::getProfile).collect(Collectors.toList());
-
+        } else if (cached.visibleProfiles != null) {
             response.getPlayers().ifPresent(y -> {
                 y.getProfiles().clear();
-                y.getProfiles().addAll(players);
-                y.setOnline(players.size());
+                y.getProfiles().addAll(cached.visibleProfiles);
+                y.setOnline(cached.visibleProfiles.size());
             });
         }
     }
 
+    @Listener(order = Order.POST)
+    public void onJoin(ClientConnectionEvent.Join event) {
+        this.cachedResponse = null;
+    }
+
+    @Listener(order = Order.POST)
+    public void onQuit(ClientConnectionEvent.Disconnect event) {
+        this.cachedResponse = null;
+    }
+
+    private CachedResponse getCachedResponse() {
+        CachedResponse cached = this.cachedResponse;
+        final long now = System.currentTimeMillis();
+        final long generation = this.service.getPlayerListGeneration();
+        if (cached == null || now - cached.createdAt > REFRESH_MILLIS || cached.playerListGeneration != generation) {
+            cached = createResponse(now, generation);
+            this.cachedResponse = cached;
+        }
+
+        return cached;
+    }
+
+    private CachedResponse createResponse(long now, long generation) {
+        List<Text> descriptions = ImmutableList.of();
+        if (this.config.isModifyServerList()) {
+            List<NucleusTextTemplateImpl> list = null;
+            if (Sponge.getServer().hasWhitelist() && !this.config.getWhitelist().isEmpty()) {
+                list = this.config.getWhitelist();
+            } else if (!this.config.getMessages().isEmpty()) {
+                list = this.config.getMessages();
+            }
+
+            if (list != null) {
+                descriptions = list.stream()
+                        .map(x -> x.getForCommandSource(Sponge.getServer().getConsole()))
+                        .collect(ImmutableList.toImmutableList());
+            }
+        }
+
+        List<GameProfile> visibleProfiles = null;
+        if (!this.config.isHidePlayerCount() && this.config.isHideVanishedPlayers()) {
+            visibleProfiles = Sponge.getServer().getOnlinePlayers().stream()
+                    .filter(x -> !x.get(Keys.VANISH).orElse(false))
+                    .map(User::getProfile)
+                    .collect(ImmutableList.toImmutableList());
+        }
+
+        return new CachedResponse(now, generation, descriptions, visibleProfiles);
+    }
+
     @Override
     public void onReload(INucleusServiceCollection serviceCollection) {
         this.config = serviceCollection.moduleDataProvider().getModuleConfig(ServerListConfig.class);
+        this.cachedResponse = null;
     }
 
     @Override
     public boolean shouldEnable(INucleusServiceCollection serviceCollection) {
         return serviceCollection.moduleDataProvider().getModuleConfig(ServerListConfig.class).enableListener();
     }
+
+    private static final class CachedResponse {
+
+        private final long createdAt;
+        private final long playerListGeneration;
+        private final List<Text> descriptions;
+        @Nullable private final List<GameProfile> visibleProfiles;
+
+        private CachedResponse(long createdAt, long playerListGeneration, List<Text> descriptions,
+                @Nullable List<GameProfile> visibleProfiles) {
+            this.createdAt = createdAt;
+            this.playerListGeneration = playerListGeneration;
+            this.descriptions = descriptions;
+            this.visibleProfiles = visibleProfiles;
+        }
+    }
 }
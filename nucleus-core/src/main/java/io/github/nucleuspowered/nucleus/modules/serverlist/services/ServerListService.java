@@ -14,6 +14,7 @@ import org.spongepowered.api.text.serializer.TextSerializers;
 
 import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -24,6 +25,7 @@ public class ServerListService implements ServiceBase {
     @Nullable private Optional<Text> messageCache = null;
     private Instant expiry = Instant.MAX;
     private final IStorageManager storageManager;
+    private final AtomicLong playerListGeneration = new AtomicLong();
 
     @Inject
     public ServerListService(INucleusServiceCollection serviceCollection) {
@@ -100,6 +102,23 @@ public class ServerListService implements ServiceBase {
         return this.messageCache;
     }
 
+    /**
+     * Marks the list of players shown in the server list as out of date, such as when a player
+     * vanishes or unvanishes.
+     */
+    public void invalidatePlayerList() {
+        this.playerListGeneration.incrementAndGet();
+    }
+
+    /**
+     * Gets a number that changes whenever {@link #invalidatePlayerList()} is called.
+     *
+     * @return The generation
+     */
+    public long getPlayerListGeneration() {
+        return this.playerListGeneration.get();
+    }
+
     public Optional<Instant> getExpiry() {
         if (this.expiry == Instant.MAX) {
             return Optional.empty();
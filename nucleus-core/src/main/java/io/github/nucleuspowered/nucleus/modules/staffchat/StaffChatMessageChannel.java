@@ -28,7 +28,9 @@ import org.spongepowered.api.text.format.TextColor;
 import org.spongepowered.api.text.serializer.TextSerializers;
 
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -67,8 +69,9 @@ public class StaffChatMessageChannel implements
 
     public APIChannel createChannel(MessageChannel delegated) {
         final MutableMessageChannel mutableMessageChannel = delegated.asMutable();
+        final Set<MessageReceiver> members = new HashSet<>(delegated.getMembers());
         mutableMessageChannel.clearMembers();
-        this.receivers().stream().filter(x -> delegated.getMembers().contains(x)).forEach(mutableMessageChannel::addMember);
+        this.receivers().stream().filter(members::contains).forEach(mutableMessageChannel::addMember);
         return new APIChannel(
                 mutableMessageChannel,
                 mutableMessageChannel.getMembers()
@@ -19,13 +19,17 @@ import io.github.nucleuspowered.nucleus.services.interfaces.IUserPreferenceServi
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.data.key.Keys;
 import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.entity.living.player.User;
 import org.spongepowered.api.event.Listener;
+import org.spongepowered.api.event.Order;
 import org.spongepowered.api.event.filter.Getter;
+import org.spongepowered.api.event.filter.IsCancelled;
 import org.spongepowered.api.event.network.ClientConnectionEvent;
 import org.spongepowered.api.plugin.PluginContainer;
 import org.spongepowered.api.scheduler.Task;
 import org.spongepowered.api.service.user.UserStorageService;
 import org.spongepowered.api.text.action.TextActions;
+import org.spongepowered.api.util.Tristate;
 
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -54,8 +58,10 @@ public class VanishListener implements IReloadableService.Reloadable, ListenerBa
 
     @Listener
     public void onAuth(ClientConnectionEvent.Auth auth) {
+        UUID uuid = auth.getProfile().getUniqueId();
+        // We're off the main thread here, so this is the place to go to storage.
+        this.service.loadVanishStatus(uuid);
         if (this.vanishConfig.isTryHidePlayers()) {
-            UUID uuid = auth.getProfile().getUniqueId();
             CompletableFuture<Void> future = new CompletableFuture<>();
             Task.builder().execute(
                     () -> {
@@ -72,6 +78,27 @@ public class VanishListener implements IReloadableService.Reloadable, ListenerBa
         }
     }
 
+    @Listener(order = Order.POST)
+    @IsCancelled(Tristate.TRUE)
+    public void onAuthCancelled(ClientConnectionEvent.Auth event) {
+        // The player won't get as far as joining, so won't disconnect either.
+        forget(event.getProfile().getUniqueId());
+    }
+
+    @Listener(order = Order.POST)
+    @IsCancelled(Tristate.TRUE)
+    public void onLoginCancelled(ClientConnectionEvent.Login event, @Getter("getTargetUser") User user) {
+        forget(user.getUniqueId());
+    }
+
+    private void forget(UUID uuid) {
+        // The same player may already be online, in which case they're still tracked.
+        if (!Sponge.getServer().getPlayer(uuid).isPresent()) {
+            this.service.clearLastVanishTime(uuid);
+            this.service.onDisconnect(uuid);
+        }
+    }
+
     @Listener
     public void onLogin(ClientConnectionEvent.Join event, @Getter("getTargetEntity") Player player) {
         boolean persist = this.service.isVanished(player);
@@ -114,6 +141,7 @@ public class VanishListener implements IReloadableService.Reloadable, ListenerBa
         }
 
         this.service.clearLastVanishTime(player.getUniqueId());
+        this.service.onDisconnect(player.getUniqueId());
     }
 
     @Override
@@ -4,6 +4,8 @@
  */
 package io.github.nucleuspowered.nucleus.modules.vanish.services;
 
+import io.github.nucleuspowered.nucleus.modules.playerinfo.services.PlayerRosterService;
+import io.github.nucleuspowered.nucleus.modules.serverlist.services.ServerListService;
 import io.github.nucleuspowered.nucleus.modules.vanish.VanishKeys;
 import io.github.nucleuspowered.nucleus.modules.vanish.VanishPermissions;
 import io.github.nucleuspowered.nucleus.modules.vanish.config.VanishConfig;
@@ -23,10 +25,15 @@ import org.spongepowered.api.scheduler.Task;
 import org.spongepowered.api.text.Text;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 
@@ -34,12 +41,22 @@ public class VanishService implements IReloadableService.Reloadable, ServiceBase
 
     private boolean isAlter = false;
     private final Map<UUID, Instant> lastVanish = new HashMap<>();
+
+    // The vanish status of online players is held here, so that checks do not need to go to storage.
+    // It is loaded as players connect, and changes are written back to storage in the background.
+    private final Set<UUID> vanished = ConcurrentHashMap.newKeySet();
+
+    // The newest status to write for each player, so that saves that finish out of order still store the newest.
+    private final Map<UUID, Boolean> statusToSave = new ConcurrentHashMap<>();
+    private final Object saveLock = new Object();
+    private final INucleusServiceCollection serviceCollection;
     private final IPermissionService permissionService;
     private final IStorageManager storageManager;
     private final PluginContainer pluginContainer;
 
     @Inject
     public VanishService(INucleusServiceCollection serviceCollection) {
+        this.serviceCollection = serviceCollection;
         this.permissionService = serviceCollection.permissionService();
         this.storageManager = serviceCollection.storageManager();
         this.pluginContainer = serviceCollection.pluginContainer();
@@ -54,7 +71,7 @@ public class VanishService implements IReloadableService.Reloadable, ServiceBase
         if (!vanishConfig.isTryHidePlayers()) {
             serviceCollection.playerOnlineService().reset();
         } else {
-            serviceCollection.playerOnlineService().set(this::isOnline, this::lastSeen);
+            serviceCollection.playerOnlineService().set(this::isOnline, this::lastSeen, this::getVisiblePlayers);
         }
     }
 
@@ -70,6 +87,29 @@ public class VanishService implements IReloadableService.Reloadable, ServiceBase
         return false;
     }
 
+    /**
+     * Gets the players in the supplied collection that the source can see, in the order they
+     * were supplied.
+     *
+     * @param src The source that is looking
+     * @param players The players to filter
+     * @return The visible players
+     */
+    public List<Player> getVisiblePlayers(CommandSource src, Collection<Player> players) {
+        if (this.vanished.isEmpty() || this.permissionService.hasPermission(src, VanishPermissions.VANISH_SEE)) {
+            return new ArrayList<>(players);
+        }
+
+        List<Player> visible = new ArrayList<>(players.size());
+        for (Player player : players) {
+            if (!this.vanished.contains(player.getUniqueId())) {
+                visible.add(player);
+            }
+        }
+
+        return visible;
+    }
+
     public Optional<Instant> lastSeen(CommandSource src, User player) {
         if (isOnline(src, player) || !player.isOnline() || !getLastVanishTime(player.getUniqueId()).isPresent()) {
             return player.get(Keys.LAST_DATE_PLAYED);
@@ -80,20 +120,62 @@ public class VanishService implements IReloadableService.Reloadable, ServiceBase
     }
 
     public boolean isVanished(User player) {
+        if (player.isOnline()) {
+            return this.vanished.contains(player.getUniqueId());
+        }
+
+        // Offline users are not indexed, so we have to look.
+        return getStoredVanishStatus(player.getUniqueId());
+    }
+
+    /**
+     * Loads the stored vanish status of a player who is connecting into the index.
+     *
+     * <p>This reads from storage, and so should be called off the main thread.</p>
+     *
+     * @param uuid The {@link UUID} of the player
+     */
+    public void loadVanishStatus(UUID uuid) {
+        if (getStoredVanishStatus(uuid)) {
+            this.vanished.add(uuid);
+        } else {
+            this.vanished.remove(uuid);
+        }
+    }
+
+    private boolean getStoredVanishStatus(UUID uuid) {
+        // A change that is still being saved is newer than what is in storage.
+        Boolean pending = this.statusToSave.get(uuid);
+        if (pending != null) {
+            return pending;
+        }
+
         return this.storageManager.getUserService()
-                .getOnThread(player.getUniqueId())
+                .getOnThread(uuid)
                 .flatMap(x -> x.get(VanishKeys.VANISH_STATUS))
                 .orElse(false);
     }
 
+    /**
+     * Removes a player who has disconnected from the index.
+     *
+     * @param uuid The {@link UUID} of the player
+     */
+    public void onDisconnect(UUID uuid) {
+        this.vanished.remove(uuid);
+    }
+
     public void vanishPlayer(User player) {
         vanishPlayer(player, false);
     }
 
     public void vanishPlayer(User player, boolean delay) {
-        this.storageManager.getUserService()
-                .getOrNewOnThread(player.getUniqueId())
-                .set(VanishKeys.VANISH_STATUS, true);
+        // Only online players are indexed, offline players pick this up from storage when they connect.
+        if (player.isOnline()) {
+            this.vanished.add(player.getUniqueId());
+        }
+
+        saveVanishStatus(player.getUniqueId(), true);
 
         if (player instanceof Player) {
             if (delay) {
@@ -106,11 +188,7 @@ public class VanishService implements IReloadableService.Reloadable, ServiceBase
     }
 
     private void vanishPlayerInternal(Player player) {
-        vanishPlayerInternal(player,
-                this.storageManager.getUserService()
-                        .getOrNewOnThread(player.getUniqueId())
-                        .get(VanishKeys.VANISH_STATUS)
-                        .orElse(false));
+        vanishPlayerInternal(player, this.vanished.contains(player.getUniqueId()));
     }
 
     private void vanishPlayerInternal(Player player, boolean vanish) {
@@ -124,16 +202,22 @@ public class VanishService implements IReloadableService.Reloadable, ServiceBase
                         .hasPermission(x, VanishPermissions.VANISH_SEE))
                         .forEach(x -> x.getTabList().removeEntry(player.getUniqueId()));
             }
+
+            this.serviceCollection.getService(PlayerRosterService.class).ifPresent(x -> x.refresh(player));
+            this.serviceCollection.getService(ServerListService.class).ifPresent(ServerListService::invalidatePlayerList);
         }
     }
 
     public void unvanishPlayer(User user) {
-        this.storageManager.getUserService()
-                .getOrNew(user.getUniqueId())
-                .thenAccept(x -> x.set(VanishKeys.VANISH_STATUS, false));
+        this.vanished.remove(user.getUniqueId());
+        saveVanishStatus(user.getUniqueId(), false);
         user.offer(Keys.VANISH, false);
         user.offer(Keys.VANISH_IGNORES_COLLISION, false);
         user.offer(Keys.VANISH_PREVENTS_TARGETING, false);
+        user.getPlayer().ifPresent(player -> {
+            this.serviceCollection.getService(PlayerRosterService.class).ifPresent(x -> x.refresh(player));
+            this.serviceCollection.getService(ServerListService.class).ifPresent(ServerListService::invalidatePlayerList);
+        });
 
         if (this.isAlter && user instanceof Player) {
             Player player = (Player) user;
@@ -150,6 +234,20 @@ public class VanishService implements IReloadableService.Reloadable, ServiceBase
         }
     }
 
+    private void saveVanishStatus(UUID uuid, boolean status) {
+        this.statusToSave.put(uuid, status);
+        this.storageManager.getUserService().getOrNew(uuid).thenAccept(x -> {
+            synchronized (this.saveLock) {
+                // If there has been another change since, that is written instead, and the later save does nothing.
+                Boolean newest = this.statusToSave.remove(uuid);
+                if (newest != null) {
+                    x.set(VanishKeys.VANISH_STATUS, newest);
+                    this.storageManager.saveUser(uuid, x);
+                }
+            }
+        });
+    }
+
     public void setLastVanishedTime(UUID pl, Instant instant) {
         this.lastVanish.put(pl, instant);
     }
@@ -8,78 +8,130 @@ import io.github.nucleuspowered.nucleus.services.interfaces.ICooldownService;
 import org.spongepowered.api.util.Identifiable;
 
 import java.time.Duration;
-import java.time.Instant;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import javax.inject.Singleton;
 
+/**
+ * Holds cooldowns as expiry times in per player arrays, indexed by an ID that is assigned to each
+ * cooldown key the first time it is set.
+ *
+ * <p>Lookups do not lock or allocate. Players whose cooldowns have all expired are removed every
+ * {@link #SWEEP_INTERVAL} calls to {@link #setCooldown(String, Identifiable, Duration)}, rather than
+ * on every lookup.</p>
+ */
 @Singleton
 public class CooldownService implements ICooldownService {
 
-    private final Map<DualKey, Instant> cooldowns = new HashMap<>();
-
-    private Map<DualKey, Instant> cleanUp() {
-        Instant now = Instant.now();
-        Collection<DualKey> keys = this.cooldowns.entrySet()
-                .stream()
-                .filter(x -> x.getValue().isBefore(now))
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-        for (DualKey key : keys) {
-            this.cooldowns.remove(key);
-        }
+    private static final int SWEEP_INTERVAL = 256;
 
-        return this.cooldowns;
-    }
+    private final Map<String, Integer> keyIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextKeyId = new AtomicInteger();
+    private final Map<UUID, PlayerCooldowns> cooldowns = new ConcurrentHashMap<>();
+    private final AtomicInteger setsSinceSweep = new AtomicInteger();
 
     @Override public boolean hasCooldown(String key, Identifiable identifiable) {
-        return cleanUp().containsKey(new DualKey(key, identifiable.getUniqueId()));
+        return getExpiry(key, identifiable.getUniqueId()) > System.currentTimeMillis();
     }
 
     @Override public Optional<Duration> getCooldown(String key, Identifiable identifiable) {
-        return Optional.ofNullable(cleanUp()
-                .get(new DualKey(key, identifiable.getUniqueId())))
-                .map(x -> Duration.between(Instant.now(), x));
+        long remaining = getExpiry(key, identifiable.getUniqueId()) - System.currentTimeMillis();
+        if (remaining > 0) {
+            return Optional.of(Duration.ofMillis(remaining));
+        }
+
+        return Optional.empty();
     }
 
     @Override public void setCooldown(String key, Identifiable identifiable, Duration cooldownLength) {
-        this.cooldowns.put(new DualKey(key, identifiable.getUniqueId()), Instant.now().plus(cooldownLength));
+        int id = this.keyIds.computeIfAbsent(key, k -> this.nextKeyId.getAndIncrement());
+        long expiry = System.currentTimeMillis() + cooldownLength.toMillis();
+        this.cooldowns.compute(identifiable.getUniqueId(), (uuid, playerCooldowns) -> {
+            PlayerCooldowns result = playerCooldowns == null ? new PlayerCooldowns() : playerCooldowns;
+            result.set(id, expiry);
+            return result;
+        });
+
+        if (this.setsSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+            this.setsSinceSweep.set(0);
+            sweep();
+        }
     }
 
     @Override public void clearCooldown(String key, Identifiable identifiable) {
-        this.cooldowns.remove(new DualKey(key, identifiable.getUniqueId()));
+        Integer id = this.keyIds.get(key);
+        if (id != null) {
+            this.cooldowns.computeIfPresent(identifiable.getUniqueId(), (uuid, playerCooldowns) -> {
+                playerCooldowns.set(id, 0);
+                return playerCooldowns;
+            });
+        }
+    }
+
+    private long getExpiry(String key, UUID uuid) {
+        Integer id = this.keyIds.get(key);
+        if (id == null) {
+            return 0;
+        }
+
+        PlayerCooldowns playerCooldowns = this.cooldowns.get(uuid);
+        return playerCooldowns == null ? 0 : playerCooldowns.get(id);
     }
 
-    private static class DualKey {
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (UUID uuid : this.cooldowns.keySet()) {
+            // Done in compute so we don't remove a player that is having a cooldown set.
+            this.cooldowns.computeIfPresent(uuid, (k, playerCooldowns) -> playerCooldowns.latestExpiry <= now ? null : playerCooldowns);
+        }
+    }
 
-        private final String key;
-        private final UUID uuid;
+    /**
+     * The expiry times of a player's cooldowns. Only modified from within a compute call on the
+     * cooldown map, so writes for one player never race each other, but may be read at any time.
+     */
+    private static final class PlayerCooldowns {
 
-        private DualKey(String key, UUID uuid) {
-            this.key = key;
-            this.uuid = uuid;
+        private volatile AtomicLongArray expiries = new AtomicLongArray(8);
+        private volatile long latestExpiry = 0;
+
+        private long get(int id) {
+            AtomicLongArray current = this.expiries;
+            return id < current.length() ? current.get(id) : 0;
         }
 
-        @Override public boolean equals(Object o) {
-            if (this == o) {
-                return true;
+        private void set(int id, long expiry) {
+            AtomicLongArray current = this.expiries;
+            if (id >= current.length()) {
+                current = grow(current, id);
             }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
+
+            current.set(id, expiry);
+            if (expiry > this.latestExpiry) {
+                this.latestExpiry = expiry;
             }
-            DualKey dualKey = (DualKey) o;
-            return Objects.equals(key, dualKey.key) &&
-                    Objects.equals(uuid, dualKey.uuid);
         }
 
-        @Override public int hashCode() {
-            return Objects.hash(key, uuid.getLeastSignificantBits(), uuid.getMostSignificantBits());
+        private AtomicLongArray grow(AtomicLongArray current, int id) {
+            int length = current.length();
+            int newLength = length;
+            while (newLength <= id) {
+                newLength *= 2;
+            }
+
+            AtomicLongArray replacement = new AtomicLongArray(newLength);
+            for (int i = 0; i < length; i++) {
+                replacement.set(i, current.get(i));
+            }
+
+            this.expiries = replacement;
+            return replacement;
         }
+
     }
 }
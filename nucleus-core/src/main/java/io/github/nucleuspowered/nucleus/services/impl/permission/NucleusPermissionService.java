@@ -26,6 +26,9 @@ import org.spongepowered.api.command.args.CommandElement;
 import org.spongepowered.api.command.args.GenericArguments;
 import org.spongepowered.api.command.source.CommandBlockSource;
 import org.spongepowered.api.command.source.ConsoleSource;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.event.network.ClientConnectionEvent;
+import org.spongepowered.api.event.permission.SubjectDataUpdateEvent;
 import org.spongepowered.api.service.ProviderRegistration;
 import org.spongepowered.api.service.context.Context;
 import org.spongepowered.api.service.context.ContextCalculator;
@@ -47,11 +50,21 @@ import java.util.OptionalLong;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+/**
+ * Nucleus' view of the permission service.
+ *
+ * <p>Permission and option lookups for online players are cached per player, against the set of
+ * contexts that were active when they were resolved. If the active contexts change, the player's
+ * cache is started again. Caches are cleared when subject data changes, when Nucleus changes a
+ * player's contexts, when the player leaves, and on reload. Offline users are not cached.</p>
+ */
 @Singleton
 public class NucleusPermissionService implements IPermissionService, IReloadableService.Reloadable, ContextCalculator<Subject> {
 
@@ -65,6 +78,11 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
     private final Set<String> failedChecks = new HashSet<>();
     private final Map<String, IPermissionService.Metadata> metadataMap = new HashMap<>();
     private final Map<String, IPermissionService.Metadata> prefixMetadataMap = new HashMap<>();
+    private final PermissionPrefixTrie<IPermissionService.Metadata> prefixMetadataTrie = new PermissionPrefixTrie<>();
+
+    private final Map<UUID, SubjectCache> subjectCaches = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
 
     private final Map<UUID, Map<String, Context>> standardContexts = new ConcurrentHashMap<>();
     private final Map<SuggestedLevel, Set<SubjectReference>> appliedRoles = new HashMap<>();
@@ -79,6 +97,12 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
         // Register the context calculators.
         Sponge.getServiceManager().provide(PermissionService.class).ifPresent(x -> x.registerContextCalculator(this));
         service.registerReloadable(this);
+
+        // Permissions may have changed, we don't know for who, so start again.
+        Sponge.getEventManager().registerListener(serviceCollection.pluginContainer(), SubjectDataUpdateEvent.class,
+                event -> invalidatePermissionCache());
+        Sponge.getEventManager().registerListener(serviceCollection.pluginContainer(), ClientConnectionEvent.Disconnect.class,
+                event -> this.subjectCaches.remove(event.getTargetEntity().getUniqueId()));
     }
 
     @Override
@@ -115,6 +139,7 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
 
         // don't know if there is a better way to do this.
         this.isOpOnly = service.getPlugin().getId().equals("sponge");
+        invalidatePermissionCache();
     }
 
     @Override public boolean hasPermission(Subject permissionSubject, String permission) {
@@ -141,6 +166,7 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
         CoreConfig coreConfig = serviceCollection.moduleDataProvider().getModuleConfig(CoreConfig.class);
         this.useRole = coreConfig.isUseParentPerms();
         this.consoleOverride = coreConfig.isConsoleOverride();
+        invalidatePermissionCache();
     }
 
     @Override public void registerDescriptions() {
@@ -164,6 +190,7 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
         NucleusPermissionService.Metadata m = new NucleusPermissionService.Metadata(permission, metadata, moduleid);
         if (metadata.isPrefix()) {
             this.prefixMetadataMap.put(permission.toLowerCase(), m);
+            this.prefixMetadataTrie.put(permission.toLowerCase(), m);
         } else {
             this.metadataMap.put(permission.toLowerCase(), m);
         }
@@ -179,6 +206,7 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
 
     @Override public OptionalDouble getDoubleOptionFromSubject(Subject player, String... options) {
         return getTypedObjectFromSubject(
+                "double",
                 string -> OptionalDouble.of(Double.parseDouble(string)),
                 OptionalDouble.empty(),
                 player,
@@ -187,6 +215,7 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
 
     @Override public OptionalLong getPositiveLongOptionFromSubject(Subject player, String... options) {
         return getTypedObjectFromSubject(
+                "positivelong",
                 string -> OptionalLong.of(Long.parseLong(string)),
                 OptionalLong.empty(),
                 player,
@@ -195,6 +224,7 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
 
     @Override public OptionalInt getPositiveIntOptionFromSubject(Subject player, String... options) {
         return getTypedObjectFromSubject(
+                "positiveint",
                 string -> OptionalInt.of(Integer.parseUnsignedInt(string)),
                 OptionalInt.empty(),
                 player,
@@ -203,15 +233,36 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
 
     @Override public OptionalInt getIntOptionFromSubject(Subject player, String... options) {
         return getTypedObjectFromSubject(
+                "int",
                 string -> OptionalInt.of(Integer.parseInt(string)),
                 OptionalInt.empty(),
                 player,
                 options);
     }
 
-    private <T> T getTypedObjectFromSubject(ThrownFunction<String, T, Exception> conversion, T empty, Subject player, String... options) {
+    @SuppressWarnings("unchecked")
+    private <T> T getTypedObjectFromSubject(String type, ThrownFunction<String, T, Exception> conversion, T empty, Subject player,
+            String... options) {
+        SubjectCache cache = getCache(player);
+        if (cache == null) {
+            return convert(conversion, empty, getOptionFromSubject(player, player.getActiveContexts(), options));
+        }
+
+        String key = type + "|" + String.join("|", options);
+        Object result = cache.typedOptions.get(key);
+        if (result == null) {
+            this.cacheMisses.increment();
+            result = convert(conversion, empty, getOptionFromSubject(player, cache.contexts, options));
+            cache.typedOptions.put(key, result);
+        } else {
+            this.cacheHits.increment();
+        }
+
+        return (T) result;
+    }
+
+    private <T> T convert(ThrownFunction<String, T, Exception> conversion, T empty, Optional<String> optional) {
         try {
-            Optional<String> optional = getOptionFromSubject(player, options);
             if (optional.isPresent()) {
                 return conversion.apply(optional.get());
             }
@@ -223,11 +274,30 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
     }
 
     @Override public Optional<String> getOptionFromSubject(Subject player, String... options) {
+        SubjectCache cache = getCache(player);
+        if (cache == null) {
+            return getOptionFromSubject(player, player.getActiveContexts(), options);
+        }
+
+        String key = String.join("|", options);
+        Optional<String> result = cache.options.get(key);
+        if (result == null) {
+            this.cacheMisses.increment();
+            result = getOptionFromSubject(player, cache.contexts, options);
+            cache.options.put(key, result);
+        } else {
+            this.cacheHits.increment();
+        }
+
+        return result;
+    }
+
+    private Optional<String> getOptionFromSubject(Subject player, Set<Context> contexts, String... options) {
         for (String option : options) {
             String o = option.toLowerCase();
 
             // Option for context.
-            Optional<String> os = player.getOption(player.getActiveContexts(), o);
+            Optional<String> os = player.getOption(contexts, o);
             if (os.isPresent()) {
                 return os.map(r -> r.isEmpty() ? null : r);
             }
@@ -242,6 +312,72 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
         return Optional.empty();
     }
 
+    @Override public void invalidatePermissionCache() {
+        this.subjectCaches.clear();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getDerivedValue(Subject subject, String key, Function<Subject, T> function) {
+        SubjectCache cache = getCache(subject);
+        if (cache == null) {
+            return function.apply(subject);
+        }
+
+        Object result = cache.derived.get(key);
+        if (result == null) {
+            this.cacheMisses.increment();
+            result = function.apply(subject);
+            cache.derived.put(key, result);
+        } else {
+            this.cacheHits.increment();
+        }
+
+        return (T) result;
+    }
+
+    @Override public void invalidateDerivedValue(Subject subject, String key) {
+        if (subject instanceof Identifiable) {
+            SubjectCache cache = this.subjectCaches.get(((Identifiable) subject).getUniqueId());
+            if (cache != null) {
+                cache.derived.remove(key);
+            }
+        }
+    }
+
+    @Override public long getPermissionCacheHits() {
+        return this.cacheHits.sum();
+    }
+
+    @Override public long getPermissionCacheMisses() {
+        return this.cacheMisses.sum();
+    }
+
+    /**
+     * Gets the cache for the subject, starting a new one if the subject's active contexts have changed.
+     *
+     * @param subject The subject
+     * @return The cache, or null if the subject is not an online player, or if the Sponge permission
+     *         service is in use, as it does not tell us when ops change. Offline users are not cached,
+     *         as nothing would remove them again.
+     */
+    @Nullable
+    private SubjectCache getCache(Subject subject) {
+        if (this.isOpOnly || !(subject instanceof Player) || !((Player) subject).isOnline()) {
+            return null;
+        }
+
+        UUID uuid = ((Player) subject).getUniqueId();
+        Set<Context> contexts = subject.getActiveContexts();
+        SubjectCache cache = this.subjectCaches.get(uuid);
+        if (cache == null || !cache.contexts.equals(contexts)) {
+            cache = new SubjectCache(ImmutableSet.copyOf(contexts));
+            this.subjectCaches.put(uuid, cache);
+        }
+
+        return cache;
+    }
+
     @Override public PermissionMessageChannel permissionMessageChannel(String permission) {
         return new PermissionMessageChannel(this, permission);
     }
@@ -251,36 +387,70 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
     }
 
     private boolean hasPermission(Subject subject, String permission, boolean checkRole) {
-        Tristate tristate = hasPermissionTristate(subject, permission, checkRole);
+        SubjectCache cache = getCache(subject);
+        if (cache == null) {
+            return hasPermission(subject, subject.getActiveContexts(), permission, checkRole);
+        }
+
+        Boolean result = cache.permissions.get(permission);
+        if (result == null) {
+            this.cacheMisses.increment();
+            result = hasPermission(subject, cache.contexts, permission, checkRole);
+            cache.permissions.put(permission, result);
+        } else {
+            this.cacheHits.increment();
+        }
+
+        return result;
+    }
+
+    private boolean hasPermission(Subject subject, Set<Context> contexts, String permission, boolean checkRole) {
+        Tristate tristate = hasPermissionTristate(subject, contexts, permission, checkRole);
         if (tristate == Tristate.UNDEFINED) {
-            return subject.hasPermission(permission); // guarantees the correct response.
+            return subject.hasPermission(contexts, permission); // guarantees the correct response.
         }
 
         return tristate.asBoolean();
     }
 
     private Tristate hasPermissionTristate(Subject subject, String permission, boolean checkRole) {
+        if (!checkRole || !permission.startsWith("nucleus.")) {
+            return Tristate.UNDEFINED;
+        }
+
+        SubjectCache cache = getCache(subject);
+        if (cache == null) {
+            return hasPermissionTristate(subject, subject.getActiveContexts(), permission, checkRole);
+        }
+
+        Tristate result = cache.tristates.get(permission);
+        if (result == null) {
+            this.cacheMisses.increment();
+            result = hasPermissionTristate(subject, cache.contexts, permission, checkRole);
+            cache.tristates.put(permission, result);
+        } else {
+            this.cacheHits.increment();
+        }
+
+        return result;
+    }
+
+    private Tristate hasPermissionTristate(Subject subject, Set<Context> contexts, String permission, boolean checkRole) {
         if (checkRole && permission.startsWith("nucleus.")) {
-            Tristate tristate = subject.getPermissionValue(subject.getActiveContexts(), permission);
+            Tristate tristate = subject.getPermissionValue(contexts, permission);
             if (tristate == Tristate.UNDEFINED) {
                 @Nullable IPermissionService.Metadata result = this.metadataMap.get(permission);
+                if (result == null) {
+                    result = this.prefixMetadataTrie.getLongestPrefixOf(permission);
+                }
+
                 if (result != null) { // check the "parent" perm
                     String perm = result.getSuggestedLevel().getPermission();
                     if (perm == null) {
-                        return subject.getPermissionValue(subject.getActiveContexts(), permission);
+                        // We already know this is undefined.
+                        return Tristate.UNDEFINED;
                     } else {
-                        return subject.getPermissionValue(subject.getActiveContexts(), perm);
-                    }
-                }
-
-                for (Map.Entry<String, IPermissionService.Metadata> entry : this.prefixMetadataMap.entrySet()) {
-                    if (permission.startsWith(entry.getKey())) {
-                        String perm = entry.getValue().getSuggestedLevel().getPermission();
-                        if (perm == null) {
-                            return subject.getPermissionValue(subject.getActiveContexts(), permission);
-                        } else {
-                            return subject.getPermissionValue(subject.getActiveContexts(), perm);
-                        }
+                        return subject.getPermissionValue(contexts, perm);
                     }
                 }
 
@@ -331,6 +501,7 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
 
     private void setContext(UUID uuid, Context context) {
         this.standardContexts.computeIfAbsent(uuid, k -> new HashMap<>()).put(context.getKey().toLowerCase(), context);
+        this.subjectCaches.remove(uuid);
     }
 
     @Override
@@ -338,6 +509,7 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
         if (subject instanceof Identifiable) {
             UUID uuid = ((Identifiable) subject).getUniqueId();
             Context old = this.standardContexts.computeIfAbsent(uuid, k -> new HashMap<>()).put(context.getKey().toLowerCase(), context);
+            this.subjectCaches.remove(uuid);
             return () -> {
                 removeContext(uuid, context.getKey().toLowerCase());
                 if (old != null) {
@@ -354,11 +526,14 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
         if (contexts != null && !contexts.isEmpty()) {
             contexts.remove(key.toLowerCase());
         }
+
+        this.subjectCaches.remove(subject);
     }
 
     @Override
     public void removePlayerContexts(UUID uuid) {
         this.standardContexts.remove(uuid);
+        this.subjectCaches.remove(uuid);
     }
 
     @Override
@@ -391,6 +566,24 @@ public class NucleusPermissionService implements IPermissionService, IReloadable
         return 1;
     }
 
+    /**
+     * The resolved permissions and options for a subject, valid while the subject has the given
+     * active contexts.
+     */
+    private static final class SubjectCache {
+
+        private final Set<Context> contexts;
+        private final Map<String, Tristate> tristates = new ConcurrentHashMap<>();
+        private final Map<String, Boolean> permissions = new ConcurrentHashMap<>();
+        private final Map<String, Optional<String>> options = new ConcurrentHashMap<>();
+        private final Map<String, Object> typedOptions = new ConcurrentHashMap<>();
+        private final Map<String, Object> derived = new ConcurrentHashMap<>();
+
+        private SubjectCache(Set<Context> contexts) {
+            this.contexts = contexts;
+        }
+    }
+
     public static class Metadata implements IPermissionService.Metadata {
 
         private final String description;
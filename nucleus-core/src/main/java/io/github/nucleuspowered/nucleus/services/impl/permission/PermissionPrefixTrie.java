@@ -0,0 +1,60 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.permission;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * A character trie of permission prefixes, so that the prefix that a permission starts with can be
+ * found in time proportional to the length of the permission, rather than the number of prefixes.
+ *
+ * @param <T> The type of value stored against each prefix
+ */
+class PermissionPrefixTrie<T> {
+
+    private final Node<T> root = new Node<>();
+
+    void put(String prefix, T value) {
+        Node<T> node = this.root;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node<>());
+        }
+
+        node.value = value;
+    }
+
+    /**
+     * Gets the value for the longest prefix that the given string starts with.
+     *
+     * @param string The string
+     * @return The value, or null if no prefix matches
+     */
+    @Nullable
+    T getLongestPrefixOf(String string) {
+        Node<T> node = this.root;
+        T result = node.value;
+        for (int i = 0; i < string.length(); i++) {
+            node = node.children.get(string.charAt(i));
+            if (node == null) {
+                break;
+            }
+
+            if (node.value != null) {
+                result = node.value;
+            }
+        }
+
+        return result;
+    }
+
+    private static final class Node<T> {
+
+        private final Map<Character, Node<T>> children = new HashMap<>();
+        @Nullable private T value;
+    }
+}
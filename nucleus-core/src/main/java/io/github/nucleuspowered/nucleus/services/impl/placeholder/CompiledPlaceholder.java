@@ -0,0 +1,80 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.placeholder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.ImmutableList;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.text.Text;
+import org.spongepowered.api.text.TextRepresentable;
+import org.spongepowered.api.text.placeholder.PlaceholderContext;
+import org.spongepowered.api.text.placeholder.PlaceholderParser;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A placeholder token that has been parsed once, with its parser, argument and modifiers worked out,
+ * so that rendering it only needs to build a context and call the parser.
+ *
+ * <p>If the placeholder is marked as cacheable, the rendered text is kept for a short time for each
+ * source.</p>
+ */
+public final class CompiledPlaceholder {
+
+    private static final long CACHE_TTL_MILLIS = 1000;
+
+    @Nullable private final PlaceholderParser parser;
+    private final Supplier<PlaceholderParser> lateParser;
+    @Nullable private final String argument;
+    private final List<Function<Text, Text>> modifiers;
+    private final boolean requiresSource;
+    @Nullable private final Cache<String, Text> renderCache;
+
+    CompiledPlaceholder(
+            @Nullable PlaceholderParser parser,
+            Supplier<PlaceholderParser> lateParser,
+            @Nullable String argument,
+            List<Function<Text, Text>> modifiers,
+            boolean requiresSource,
+            boolean cacheable) {
+        this.parser = parser;
+        this.lateParser = lateParser;
+        this.argument = argument;
+        this.modifiers = ImmutableList.copyOf(modifiers);
+        this.requiresSource = requiresSource;
+        this.renderCache = cacheable ? Caffeine.newBuilder().expireAfterWrite(CACHE_TTL_MILLIS, TimeUnit.MILLISECONDS).build() : null;
+    }
+
+    /**
+     * Renders the placeholder for the given source.
+     *
+     * @param commandSource The source
+     * @return The text to display
+     */
+    public TextRepresentable render(@Nullable CommandSource commandSource) {
+        if (this.requiresSource && commandSource == null) {
+            return Text.EMPTY;
+        }
+
+        NucleusPlaceholderText text = new NucleusPlaceholderText(
+                PlaceholderContext.builder()
+                        .setAssociatedObject(commandSource)
+                        .setArgumentString(this.argument)
+                        .build(),
+                this.parser == null ? this.lateParser.get() : this.parser,
+                this.modifiers);
+        if (this.renderCache == null) {
+            return text;
+        }
+
+        return this.renderCache.get(commandSource == null ? "" : commandSource.getIdentifier(), key -> text.toText());
+    }
+
+}
@@ -10,11 +10,13 @@ public class PlaceholderMetadata {
     private final String token;
     private final PlaceholderParser parser;
     private final boolean document;
+    private final boolean cacheable;
 
-    PlaceholderMetadata(String token, PlaceholderParser parser, boolean document) {
+    PlaceholderMetadata(String token, PlaceholderParser parser, boolean document, boolean cacheable) {
         this.token = token;
         this.parser = parser;
         this.document = document;
+        this.cacheable = cacheable;
     }
 
     public String getToken() {
@@ -28,4 +30,14 @@ public class PlaceholderMetadata {
     public boolean isDocument() {
         return this.document;
     }
+
+    /**
+     * Gets whether the text for this placeholder changes rarely enough that it can be reused
+     * for the same source for a short time.
+     *
+     * @return true if so
+     */
+    public boolean isCacheable() {
+        return this.cacheable;
+    }
 }
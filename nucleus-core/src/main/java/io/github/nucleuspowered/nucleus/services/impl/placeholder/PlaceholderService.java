@@ -4,6 +4,8 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.placeholder;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.github.nucleuspowered.nucleus.Util;
@@ -53,6 +55,7 @@ public class PlaceholderService implements IPlaceholderService, IInitService {
     private final PlaceholderParser emptyParser;
     private final Map<String, PlaceholderMetadata> parsers = new HashMap<>();
     private final PluginContainer pluginContainer;
+    private final Cache<String, CompiledPlaceholder> compiledPlaceholders = Caffeine.newBuilder().maximumSize(2000).build();
 
     static {
         SEPARATOR = buildModifiers();
@@ -111,7 +114,7 @@ public class PlaceholderService implements IPlaceholderService, IInitService {
                 .id("maxplayers")
                 .name("Nucleus Max Players parser")
                 .parser(p -> Text.of(Sponge.getServer().getMaxPlayers()))
-                .build());
+                .build(), true, true);
         registerToken("onlineplayers", PlaceholderParser.builder()
                         .plugin(this.pluginContainer)
                         .id("onlineplayers")
@@ -123,7 +126,7 @@ public class PlaceholderService implements IPlaceholderService, IInitService {
                 .id("currentworld")
                 .name("Nucleus Current World parser")
                 .parser(placeholder -> Text.of(getWorld(placeholder).getName()))
-                .build());
+                .build(), true, true);
         registerToken("time",
                 PlaceholderParser.builder()
                         .plugin(this.pluginContainer)
@@ -139,7 +142,7 @@ public class PlaceholderService implements IPlaceholderService, IInitService {
                         .id("uniquevisitor")
                         .name("Nucleus unique visitor parser")
                         .parser(placeholder -> Text.of(serviceCollection.getServiceUnchecked(UniqueUserService.class).getUniqueUserCount()))
-                        .build());
+                        .build(), true, true);
         registerToken("ipaddress",
                 PlaceholderParser.builder()
                         .plugin(this.pluginContainer)
@@ -158,6 +161,15 @@ public class PlaceholderService implements IPlaceholderService, IInitService {
 
     @Override
     public TextRepresentable parse(@Nullable CommandSource commandSource, String input) {
+        return compile(input).render(commandSource);
+    }
+
+    @Override
+    public CompiledPlaceholder compile(String input) {
+        return this.compiledPlaceholders.get(input, this::compileInternal);
+    }
+
+    private CompiledPlaceholder compileInternal(String input) {
         String token = input.toLowerCase().trim().replace("{{", "").replace("}}", "");
         final Matcher m = SUFFIX_PATTERN.matcher(token);
         final List<Function<Text, Text>> modifiersCollection;
@@ -170,32 +182,30 @@ public class PlaceholderService implements IPlaceholderService, IInitService {
                 }
             }
 
-            token = token.replaceAll(SUFFIX_PATTERN.pattern(), "");
+            token = m.replaceAll("");
         } else {
             modifiersCollection = ImmutableList.of();
         }
 
-        final PlaceholderParser parser;
-        final PlaceholderContext context;
         if (token.startsWith("o:")) {
-            if (commandSource == null) {
-                return Text.EMPTY;
-            }
             // option
-            parser = this.optionParser;
-            context = contextForSubjectAndOption(commandSource, token.substring(2));
-        } else {
-            final String[] s = token.split("\\|", 2);
-            final String tokenIn = s[0].toLowerCase();
-            final String arg = s.length == 2 ? s[1] : null;
-            context = PlaceholderContext.builder()
-                    .setAssociatedObject(commandSource)
-                    .setArgumentString(arg)
-                    .build();
-            parser = getParser(tokenIn).orElse(this.emptyParser);
+            return new CompiledPlaceholder(this.optionParser, () -> this.optionParser, token.substring(2), modifiersCollection, true, false);
         }
 
-        return new NucleusPlaceholderText(context, parser, modifiersCollection);
+        final String[] s = token.split("\\|", 2);
+        final String tokenIn = s[0].toLowerCase();
+        final String arg = s.length == 2 ? s[1] : null;
+        final Optional<PlaceholderParser> parser = getParser(tokenIn);
+
+        // If the parser isn't there yet, it may be registered later, so we look for it each time.
+        final PlaceholderMetadata metadata = tokenIn.contains(":") ? null : this.parsers.get(SEPARATOR.split(tokenIn, 2)[0]);
+        return new CompiledPlaceholder(
+                parser.orElse(null),
+                () -> getParser(tokenIn).orElse(this.emptyParser),
+                arg,
+                modifiersCollection,
+                false,
+                parser.isPresent() && metadata != null && metadata.isCacheable());
     }
 
     @Override
@@ -205,13 +215,17 @@ public class PlaceholderService implements IPlaceholderService, IInitService {
 
     @Override
     public void registerToken(String tokenName, PlaceholderParser parser, boolean document) {
+        registerToken(tokenName, parser, document, false);
+    }
+
+    private void registerToken(String tokenName, PlaceholderParser parser, boolean document, boolean cacheable) {
         if (SEPARATOR.asPredicate().test(tokenName)) {
             // can't be registered.
             throw new IllegalArgumentException("Tokens must not contain |, :, _ or space characters.");
         }
         String token = tokenName.toLowerCase();
         if (!this.parsers.containsKey(token)) {
-            this.parsers.put(token, new PlaceholderMetadata(token, parser, document));
+            this.parsers.put(token, new PlaceholderMetadata(token, parser, document, cacheable));
         } else {
             throw new IllegalStateException("Token " + tokenName.toLowerCase() + " has already been registered.");
         }
@@ -8,13 +8,18 @@ import io.github.nucleuspowered.nucleus.services.interfaces.IPlayerOnlineService
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.command.CommandSource;
 import org.spongepowered.api.data.key.Keys;
+import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.entity.living.player.User;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
 import javax.inject.Singleton;
 
 @Singleton
@@ -27,6 +32,7 @@ public class PlayerOnlineService implements IPlayerOnlineService {
 
     private BiPredicate<CommandSource, User> online = STANDARD_ONLINE;
     private BiFunction<CommandSource, User, Optional<Instant>> lastPlayed = STANDARD_LAST_PLAYED;
+    @Nullable private BiFunction<CommandSource, Collection<Player>, List<Player>> visiblePlayers = null;
 
     @Override public boolean isOnline(CommandSource src, User player) {
         return this.online.test(src, player);
@@ -36,9 +42,20 @@ public class PlayerOnlineService implements IPlayerOnlineService {
         return this.lastPlayed.apply(src, player);
     }
 
-    @Override public void set(BiPredicate<CommandSource, User> isOnline, BiFunction<CommandSource, User, Optional<Instant>> lastSeen) {
+    @Override public List<Player> getVisiblePlayers(CommandSource src, Collection<Player> players) {
+        if (this.visiblePlayers != null) {
+            return this.visiblePlayers.apply(src, players);
+        }
+
+        return players.stream().filter(x -> this.online.test(src, x)).collect(Collectors.toList());
+    }
+
+    @Override public void set(BiPredicate<CommandSource, User> isOnline,
+            BiFunction<CommandSource, User, Optional<Instant>> lastSeen,
+            BiFunction<CommandSource, Collection<Player>, List<Player>> visiblePlayers) {
         this.online = isOnline == null ? STANDARD_ONLINE : isOnline;
         this.lastPlayed = lastSeen == null ? STANDARD_LAST_PLAYED : lastSeen;
+        this.visiblePlayers = visiblePlayers;
     }
 
     @Override public void reset() {
@@ -6,7 +6,10 @@ package io.github.nucleuspowered.nucleus.services.impl.storage;
 
 import com.google.gson.JsonObject;
 import io.github.nucleuspowered.nucleus.guice.DataDirectory;
+import io.github.nucleuspowered.nucleus.modules.core.config.CoreConfig;
+import io.github.nucleuspowered.nucleus.modules.core.config.StorageConfig;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess.ConfigurationNodeDataTranslator;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess.IConfigurateBackedDataTranslator;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.GeneralDataObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IGeneralDataObject;
@@ -16,7 +19,10 @@ import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modula
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.WorldDataObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.standard.IKitDataObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.standard.KitDataObject;
+import io.github.nucleuspowered.nucleus.services.impl.storage.persistence.BinaryFileStorageRepositoryFactory;
 import io.github.nucleuspowered.nucleus.services.impl.storage.persistence.FlatFileStorageRepositoryFactory;
+import io.github.nucleuspowered.nucleus.services.impl.storage.persistence.H2StorageRepositoryFactory;
+import io.github.nucleuspowered.nucleus.services.impl.storage.persistence.JsonNodeStorageRepository;
 import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IWorldQueryObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.registry.IStorageRepositoryFactoryRegistryModule;
@@ -29,12 +35,14 @@ import io.github.nucleuspowered.nucleus.services.interfaces.IReloadableService;
 import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
 import io.github.nucleuspowered.storage.dataaccess.IDataTranslator;
 import io.github.nucleuspowered.storage.persistence.IStorageRepository;
+import io.github.nucleuspowered.storage.persistence.IStorageRepositoryFactory;
 import io.github.nucleuspowered.storage.services.IStorageService;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.ConfigurationOptions;
 import ninja.leaping.configurate.SimpleConfigurationNode;
 import org.slf4j.Logger;
 import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.scheduler.Task;
 
 import java.nio.file.Path;
 import java.util.UUID;
@@ -49,6 +57,11 @@ import javax.inject.Singleton;
 public final class StorageManager implements IStorageManager, IReloadableService.Reloadable {
 
     private final FlatFileStorageRepositoryFactory flatFileStorageRepositoryFactory;
+    private final H2StorageRepositoryFactory h2StorageRepositoryFactory;
+    private final BinaryFileStorageRepositoryFactory binaryFileStorageRepositoryFactory;
+    private final IStorageRepositoryFactoryRegistryModule storageRepositoryFactoryRegistryModule;
+    private final Logger logger;
+    private final PluginContainer pluginContainer;
     private final IConfigurateHelper configurateHelper;
     private final IStorageService.SingleCached<IGeneralDataObject> generalService;
     private final UserService userService;
@@ -63,7 +76,20 @@ public final class StorageManager implements IStorageManager, IReloadableService
             IDataVersioning dataVersioning,
             IReloadableService reloadableService) {
         this.flatFileStorageRepositoryFactory = new FlatFileStorageRepositoryFactory(dataDirectory, logger);
-        new IStorageRepositoryFactoryRegistryModule(this.flatFileStorageRepositoryFactory);
+        this.h2StorageRepositoryFactory =
+                new H2StorageRepositoryFactory(dataDirectory, logger, pluginContainer, this.flatFileStorageRepositoryFactory);
+        this.binaryFileStorageRepositoryFactory = new BinaryFileStorageRepositoryFactory(
+                dataDirectory,
+                logger,
+                () -> ConfigurationNode.root(configurateHelper.setOptions(ConfigurationOptions.defaults())),
+                this.flatFileStorageRepositoryFactory);
+        this.storageRepositoryFactoryRegistryModule = new IStorageRepositoryFactoryRegistryModule(
+                this.flatFileStorageRepositoryFactory,
+                this.h2StorageRepositoryFactory,
+                this.binaryFileStorageRepositoryFactory);
+        this.storageRepositoryFactory = this.flatFileStorageRepositoryFactory;
+        this.logger = logger;
+        this.pluginContainer = pluginContainer;
         this.configurateHelper = configurateHelper;
         this.userService = new UserService(this, pluginContainer, dataVersioning);
         this.worldService = new WorldService(this, pluginContainer, dataVersioning);
@@ -82,6 +108,17 @@ public final class StorageManager implements IStorageManager, IReloadableService
         reloadableService.registerReloadable(this);
     }
 
+    private IStorageRepositoryFactory<JsonObject> storageRepositoryFactory;
+
+    // If true, user and world data are stored by the binary factory, rather than as json.
+    private boolean useBinaryStorage = false;
+
+    @Nullable
+    private IStorageRepository.Keyed<UUID, IUserQueryObject, ConfigurationNode> userNodeRepository;
+
+    @Nullable
+    private IStorageRepository.Keyed<UUID, IWorldQueryObject, ConfigurationNode> worldNodeRepository;
+
     @Nullable
     private IStorageRepository.Keyed<UUID, IUserQueryObject, JsonObject> userRepository;
 
@@ -139,6 +176,9 @@ public final class StorageManager implements IStorageManager, IReloadableService
         }
     };
 
+    private final ConfigurationNodeDataTranslator<IUserDataObject> userNodeDataAccess = new ConfigurationNodeDataTranslator<>(this.userDataAccess);
+    private final ConfigurationNodeDataTranslator<IWorldDataObject> worldNodeDataAccess = new ConfigurationNodeDataTranslator<>(this.worldDataAccess);
+
     @Override
     public IStorageService.SingleCached<IGeneralDataObject> getGeneralService() {
         return this.generalService;
@@ -175,11 +215,56 @@ public final class StorageManager implements IStorageManager, IReloadableService
         return this.kitsDataAccess;
     }
 
+    public IDataTranslator<IUserDataObject, ConfigurationNode> getUserNodeDataAccess() {
+        return this.userNodeDataAccess;
+    }
+
+    public IDataTranslator<IWorldDataObject, ConfigurationNode> getWorldNodeDataAccess() {
+        return this.worldNodeDataAccess;
+    }
+
+    /**
+     * Gets the repository that the user service reads and writes {@link ConfigurationNode}s
+     * through, which either stores them directly or via the json repository.
+     *
+     * @return The repository
+     */
+    public IStorageRepository.Keyed<UUID, IUserQueryObject, ConfigurationNode> getUserNodeRepository() {
+        if (this.userNodeRepository == null) {
+            if (this.useBinaryStorage) {
+                this.userNodeRepository = this.binaryFileStorageRepositoryFactory.userRepository();
+            } else {
+                this.userNodeRepository = new JsonNodeStorageRepository<>(this::getUserRepository, this.userDataAccess::createNewNode);
+            }
+        }
+        return this.userNodeRepository;
+    }
+
+    /**
+     * Gets the repository that the world service reads and writes {@link ConfigurationNode}s
+     * through, which either stores them directly or via the json repository.
+     *
+     * @return The repository
+     */
+    public IStorageRepository.Keyed<UUID, IWorldQueryObject, ConfigurationNode> getWorldNodeRepository() {
+        if (this.worldNodeRepository == null) {
+            if (this.useBinaryStorage) {
+                this.worldNodeRepository = this.binaryFileStorageRepositoryFactory.worldRepository();
+            } else {
+                this.worldNodeRepository = new JsonNodeStorageRepository<>(this::getWorldRepository, this.worldDataAccess::createNewNode);
+            }
+        }
+        return this.worldNodeRepository;
+    }
+
     @Override
     public IStorageRepository.Keyed<UUID, IUserQueryObject, JsonObject> getUserRepository() {
         if (this.userRepository == null) {
-            // fallback to flat file
-            this.userRepository = this.flatFileStorageRepositoryFactory.userRepository();
+            this.userRepository = this.storageRepositoryFactory.userRepository();
+            if (this.userRepository == null) {
+                // fallback to flat file
+                this.userRepository = this.flatFileStorageRepositoryFactory.userRepository();
+            }
         }
         return this.userRepository;
     }
@@ -187,8 +272,11 @@ public final class StorageManager implements IStorageManager, IReloadableService
     @Override
     public IStorageRepository.Keyed<UUID, IWorldQueryObject, JsonObject> getWorldRepository() {
         if (this.worldRepository== null) {
-            // fallback to flat file
-            this.worldRepository = this.flatFileStorageRepositoryFactory.worldRepository();
+            this.worldRepository = this.storageRepositoryFactory.worldRepository();
+            if (this.worldRepository == null) {
+                // fallback to flat file
+                this.worldRepository = this.flatFileStorageRepositoryFactory.worldRepository();
+            }
         }
         return this.worldRepository;
     }
@@ -196,16 +284,22 @@ public final class StorageManager implements IStorageManager, IReloadableService
     @Override
     public IStorageRepository.Single<JsonObject> getGeneralRepository() {
         if (this.generalRepository == null) {
-            // fallback to flat file
-            this.generalRepository = this.flatFileStorageRepositoryFactory.generalRepository();
+            this.generalRepository = this.storageRepositoryFactory.generalRepository();
+            if (this.generalRepository == null) {
+                // fallback to flat file
+                this.generalRepository = this.flatFileStorageRepositoryFactory.generalRepository();
+            }
         }
         return this.generalRepository;
     }
 
     @Override public IStorageRepository.Single<JsonObject> getKitsRepository() {
         if (this.kitsRepository == null) {
-            // fallback to flat file
-            this.kitsRepository = this.flatFileStorageRepositoryFactory.kitsRepository();
+            this.kitsRepository = this.storageRepositoryFactory.kitsRepository();
+            if (this.kitsRepository == null) {
+                // fallback to flat file
+                this.kitsRepository = this.flatFileStorageRepositoryFactory.kitsRepository();
+            }
         }
         return this.kitsRepository;
     }
@@ -228,31 +322,78 @@ public final class StorageManager implements IStorageManager, IReloadableService
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void onReload(INucleusServiceCollection serviceCollection) {
-        // TODO: Data registry
+        final StorageConfig storageConfig = serviceCollection.moduleDataProvider().getModuleConfig(CoreConfig.class).getStorageConfig();
         if (this.generalRepository != null) {
             this.generalRepository.shutdown();
         }
 
-        this.generalRepository = null; // TODO: config
+        this.generalRepository = null;
 
         if (this.worldRepository != null) {
             this.worldRepository.shutdown();
         }
 
-        this.worldRepository = null; // TODO: config
+        this.worldRepository = null;
 
         if (this.userRepository != null) {
             this.userRepository.shutdown();
         }
 
-        this.userRepository = null; // TODO: config
+        this.userRepository = null;
 
         if (this.kitsRepository != null) {
             this.kitsRepository.shutdown();
         }
 
-        this.kitsRepository = null; // TODO: config
+        this.kitsRepository = null;
+
+        this.userNodeRepository = null;
+        this.worldNodeRepository = null;
+        this.flatFileStorageRepositoryFactory.setPrettyPrint(storageConfig.isPrettyPrintJson());
+
+        final IStorageRepositoryFactory<JsonObject> previousFactory = this.storageRepositoryFactory;
+        final IStorageRepositoryFactory<?> selectedFactory =
+                this.storageRepositoryFactoryRegistryModule.getById(storageConfig.getStorageEngine())
+                        .map(x -> (IStorageRepositoryFactory<?>) x)
+                        .orElseGet(() -> {
+                            this.logger.warn("Storage engine " + storageConfig.getStorageEngine() + " does not exist, using flat files.");
+                            return this.flatFileStorageRepositoryFactory;
+                        });
+
+        // The binary factory only stores user and world data, everything else stays in the flat files.
+        this.useBinaryStorage = selectedFactory == this.binaryFileStorageRepositoryFactory;
+        this.storageRepositoryFactory = this.useBinaryStorage ?
+                this.flatFileStorageRepositoryFactory : (IStorageRepositoryFactory<JsonObject>) selectedFactory;
+
+        if (this.storageRepositoryFactory == this.h2StorageRepositoryFactory && previousFactory != this.h2StorageRepositoryFactory) {
+            // Bring across anything that's only in the flat files.
+            Task.builder().async().execute(() -> {
+                try {
+                    int count = this.h2StorageRepositoryFactory.importFromFlatFile();
+                    if (count > 0) {
+                        this.logger.info("Imported " + count + " data file(s) into the H2 database.");
+                    }
+                } catch (Exception e) {
+                    this.logger.error("Could not import flat file data into the H2 database.", e);
+                }
+            }).submit(this.pluginContainer);
+        }
+
+        if (storageConfig.isWriteBehind()) {
+            this.userService.enableWriteBehind(
+                    storageConfig.getWriteBehindInterval(),
+                    storageConfig.getWriteBehindThreshold(),
+                    storageConfig.getWriteBehindBatchSize());
+            this.worldService.enableWriteBehind(
+                    storageConfig.getWriteBehindInterval(),
+                    storageConfig.getWriteBehindThreshold(),
+                    storageConfig.getWriteBehindBatchSize());
+        } else {
+            this.userService.disableWriteBehind();
+            this.worldService.disableWriteBehind();
+        }
     }
 
 }
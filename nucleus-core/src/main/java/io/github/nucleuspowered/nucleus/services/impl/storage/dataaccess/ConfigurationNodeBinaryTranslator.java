@@ -0,0 +1,240 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.ValueType;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes {@link ConfigurationNode}s in a compact binary format, without going through json.
+ *
+ * <p>A document is the magic bytes {@code NUCB}, a format version byte, and then the root value. Each
+ * value is a type tag followed by its payload. Maps and lists are prefixed by their size, and strings by
+ * their length in UTF-8 bytes, all as unsigned variable length integers.</p>
+ */
+public class ConfigurationNodeBinaryTranslator {
+
+    public static final ConfigurationNodeBinaryTranslator INSTANCE = new ConfigurationNodeBinaryTranslator();
+
+    private static final byte[] MAGIC = { 'N', 'U', 'C', 'B' };
+    private static final byte VERSION = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_MAP = 1;
+    private static final byte TYPE_LIST = 2;
+    private static final byte TYPE_STRING = 3;
+    private static final byte TYPE_INT = 4;
+    private static final byte TYPE_LONG = 5;
+    private static final byte TYPE_DOUBLE = 6;
+    private static final byte TYPE_FLOAT = 7;
+    private static final byte TYPE_TRUE = 8;
+    private static final byte TYPE_FALSE = 9;
+
+    private ConfigurationNodeBinaryTranslator() {}
+
+    public void write(ConfigurationNode node, OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        if (node.hasMapChildren()) {
+            writeNode(node, out);
+        } else {
+            // the root is always a map, even if empty.
+            out.writeByte(TYPE_MAP);
+            writeVarInt(0, out);
+        }
+
+        out.flush();
+    }
+
+    public ConfigurationNode read(ConfigurationNode nodeToPopulate, InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        for (byte b : MAGIC) {
+            if (in.readByte() != b) {
+                throw new IOException("Not a Nucleus binary data file");
+            }
+        }
+
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary data version " + version);
+        }
+
+        byte type = in.readByte();
+        if (type != TYPE_MAP) {
+            throw new IOException("The root of a binary data file must be a map");
+        }
+
+        readNode(type, nodeToPopulate, in);
+        return nodeToPopulate;
+    }
+
+    private void writeNode(ConfigurationNode node, DataOutput out) throws IOException {
+        if (node.getValueType() == ValueType.MAP) {
+            Map<Object, ? extends ConfigurationNode> children = node.getChildrenMap();
+            int size = 0;
+            for (ConfigurationNode child : children.values()) {
+                if (!child.isVirtual() && child.getValueType() != ValueType.NULL) {
+                    size++;
+                }
+            }
+
+            out.writeByte(TYPE_MAP);
+            writeVarInt(size, out);
+            for (Map.Entry<Object, ? extends ConfigurationNode> entry : children.entrySet()) {
+                ConfigurationNode child = entry.getValue();
+                if (!child.isVirtual() && child.getValueType() != ValueType.NULL) {
+                    writeString(String.valueOf(entry.getKey()), out);
+                    writeNode(child, out);
+                }
+            }
+        } else if (node.getValueType() == ValueType.LIST) {
+            List<? extends ConfigurationNode> children = node.getChildrenList();
+            out.writeByte(TYPE_LIST);
+            writeVarInt(children.size(), out);
+            for (ConfigurationNode child : children) {
+                writeNode(child, out);
+            }
+        } else if (node.getValueType() == ValueType.SCALAR) {
+            writeScalar(node.getValue(), out);
+        } else {
+            out.writeByte(TYPE_NULL);
+        }
+    }
+
+    private void writeScalar(Object value, DataOutput out) throws IOException {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TYPE_INT);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TYPE_TRUE : TYPE_FALSE);
+        } else {
+            out.writeByte(TYPE_STRING);
+            writeString(value.toString(), out);
+        }
+    }
+
+    private void readNode(byte type, ConfigurationNode node, DataInput in) throws IOException {
+        switch (type) {
+            case TYPE_MAP: {
+                int size = readVarInt(in);
+                if (size == 0) {
+                    // otherwise the node would have no value, and so would be dropped.
+                    node.setValue(Collections.emptyMap());
+                }
+
+                for (int i = 0; i < size; i++) {
+                    String key = readString(in);
+                    readNode(in.readByte(), node.getNode(key), in);
+                }
+
+                break;
+            }
+            case TYPE_LIST: {
+                int size = readVarInt(in);
+                if (size == 0) {
+                    node.setValue(Collections.emptyList());
+                }
+
+                for (int i = 0; i < size; i++) {
+                    byte childType = in.readByte();
+                    if (childType == TYPE_NULL) {
+                        // json lists skip nulls, so we do too.
+                        continue;
+                    }
+
+                    readNode(childType, node.getAppendedNode(), in);
+                }
+
+                break;
+            }
+            case TYPE_STRING:
+                node.setValue(readString(in));
+                break;
+            case TYPE_INT:
+                node.setValue(in.readInt());
+                break;
+            case TYPE_LONG:
+                node.setValue(in.readLong());
+                break;
+            case TYPE_DOUBLE:
+                node.setValue(in.readDouble());
+                break;
+            case TYPE_FLOAT:
+                node.setValue(in.readFloat());
+                break;
+            case TYPE_TRUE:
+                node.setValue(true);
+                break;
+            case TYPE_FALSE:
+                node.setValue(false);
+                break;
+            case TYPE_NULL:
+                break;
+            default:
+                throw new IOException("Unknown type " + type + " in binary data file");
+        }
+    }
+
+    private void writeString(String string, DataOutput out) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length, out);
+        out.write(bytes);
+    }
+
+    private String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeVarInt(int value, DataOutput out) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.writeByte(value);
+    }
+
+    private int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IOException("Variable length integer is too long");
+            }
+
+            b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+}
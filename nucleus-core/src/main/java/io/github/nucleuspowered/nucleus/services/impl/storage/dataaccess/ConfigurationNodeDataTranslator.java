@@ -0,0 +1,46 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess;
+
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.configurate.IConfigurateBackedDataObject;
+import io.github.nucleuspowered.storage.dataaccess.IDataTranslator;
+import ninja.leaping.configurate.ConfigurationNode;
+
+/**
+ * Translates between data objects and their backing {@link ConfigurationNode}s directly, for
+ * repositories that store nodes rather than json.
+ *
+ * @param <R> The type of data object
+ */
+public class ConfigurationNodeDataTranslator<R extends IConfigurateBackedDataObject> implements IDataTranslator<R, ConfigurationNode> {
+
+    private final IConfigurateBackedDataTranslator<R> translator;
+
+    public ConfigurationNodeDataTranslator(IConfigurateBackedDataTranslator<R> translator) {
+        this.translator = translator;
+    }
+
+    public ConfigurationNode createNewNode() {
+        return this.translator.createNewNode();
+    }
+
+    @Override
+    public R createNew() {
+        return this.translator.createNew();
+    }
+
+    @Override
+    public R fromDataAccessObject(ConfigurationNode object) {
+        R obj = this.translator.createNew();
+        obj.setBackingNode(object);
+        return obj;
+    }
+
+    @Override
+    public ConfigurationNode toDataAccessObject(R object) {
+        return object.getBackingNode();
+    }
+
+}
@@ -0,0 +1,268 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.storage.persistence;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonObject;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess.ConfigurationNodeBinaryTranslator;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess.ConfigurationNodeJsonTranslator;
+import io.github.nucleuspowered.storage.exceptions.DataDeleteException;
+import io.github.nucleuspowered.storage.exceptions.DataLoadException;
+import io.github.nucleuspowered.storage.exceptions.DataQueryException;
+import io.github.nucleuspowered.storage.exceptions.DataSaveException;
+import io.github.nucleuspowered.storage.persistence.IStorageRepository;
+import io.github.nucleuspowered.storage.queryobjects.IQueryObject;
+import io.github.nucleuspowered.storage.util.KeyedObject;
+import ninja.leaping.configurate.ConfigurationNode;
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Stores {@link ConfigurationNode}s in the compact binary format defined by
+ * {@link ConfigurationNodeBinaryTranslator}, one file per key.
+ *
+ * <p>If a key has no binary file, the json file from the flat file repository is read instead, and
+ * converted to a binary file, so existing data is migrated as it is used. The json file is removed
+ * once the binary file has been written.</p>
+ */
+class BinaryFileStorageRepository<Q extends IQueryObject<UUID, Q>> implements IStorageRepository.Keyed<UUID, Q, ConfigurationNode> {
+
+    static final String EXTENSION = ".nbin";
+
+    private final Logger logger;
+    private final Supplier<Path> basePath;
+    private final Function<UUID, Path> filenameResolver;
+    private final Supplier<ConfigurationNode> nodeSupplier;
+    private final IStorageRepository.Keyed<UUID, Q, JsonObject> legacy;
+
+    BinaryFileStorageRepository(
+            Logger logger,
+            Supplier<Path> basePath,
+            Function<UUID, Path> filenameResolver,
+            Supplier<ConfigurationNode> nodeSupplier,
+            IStorageRepository.Keyed<UUID, Q, JsonObject> legacy) {
+        this.logger = logger;
+        this.basePath = basePath;
+        this.filenameResolver = filenameResolver;
+        this.nodeSupplier = nodeSupplier;
+        this.legacy = legacy;
+    }
+
+    @Override
+    public void clearCache(Iterable<UUID> keys) {
+        // no-op
+    }
+
+    @Override
+    public boolean exists(Q query) {
+        return query.keys().size() == 1 && exists(query.keys().iterator().next());
+    }
+
+    @Override
+    public Optional<KeyedObject<UUID, ConfigurationNode>> get(Q query) throws DataLoadException, DataQueryException {
+        if (query.keys().size() != 1) {
+            throw new DataQueryException("There must only a key", query);
+        }
+
+        UUID key = query.keys().iterator().next();
+        return get(key).map(x -> new KeyedObject<>(key, x));
+    }
+
+    @Override
+    public int count(Q query) {
+        return exists(query) ? 1 : 0;
+    }
+
+    @Override
+    public void save(UUID key, ConfigurationNode object) throws DataSaveException {
+        Path file = this.filenameResolver.apply(key);
+        Path temp = null;
+        try {
+            Files.createDirectories(file.getParent());
+
+            // Each save gets its own temporary file, so two saves of the same key can't write to the same one.
+            temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                ConfigurationNodeBinaryTranslator.INSTANCE.write(object, outputStream);
+            }
+
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // ignored, we're already reporting a failure
+                }
+            }
+
+            this.logger.error("Could not save " + file.toString(), ex);
+            throw new DataSaveException("Could not save " + file.toString(), ex);
+        }
+    }
+
+    @Override
+    public void delete(UUID key) throws DataDeleteException {
+        Path filename = this.filenameResolver.apply(key);
+        try {
+            Files.deleteIfExists(filename);
+        } catch (IOException e) {
+            throw new DataDeleteException("Could not delete " + filename, e);
+        }
+
+        if (this.legacy.exists(key)) {
+            this.legacy.delete(key);
+        }
+    }
+
+    @Override
+    public boolean exists(UUID key) {
+        return Files.exists(this.filenameResolver.apply(key)) || this.legacy.exists(key);
+    }
+
+    @Override
+    public Optional<ConfigurationNode> get(UUID key) throws DataLoadException, DataQueryException {
+        Path path = this.filenameResolver.apply(key);
+        if (Files.exists(path)) {
+            try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(path))) {
+                return Optional.of(ConfigurationNodeBinaryTranslator.INSTANCE.read(this.nodeSupplier.get(), inputStream));
+            } catch (Exception e) {
+                throw new DataLoadException("Could not load file at " + path.toAbsolutePath().toString(), e);
+            }
+        }
+
+        // Migrate from json if we can.
+        Optional<JsonObject> json = this.legacy.get(key);
+        if (json.isPresent()) {
+            ConfigurationNode node = ConfigurationNodeJsonTranslator.INSTANCE.from(this.nodeSupplier.get(), json.get());
+            try {
+                save(key, node);
+            } catch (DataSaveException e) {
+                // We still have the json, so we can carry on.
+                this.logger.warn("Could not migrate " + key + " to the binary format", e);
+                return Optional.of(node);
+            }
+
+            try {
+                // The binary file is now the only copy that gets updated, so the json would go stale.
+                this.legacy.delete(key);
+            } catch (DataDeleteException e) {
+                this.logger.warn("Could not remove the json file for " + key + " after migrating it", e);
+            }
+
+            return Optional.of(node);
+        }
+
+        return Optional.empty();
+    }
+
+    @Override
+    public long getLastModified(UUID key) {
+        Path path = this.filenameResolver.apply(key);
+        try {
+            if (Files.exists(path)) {
+                return Files.getLastModifiedTime(path).toMillis();
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+
+        return this.legacy.getLastModified(key);
+    }
+
+    @Override
+    public Collection<UUID> getAllKeys() throws DataLoadException {
+        Set<UUID> keys = new HashSet<>(this.legacy.getAllKeys());
+        Path base = this.basePath.get();
+        if (Files.isDirectory(base)) {
+            try (DirectoryStream<Path> shards = Files.newDirectoryStream(base, x -> x.getFileName().toString().length() == 2)) {
+                for (Path shard : shards) {
+                    try (DirectoryStream<Path> files = Files.newDirectoryStream(shard, "*" + EXTENSION)) {
+                        for (Path file : files) {
+                            String name = file.getFileName().toString();
+                            try {
+                                keys.add(UUID.fromString(name.substring(0, name.length() - EXTENSION.length())));
+                            } catch (IllegalArgumentException e) {
+                                // ignored
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new DataLoadException("Could not walk the file tree", e);
+            }
+        }
+
+        return ImmutableSet.copyOf(keys);
+    }
+
+    @Override
+    public Map<UUID, ConfigurationNode> getAll(Q query) throws DataLoadException, DataQueryException {
+        ImmutableMap.Builder<UUID, ConfigurationNode> builder = ImmutableMap.builder();
+        for (UUID key : getAllKeys(query)) {
+            get(key).ifPresent(x -> builder.put(key, x));
+        }
+
+        return builder.build();
+    }
+
+    @Override
+    public Collection<UUID> getAllKeys(Q query) throws DataLoadException, DataQueryException {
+        if (!query.queries().isEmpty()) {
+            throw new DataQueryException("Only key based queries are supported", query);
+        }
+
+        if (!query.restrictedToKeys()) {
+            return getAllKeys();
+        }
+
+        ImmutableSet.Builder<UUID> builder = ImmutableSet.builder();
+        for (UUID key : query.keys()) {
+            if (exists(key)) {
+                builder.add(key);
+            }
+        }
+
+        return builder.build();
+    }
+
+    @Override
+    public void shutdown() {
+        // nothing to do
+    }
+
+    @Override
+    public void clearCache() {
+        // noop
+    }
+
+    @Override
+    public boolean hasCache() {
+        return false;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.storage.persistence;
+
+import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
+import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IWorldQueryObject;
+import io.github.nucleuspowered.storage.persistence.IStorageRepository;
+import io.github.nucleuspowered.storage.persistence.IStorageRepositoryFactory;
+import ninja.leaping.configurate.ConfigurationNode;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Stores user and world data in the compact binary format, migrating json files from the
+ * flat file store as they are loaded. General and kit data are not supported, and remain
+ * in the flat file store.
+ */
+public final class BinaryFileStorageRepositoryFactory implements IStorageRepositoryFactory<ConfigurationNode> {
+
+    private final Supplier<Path> dataPath;
+    private final Logger logger;
+    private final Supplier<ConfigurationNode> nodeSupplier;
+    private final FlatFileStorageRepositoryFactory flatFileStorageRepositoryFactory;
+
+    public BinaryFileStorageRepositoryFactory(Supplier<Path> dataPath,
+            Logger logger,
+            Supplier<ConfigurationNode> nodeSupplier,
+            FlatFileStorageRepositoryFactory flatFileStorageRepositoryFactory) {
+        this.dataPath = dataPath;
+        this.logger = logger;
+        this.nodeSupplier = nodeSupplier;
+        this.flatFileStorageRepositoryFactory = flatFileStorageRepositoryFactory;
+    }
+
+    @Override
+    public IStorageRepository.Keyed<UUID, IUserQueryObject, ConfigurationNode> userRepository() {
+        return new BinaryFileStorageRepository<>(
+                this.logger,
+                () -> this.dataPath.get().resolve(FlatFileStorageRepositoryFactory.USER_DATA_DIRECTORY),
+                uuid -> resolve(FlatFileStorageRepositoryFactory.USER_DATA_DIRECTORY, uuid),
+                this.nodeSupplier,
+                this.flatFileStorageRepositoryFactory.userRepository());
+    }
+
+    @Override
+    public IStorageRepository.Keyed<UUID, IWorldQueryObject, ConfigurationNode> worldRepository() {
+        return new BinaryFileStorageRepository<>(
+                this.logger,
+                () -> this.dataPath.get().resolve(FlatFileStorageRepositoryFactory.WORLD_DATA_DIRECTORY),
+                uuid -> resolve(FlatFileStorageRepositoryFactory.WORLD_DATA_DIRECTORY, uuid),
+                this.nodeSupplier,
+                this.flatFileStorageRepositoryFactory.worldRepository());
+    }
+
+    private Path resolve(String directory, UUID uuid) {
+        String id = uuid.toString();
+        return this.dataPath.get().resolve(directory).resolve(id.substring(0, 2)).resolve(id + BinaryFileStorageRepository.EXTENSION);
+    }
+
+    @Override
+    public IStorageRepository.@Nullable Single<ConfigurationNode> generalRepository() {
+        return null;
+    }
+
+    @Override
+    public IStorageRepository.@Nullable Single<ConfigurationNode> kitsRepository() {
+        return null;
+    }
+
+    @Override public String getId() {
+        return "nucleus:binary";
+    }
+
+    @Override public String getName() {
+        return "Binary Flat File";
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.storage.persistence;
+
+import io.github.nucleuspowered.nucleus.util.ThrownBiConsumer;
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+/**
+ * An append-only journal of flat file writes that are in progress, shared by all flat file
+ * repositories.
+ *
+ * <p>A file is replaced by writing its new contents to a temporary file next to it, and then moving
+ * the temporary file over it. Before the move, the paths of both files are appended to the journal,
+ * and once the move is done, a commit record is appended. If the server stops between the two, the
+ * newest temporary file for each file is moved into place when the journal is recovered. The journal
+ * only holds paths, so the contents of a file are only written once.</p>
+ *
+ * <p>Callers are expected to hold a lock on the file being replaced. The journal itself only locks
+ * while appending a record, which does not wait for the disk.</p>
+ */
+final class FlatFileJournal {
+
+    private static final byte RECORD_WRITE = 1;
+    private static final byte RECORD_COMMIT = 2;
+    private static final long TRUNCATE_THRESHOLD = 1024L * 1024;
+
+    private final Logger logger;
+    private final Supplier<Path> dataPath;
+    private final Supplier<Path> journalFile;
+    private final ThrownBiConsumer<Path, Path, IOException> mover;
+    private final AtomicLong nextId = new AtomicLong();
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    @Nullable private FileChannel channel;
+    @Nullable private volatile Path recoveredFile;
+    private int inFlight = 0;
+
+    /**
+     * Creates the journal.
+     *
+     * @param logger The logger
+     * @param dataPath The data directory, which paths in the journal are relative to
+     * @param journalFile The journal file
+     * @param mover Moves a temporary file over the file it replaces
+     */
+    FlatFileJournal(Logger logger, Supplier<Path> dataPath, Supplier<Path> journalFile,
+            ThrownBiConsumer<Path, Path, IOException> mover) {
+        this.logger = logger;
+        this.dataPath = dataPath;
+        this.journalFile = journalFile;
+        this.mover = mover;
+    }
+
+    /**
+     * Finishes any writes that were in progress when the server last stopped, and starts a new
+     * journal. This only does anything the first time it is called for a given journal file.
+     */
+    void recover() {
+        final Path file = this.journalFile.get();
+        if (file.equals(this.recoveredFile)) {
+            return;
+        }
+
+        this.appendLock.lock();
+        try {
+            if (file.equals(this.recoveredFile)) {
+                return;
+            }
+
+            if (this.channel != null) {
+                // The data directory has changed.
+                this.channel.close();
+                this.channel = null;
+            }
+
+            Files.createDirectories(file.getParent());
+            if (Files.exists(file) && Files.size(file) > 0) {
+                replay(file);
+            }
+
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            this.channel.truncate(0);
+            this.inFlight = 0;
+            this.recoveredFile = file;
+        } catch (IOException e) {
+            this.logger.error("Could not recover the storage journal", e);
+        } finally {
+            this.appendLock.unlock();
+        }
+    }
+
+    /**
+     * Records that the given file is about to be replaced by the given temporary file.
+     *
+     * @param file The file
+     * @param temp The temporary file holding the new contents
+     * @return The ID of the record, to pass to {@link #commit(long)}
+     * @throws IOException if the record could not be written
+     */
+    long begin(Path file, Path temp) throws IOException {
+        recover();
+        final Path dataDirectory = this.dataPath.get();
+        final byte[] path = dataDirectory.relativize(file).toString().getBytes(StandardCharsets.UTF_8);
+        final byte[] tempPath = dataDirectory.relativize(temp).toString().getBytes(StandardCharsets.UTF_8);
+        final long id = this.nextId.getAndIncrement();
+        final ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 4 + path.length + 4 + tempPath.length);
+        buffer.put(RECORD_WRITE).putLong(id).putInt(path.length).put(path).putInt(tempPath.length).put(tempPath);
+        buffer.flip();
+
+        this.appendLock.lock();
+        try {
+            append(buffer);
+            this.inFlight++;
+        } finally {
+            this.appendLock.unlock();
+        }
+
+        return id;
+    }
+
+    /**
+     * Records that the write with the given ID has completed.
+     *
+     * @param id The ID returned by {@link #begin(Path, Path)}
+     */
+    void commit(long id) {
+        final ByteBuffer buffer = ByteBuffer.allocate(1 + 8);
+        buffer.put(RECORD_COMMIT).putLong(id);
+        buffer.flip();
+
+        this.appendLock.lock();
+        try {
+            this.inFlight--;
+            append(buffer);
+            if (this.inFlight == 0 && this.channel != null && this.channel.size() > TRUNCATE_THRESHOLD) {
+                // If this is lost, the committed records are replayed, which does nothing.
+                this.channel.truncate(0);
+            }
+        } catch (IOException e) {
+            // The file itself was moved into place, so the temporary file no longer exists to be recovered.
+            this.logger.warn("Could not write to the storage journal", e);
+        } finally {
+            this.appendLock.unlock();
+        }
+    }
+
+    /**
+     * Records that the write with the given ID failed, the file was not replaced.
+     *
+     * @param id The ID returned by {@link #begin(Path, Path)}
+     */
+    void abort(long id) {
+        // The temporary file is removed by the caller, so there is nothing to replay.
+        this.appendLock.lock();
+        try {
+            this.inFlight--;
+        } finally {
+            this.appendLock.unlock();
+        }
+    }
+
+    private void append(ByteBuffer buffer) throws IOException {
+        if (this.channel == null) {
+            throw new IOException("The storage journal is not open");
+        }
+
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+    }
+
+    private void replay(Path file) throws IOException {
+        // For each file, the last write is the newest data. If that write was committed, there's nothing to do.
+        Map<String, Long> lastWriteIds = new HashMap<>();
+        Map<Long, String[]> pathsById = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte type = in.readByte();
+                long id = in.readLong();
+                if (type == RECORD_WRITE) {
+                    String path = readString(in);
+                    String temp = readString(in);
+                    Long previous = lastWriteIds.put(path, id);
+                    if (previous != null) {
+                        String[] superseded = pathsById.remove(previous);
+                        if (superseded != null) {
+                            deleteTemp(superseded[1]);
+                        }
+                    }
+
+                    pathsById.put(id, new String[] { path, temp });
+                } else if (type == RECORD_COMMIT) {
+                    pathsById.remove(id);
+                } else {
+                    this.logger.warn("The storage journal is corrupt, only part of it will be recovered.");
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            // End of the journal, possibly with a partial record which was never acted on.
+        }
+
+        final Path dataDirectory = this.dataPath.get();
+        for (String[] paths : pathsById.values()) {
+            Path temp = dataDirectory.resolve(paths[1]);
+            if (Files.exists(temp)) {
+                // The move never happened, so finish it.
+                Path target = dataDirectory.resolve(paths[0]);
+                this.logger.warn("Recovering " + target.toString() + " from the storage journal.");
+                this.mover.accept(temp, target);
+            }
+        }
+    }
+
+    private void deleteTemp(String temp) {
+        try {
+            Files.deleteIfExists(this.dataPath.get().resolve(temp));
+        } catch (IOException e) {
+            // ignored, it's just a stray file
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -4,12 +4,16 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.storage.persistence;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import io.github.nucleuspowered.nucleus.util.ThrownFunction;
 import io.github.nucleuspowered.storage.exceptions.DataDeleteException;
 import io.github.nucleuspowered.storage.exceptions.DataLoadException;
@@ -20,9 +24,12 @@ import io.github.nucleuspowered.storage.queryobjects.IQueryObject;
 import io.github.nucleuspowered.storage.util.KeyedObject;
 import org.slf4j.Logger;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -36,20 +43,32 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
 abstract class FlatFileStorageRepository implements IStorageRepository {
 
-    private final Logger logger;
+    private static final Gson PRETTY_GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Gson COMPACT_GSON = new GsonBuilder().create();
+
+    // Repositories may be created more than once for the same files, so the locks are shared.
+    private static final LoadingCache<Path, ReentrantLock> FILE_LOCKS =
+            Caffeine.newBuilder().expireAfterAccess(5, TimeUnit.MINUTES).build(key -> new ReentrantLock());
 
-    private static Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final Logger logger;
+    private final BooleanSupplier prettyPrint;
+    private final FlatFileJournal journal;
 
-    protected FlatFileStorageRepository(Logger logger) {
+    protected FlatFileStorageRepository(Logger logger, BooleanSupplier prettyPrint, FlatFileJournal journal) {
         this.logger = logger;
+        this.prettyPrint = prettyPrint;
+        this.journal = journal;
+        journal.recover();
     }
 
     Optional<JsonObject> get(@Nullable Path path) throws DataLoadException {
@@ -58,11 +77,9 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
                 if (Files.size(path) == 0) {
                     return Optional.empty(); // nothing in the file, don't do anything with it.
                 }
-                // Read the file.
-                try (BufferedReader reader = Files.newBufferedReader(path)) {
-                    return Optional.of(new JsonParser()
-                            .parse(reader.lines().collect(Collectors.joining()))
-                            .getAsJsonObject());
+                // Parse the file as it is read, rather than reading it into a string first.
+                try (JsonReader reader = new JsonReader(Files.newBufferedReader(path))) {
+                    return Optional.of(new JsonParser().parse(reader).getAsJsonObject());
                 }
             } catch (Exception e) {
                 throw new DataLoadException("Could not load file at " + path.toAbsolutePath().toString(), e);
@@ -72,22 +89,63 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
         return Optional.empty();
     }
 
-    synchronized void save(Path file, JsonObject object) throws DataSaveException {
+    void save(Path file, JsonObject object) throws DataSaveException {
+        // Only writes to the same file need to wait for each other.
+        ReentrantLock lock = FILE_LOCKS.get(file.toAbsolutePath());
+        lock.lock();
+        Path temp = null;
         try {
-            // Backup the file
-            if (Files.exists(file)) {
-                Files.copy(file, file.resolveSibling(file.getFileName() + ".bak"), StandardCopyOption.REPLACE_EXISTING);
+            // Write the new file next to the old one, so that the old file is intact until the new one is complete.
+            Files.createDirectories(file.getParent());
+            temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Gson gson = this.prettyPrint.getAsBoolean() ? PRETTY_GSON : COMPACT_GSON;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                JsonWriter jsonWriter = gson.newJsonWriter(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.name())));
+                gson.toJson(object, jsonWriter);
+                jsonWriter.flush();
+
+                // The temporary file must be on disk before the journal can point at it.
+                channel.force(false);
             }
 
-            // Write the new file
-            Files.createDirectories(file.getParent());
-            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-                writer.write(gson.toJson(object));
+            long id = this.journal.begin(file, temp);
+            try {
+                move(temp, file);
+            } catch (IOException e) {
+                this.journal.abort(id);
+                throw e;
             }
+
+            this.journal.commit(id);
         } catch (Exception ex) {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // ignored, we're already reporting a failure
+                }
+            }
+
             this.logger.error("Could not save " + file.toString());
             ex.printStackTrace();
             throw new DataSaveException("Could not save " + file.toString(), ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves a temporary file over the file it replaces, atomically if the file system allows it.
+     *
+     * @param temp The temporary file
+     * @param file The file to replace
+     * @throws IOException if the file could not be moved
+     */
+    static void move(Path temp, Path file) throws IOException {
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
@@ -108,8 +166,8 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
 
         private final Supplier<Path> FILENAME_RESOLVER;
 
-        Single(Logger logger, Supplier<Path> filename_resolver) {
-            super(logger);
+        Single(Logger logger, BooleanSupplier prettyPrint, FlatFileJournal journal, Supplier<Path> filename_resolver) {
+            super(logger, prettyPrint, journal);
             this.FILENAME_RESOLVER = filename_resolver;
         }
 
@@ -139,10 +197,12 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
 
         UUIDKeyed(
                 Logger logger,
+                BooleanSupplier prettyPrint,
+                FlatFileJournal journal,
                 ThrownFunction<Q, Path, DataQueryException> filename_resolver,
                 Function<UUID, Path> uuid_filename_resolver,
                 Supplier<Path> basePath) {
-            super(logger);
+            super(logger, prettyPrint, journal);
             this.FILENAME_RESOLVER = filename_resolver;
             this.UUID_FILENAME_RESOLVER = uuid_filename_resolver;
             this.BASE_PATH = basePath;
@@ -185,6 +245,20 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
             return get(existsInternal(uuid));
         }
 
+        @Override
+        public long getLastModified(UUID uuid) {
+            Path path = existsInternal(uuid);
+            if (path != null) {
+                try {
+                    return Files.getLastModifiedTime(path).toMillis();
+                } catch (IOException e) {
+                    // fall through
+                }
+            }
+
+            return -1;
+        }
+
         @Override
         public Collection<UUID> getAllKeys() throws DataLoadException {
             return ImmutableSet.copyOf(getAllKeysInternal());
@@ -210,9 +284,14 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
         }
 
         private Set<UUID> getAllKeysInternal() throws DataLoadException {
-            UUIDFileWalker u = new UUIDFileWalker();
+            Path basePath = BASE_PATH.get();
+            if (!Files.isDirectory(basePath)) {
+                return new HashSet<>();
+            }
+
+            UUIDFileWalker u = new UUIDFileWalker(basePath);
             try {
-                Files.walkFileTree(BASE_PATH.get(), u);
+                Files.walkFileTree(basePath, u);
                 return u.uuidSet;
             } catch (IOException e) {
                 throw new DataLoadException("Could not walk the file tree", e);
@@ -265,10 +344,15 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
         private static class UUIDFileWalker extends SimpleFileVisitor<Path> {
 
             private final Set<UUID> uuidSet = new HashSet<>();
+            private final Path basePath;
+
+            private UUIDFileWalker(Path basePath) {
+                this.basePath = basePath;
+            }
 
             @Override
             public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                if (dir.getFileName().toString().length() == 2) {
+                if (dir.equals(this.basePath) || dir.getFileName().toString().length() == 2) {
                     return super.preVisitDirectory(dir, attrs);
                 }
 
@@ -280,9 +364,9 @@ abstract class FlatFileStorageRepository implements IStorageRepository {
             @Override
             public FileVisitResult visitFile(Path file, BasicFileAttributes attr) {
                 if (attr.isRegularFile()) {
-                    if (file.endsWith(".json")) {
-                        String f = file.getFileName().toString();
-                        if (f.length() == 41 && f.startsWith(file.getParent().toString().toLowerCase())) {
+                    String f = file.getFileName().toString();
+                    if (f.endsWith(".json")) {
+                        if (f.length() == 41 && f.startsWith(file.getParent().getFileName().toString().toLowerCase())) {
                             try {
                                 this.uuidSet.add(UUID.fromString(f.substring(0, 36)));
                             } catch (Exception e) {
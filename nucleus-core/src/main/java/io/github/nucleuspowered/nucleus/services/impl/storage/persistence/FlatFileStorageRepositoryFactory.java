@@ -25,17 +25,34 @@ import javax.inject.Singleton;
 @Singleton
 public final class FlatFileStorageRepositoryFactory implements IStorageRepositoryFactory<JsonObject> {
 
-    private static final String WORLD_DATA_DIRECTORY = "worlddata";
-    private static final String USER_DATA_DIRECTORY = "userdata";
+    static final String WORLD_DATA_DIRECTORY = "worlddata";
+    static final String USER_DATA_DIRECTORY = "userdata";
     private static final String GENERAL_FILE = "general.json";
     private static final String KITS_FILE = "kits.json";
+    private static final String JOURNAL_FILE = "flatfile.journal";
     private final Supplier<Path> dataPath;
     private final Logger logger;
+    private final FlatFileJournal journal;
+    private volatile boolean prettyPrint = true;
 
     @Inject
     public FlatFileStorageRepositoryFactory(@DataDirectory Supplier<Path> path, Logger logger) {
         this.dataPath = path;
         this.logger = logger;
+        this.journal = new FlatFileJournal(logger, path, () -> path.get().resolve(JOURNAL_FILE), FlatFileStorageRepository::move);
+    }
+
+    private boolean isPrettyPrint() {
+        return this.prettyPrint;
+    }
+
+    /**
+     * Sets whether json files should be written with indentation and line breaks.
+     *
+     * @param prettyPrint Whether to pretty print files
+     */
+    public void setPrettyPrint(boolean prettyPrint) {
+        this.prettyPrint = prettyPrint;
     }
 
     @Override
@@ -49,7 +66,7 @@ public final class FlatFileStorageRepositoryFactory implements IStorageRepositor
     }
 
     private <R extends IQueryObject<UUID, R>> IStorageRepository.Keyed<UUID, R, JsonObject> repository(final String p) {
-        return new FlatFileStorageRepository.UUIDKeyed<>(this.logger, query -> {
+        return new FlatFileStorageRepository.UUIDKeyed<>(this.logger, this::isPrettyPrint, this.journal, query -> {
             if (query.keys().size() == 1) {
                 Collection<UUID> uuids = query.keys();
                 String uuid = uuids.iterator().next().toString();
@@ -64,12 +81,12 @@ public final class FlatFileStorageRepositoryFactory implements IStorageRepositor
 
     @Override
     public IStorageRepository.Single<JsonObject> generalRepository() {
-        return new FlatFileStorageRepository.Single(this.logger, () -> this.dataPath.get().resolve(GENERAL_FILE));
+        return new FlatFileStorageRepository.Single(this.logger, this::isPrettyPrint, this.journal, () -> this.dataPath.get().resolve(GENERAL_FILE));
     }
 
     @Override
     public IStorageRepository.Single<JsonObject> kitsRepository() {
-        return new FlatFileStorageRepository.Single(this.logger, () -> this.dataPath.get().resolve(KITS_FILE));
+        return new FlatFileStorageRepository.Single(this.logger, this::isPrettyPrint, this.journal, () -> this.dataPath.get().resolve(KITS_FILE));
     }
 
     @Override public String getId() {
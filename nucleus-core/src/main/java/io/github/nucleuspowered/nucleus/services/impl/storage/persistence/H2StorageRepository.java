@@ -0,0 +1,546 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.storage.persistence;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.github.nucleuspowered.storage.exceptions.DataDeleteException;
+import io.github.nucleuspowered.storage.exceptions.DataLoadException;
+import io.github.nucleuspowered.storage.exceptions.DataQueryException;
+import io.github.nucleuspowered.storage.exceptions.DataSaveException;
+import io.github.nucleuspowered.storage.persistence.IStorageRepository;
+import io.github.nucleuspowered.storage.queryobjects.IQueryObject;
+import io.github.nucleuspowered.storage.util.KeyedObject;
+import io.github.nucleuspowered.storage.util.ThrownSupplier;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+
+/**
+ * Stores data objects as compact json documents in an embedded H2 database, one row per object.
+ */
+abstract class H2StorageRepository implements IStorageRepository {
+
+    // H2 has a limit on the number of parameters in a statement, so we chunk large key sets.
+    private static final int MAX_KEYS_PER_STATEMENT = 500;
+
+    // Holds markers that need to outlive a restart, such as whether the flat file import has been done.
+    private static final String METADATA_TABLE = "nucleus_metadata";
+
+    private static final Gson gson = new Gson();
+
+    final Logger logger;
+    private final ThrownSupplier<DataSource, SQLException> dataSource;
+    final String table;
+    private boolean tableCreated = false;
+
+    protected H2StorageRepository(Logger logger, ThrownSupplier<DataSource, SQLException> dataSource, String table) {
+        this.logger = logger;
+        this.dataSource = dataSource;
+        this.table = table;
+    }
+
+    Connection getConnection() throws SQLException {
+        Connection connection = this.dataSource.get().getConnection();
+        if (!this.tableCreated) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS " + this.table + " (id VARCHAR(64) PRIMARY KEY, data CLOB NOT NULL)");
+                statement.execute("CREATE TABLE IF NOT EXISTS " + METADATA_TABLE + " (id VARCHAR(128) PRIMARY KEY)");
+            }
+            this.tableCreated = true;
+        }
+
+        return connection;
+    }
+
+    Optional<JsonObject> get(String key) throws DataLoadException {
+        try (Connection connection = getConnection();
+                PreparedStatement statement = connection.prepareStatement("SELECT data FROM " + this.table + " WHERE id = ?")) {
+            statement.setString(1, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return Optional.of(read(resultSet));
+                }
+            }
+
+            return Optional.empty();
+        } catch (Exception e) {
+            throw new DataLoadException("Could not load " + key + " from " + this.table, e);
+        }
+    }
+
+    boolean exists(String key) {
+        try (Connection connection = getConnection();
+                PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM " + this.table + " WHERE id = ?")) {
+            statement.setString(1, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        } catch (SQLException e) {
+            this.logger.error("Could not query " + this.table, e);
+            return false;
+        }
+    }
+
+    void save(Map<String, JsonObject> objects, boolean overwrite) throws DataSaveException {
+        if (objects.isEmpty()) {
+            return;
+        }
+
+        String sql = overwrite
+                ? "MERGE INTO " + this.table + " (id, data) KEY (id) VALUES (?, ?)"
+                : "INSERT INTO " + this.table + " (id, data) SELECT ?, ? FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM " + this.table + " WHERE id = ?)";
+        try (Connection connection = getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (Map.Entry<String, JsonObject> entry : objects.entrySet()) {
+                    statement.setString(1, entry.getKey());
+                    statement.setString(2, gson.toJson(entry.getValue()));
+                    if (!overwrite) {
+                        statement.setString(3, entry.getKey());
+                    }
+                    statement.addBatch();
+                }
+
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (Exception ex) {
+            this.logger.error("Could not save " + objects.size() + " object(s) to " + this.table, ex);
+            throw new DataSaveException("Could not save to " + this.table, ex);
+        }
+    }
+
+    void delete(String key) throws DataDeleteException {
+        try (Connection connection = getConnection();
+                PreparedStatement statement = connection.prepareStatement("DELETE FROM " + this.table + " WHERE id = ?")) {
+            statement.setString(1, key);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataDeleteException("Could not delete " + key + " from " + this.table, e);
+        }
+    }
+
+    boolean hasMarker(String marker) throws SQLException {
+        try (Connection connection = getConnection();
+                PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM " + METADATA_TABLE + " WHERE id = ?")) {
+            statement.setString(1, this.table + "." + marker);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
+    void setMarker(String marker) throws SQLException {
+        try (Connection connection = getConnection();
+                PreparedStatement statement = connection.prepareStatement("MERGE INTO " + METADATA_TABLE + " (id) KEY (id) VALUES (?)")) {
+            statement.setString(1, this.table + "." + marker);
+            statement.executeUpdate();
+        }
+    }
+
+    private static JsonObject read(ResultSet resultSet) throws SQLException {
+        try (Reader reader = resultSet.getCharacterStream(1)) {
+            return new JsonParser().parse(reader).getAsJsonObject();
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        // the factory owns the data source
+    }
+
+    @Override public void clearCache() {
+        // noop
+    }
+
+    @Override public boolean hasCache() {
+        return false;
+    }
+
+    static class Single extends H2StorageRepository implements IStorageRepository.Single<JsonObject> {
+
+        private final String key;
+        @Nullable private final IStorageRepository.Single<JsonObject> fallback;
+
+        Single(Logger logger,
+                ThrownSupplier<DataSource, SQLException> dataSource,
+                String table,
+                String key,
+                @Nullable IStorageRepository.Single<JsonObject> fallback) {
+            super(logger, dataSource, table);
+            this.key = key;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public Optional<JsonObject> get() throws DataLoadException, DataQueryException {
+            Optional<JsonObject> result = get(this.key);
+            if (!result.isPresent() && this.fallback != null) {
+                result = this.fallback.get();
+                if (result.isPresent()) {
+                    try {
+                        save(Collections.singletonMap(this.key, result.get()), false);
+                    } catch (DataSaveException e) {
+                        throw new DataLoadException("Could not import " + this.key + " into " + this.table, e);
+                    }
+                }
+            }
+
+            return result;
+        }
+
+        @Override
+        public void save(JsonObject object) throws DataSaveException {
+            save(Collections.singletonMap(this.key, object), true);
+        }
+
+    }
+
+    static class UUIDKeyed<Q extends IQueryObject<UUID, Q>>
+            extends H2StorageRepository
+            implements Keyed<UUID, Q, JsonObject> {
+
+        private static final String IMPORTED_MARKER = "imported";
+
+        // Objects that haven't been imported yet are read from here, until the import is complete.
+        @Nullable private final Keyed<UUID, Q, JsonObject> fallback;
+        private volatile boolean imported = false;
+        private volatile boolean importedChecked = false;
+
+        UUIDKeyed(Logger logger,
+                ThrownSupplier<DataSource, SQLException> dataSource,
+                String table,
+                @Nullable Keyed<UUID, Q, JsonObject> fallback) {
+            super(logger, dataSource, table);
+            this.fallback = fallback;
+        }
+
+        @Override
+        public void clearCache(Iterable<UUID> keys) {
+            // no-op
+        }
+
+        @Override
+        public boolean exists(Q query) {
+            try {
+                return count(query) > 0;
+            } catch (DataLoadException | DataQueryException e) {
+                this.logger.error("Could not query " + this.table, e);
+                return false;
+            }
+        }
+
+        @Override
+        public Optional<KeyedObject<UUID, JsonObject>> get(Q query) throws DataLoadException, DataQueryException {
+            if (query.keys().size() != 1) {
+                throw new DataQueryException("There must only a key", query);
+            }
+
+            UUID key = query.keys().iterator().next();
+            return get(key).map(x -> new KeyedObject<>(key, x));
+        }
+
+        @Override
+        public boolean exists(UUID uuid) {
+            return exists(uuid.toString()) || (useFallback() && this.fallback.exists(uuid));
+        }
+
+        @Override
+        public Optional<JsonObject> get(UUID uuid) throws DataLoadException {
+            Optional<JsonObject> result = get(uuid.toString());
+            if (!result.isPresent() && useFallback()) {
+                try {
+                    result = this.fallback.get(uuid);
+                } catch (DataQueryException e) {
+                    throw new DataLoadException("Could not load " + uuid + " from the fallback store", e);
+                }
+
+                if (result.isPresent()) {
+                    try {
+                        save(Collections.singletonMap(uuid.toString(), result.get()), false);
+                    } catch (DataSaveException e) {
+                        throw new DataLoadException("Could not import " + uuid + " into " + this.table, e);
+                    }
+                }
+            }
+
+            return result;
+        }
+
+        // While the import is running, objects may only be in the fallback repository, so the bulk reads below
+        // merge in what is there. Anything in this repository is newer, so it wins.
+        @Override
+        public Collection<UUID> getAllKeys() throws DataLoadException {
+            if (!useFallback()) {
+                return getAllKeysFromTable();
+            }
+
+            return ImmutableSet.<UUID>builder().addAll(getAllKeysFromTable()).addAll(this.fallback.getAllKeys()).build();
+        }
+
+        @Override
+        public Map<UUID, JsonObject> getAll(Q query) throws DataLoadException, DataQueryException {
+            final Map<UUID, JsonObject> result = getAllFromTable(query);
+            if (!useFallback()) {
+                return result;
+            }
+
+            final Map<UUID, JsonObject> merged = new HashMap<>(this.fallback.getAll(query));
+            merged.putAll(result);
+            return ImmutableMap.copyOf(merged);
+        }
+
+        @Override
+        public Collection<UUID> getAllKeys(Q query) throws DataLoadException, DataQueryException {
+            if (!useFallback()) {
+                return getAllKeysFromTable(query);
+            }
+
+            return ImmutableSet.<UUID>builder().addAll(getAllKeysFromTable(query)).addAll(this.fallback.getAllKeys(query)).build();
+        }
+
+        @Override
+        public int count(Q query) throws DataLoadException, DataQueryException {
+            if (!useFallback()) {
+                return countInTable(query);
+            }
+
+            // Objects may be in both, so count the distinct keys.
+            return getAllKeys(query).size();
+        }
+
+        private Collection<UUID> getAllKeysFromTable() throws DataLoadException {
+            try (Connection connection = getConnection();
+                    Statement statement = connection.createStatement();
+                    ResultSet resultSet = statement.executeQuery("SELECT id FROM " + this.table)) {
+                ImmutableSet.Builder<UUID> builder = ImmutableSet.builder();
+                while (resultSet.next()) {
+                    builder.add(UUID.fromString(resultSet.getString(1)));
+                }
+
+                return builder.build();
+            } catch (SQLException e) {
+                throw new DataLoadException("Could not get keys from " + this.table, e);
+            }
+        }
+
+        private Map<UUID, JsonObject> getAllFromTable(Q query) throws DataLoadException, DataQueryException {
+            checkQuery(query);
+            try (Connection connection = getConnection()) {
+                if (!query.restrictedToKeys()) {
+                    try (Statement statement = connection.createStatement();
+                            ResultSet resultSet = statement.executeQuery("SELECT id, data FROM " + this.table)) {
+                        return readAll(resultSet);
+                    }
+                }
+
+                ImmutableMap.Builder<UUID, JsonObject> builder = ImmutableMap.builder();
+                for (List<UUID> keys : Iterables.partition(query.keys(), MAX_KEYS_PER_STATEMENT)) {
+                    try (PreparedStatement statement = prepareInStatement(connection, "SELECT id, data FROM ", keys);
+                            ResultSet resultSet = statement.executeQuery()) {
+                        builder.putAll(readAll(resultSet));
+                    }
+                }
+
+                return builder.build();
+            } catch (SQLException e) {
+                throw new DataLoadException("Could not load objects from " + this.table, e);
+            }
+        }
+
+        private Collection<UUID> getAllKeysFromTable(Q query) throws DataLoadException, DataQueryException {
+            checkQuery(query);
+            if (!query.restrictedToKeys()) {
+                return getAllKeysFromTable();
+            }
+
+            try (Connection connection = getConnection()) {
+                ImmutableSet.Builder<UUID> builder = ImmutableSet.builder();
+                for (List<UUID> keys : Iterables.partition(query.keys(), MAX_KEYS_PER_STATEMENT)) {
+                    try (PreparedStatement statement = prepareInStatement(connection, "SELECT id FROM ", keys);
+                            ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            builder.add(UUID.fromString(resultSet.getString(1)));
+                        }
+                    }
+                }
+
+                return builder.build();
+            } catch (SQLException e) {
+                throw new DataLoadException("Could not get keys from " + this.table, e);
+            }
+        }
+
+        private int countInTable(Q query) throws DataLoadException, DataQueryException {
+            checkQuery(query);
+            try (Connection connection = getConnection()) {
+                if (!query.restrictedToKeys()) {
+                    try (Statement statement = connection.createStatement();
+                            ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + this.table)) {
+                        return resultSet.next() ? resultSet.getInt(1) : 0;
+                    }
+                }
+
+                int count = 0;
+                for (List<UUID> keys : Iterables.partition(query.keys(), MAX_KEYS_PER_STATEMENT)) {
+                    try (PreparedStatement statement = prepareInStatement(connection, "SELECT COUNT(*) FROM ", keys);
+                            ResultSet resultSet = statement.executeQuery()) {
+                        if (resultSet.next()) {
+                            count += resultSet.getInt(1);
+                        }
+                    }
+                }
+
+                return count;
+            } catch (SQLException e) {
+                throw new DataLoadException("Could not count objects in " + this.table, e);
+            }
+        }
+
+        @Override
+        public void save(UUID key, JsonObject object) throws DataSaveException {
+            save(Collections.singletonMap(key.toString(), object), true);
+        }
+
+        @Override
+        public void saveAll(Map<UUID, JsonObject> objects) throws DataSaveException {
+            Map<String, JsonObject> toSave = new HashMap<>();
+            objects.forEach((key, value) -> toSave.put(key.toString(), value));
+            save(toSave, true);
+        }
+
+        @Override
+        public void delete(UUID key) throws DataDeleteException {
+            delete(key.toString());
+
+            // The flat file copy is removed too, so that it is not read or imported again.
+            if (this.fallback != null && this.fallback.exists(key)) {
+                this.fallback.delete(key);
+            }
+        }
+
+        /**
+         * Copies any objects in the fallback repository that are not in this one. Objects
+         * that are already in this repository are never overwritten.
+         *
+         * <p>Once this has completed, a marker is stored in the database, so that the import
+         * only ever happens once.</p>
+         *
+         * @return The number of objects imported
+         */
+        int importMissing() throws DataLoadException, DataSaveException {
+            if (!useFallback()) {
+                return 0;
+            }
+
+            Set<UUID> existing = ImmutableSet.copyOf(getAllKeysFromTable());
+            int count = 0;
+            for (List<UUID> keys : Iterables.partition(
+                    this.fallback.getAllKeys().stream().filter(x -> !existing.contains(x)).collect(Collectors.toList()),
+                    MAX_KEYS_PER_STATEMENT)) {
+                Map<String, JsonObject> toSave = new HashMap<>();
+                for (UUID key : keys) {
+                    try {
+                        this.fallback.get(key).ifPresent(x -> toSave.put(key.toString(), x));
+                    } catch (DataLoadException | DataQueryException e) {
+                        this.logger.error("Could not import " + key + " into " + this.table, e);
+                    }
+                }
+
+                save(toSave, false);
+                count += toSave.size();
+            }
+
+            try {
+                setMarker(IMPORTED_MARKER);
+            } catch (SQLException e) {
+                throw new DataSaveException("Could not mark " + this.table + " as imported", e);
+            }
+
+            this.imported = true;
+            return count;
+        }
+
+        private boolean useFallback() {
+            if (this.fallback == null) {
+                return false;
+            }
+
+            if (!this.importedChecked) {
+                try {
+                    this.imported = this.imported || hasMarker(IMPORTED_MARKER);
+                    this.importedChecked = true;
+                } catch (SQLException e) {
+                    this.logger.error("Could not check whether " + this.table + " has been imported", e);
+                }
+            }
+
+            return !this.imported;
+        }
+
+        private void checkQuery(Q query) throws DataQueryException {
+            if (!query.queries().isEmpty()) {
+                throw new DataQueryException("Only key based queries are supported", query);
+            }
+        }
+
+        private PreparedStatement prepareInStatement(Connection connection, String select, List<UUID> keys) throws SQLException {
+            String parameters = keys.stream().map(x -> "?").collect(Collectors.joining(", "));
+            PreparedStatement statement = connection.prepareStatement(select + this.table + " WHERE id IN (" + parameters + ")");
+            int i = 1;
+            for (UUID key : keys) {
+                statement.setString(i++, key.toString());
+            }
+
+            return statement;
+        }
+
+        private static Map<UUID, JsonObject> readAll(ResultSet resultSet) throws SQLException {
+            ImmutableMap.Builder<UUID, JsonObject> builder = ImmutableMap.builder();
+            while (resultSet.next()) {
+                try (Reader reader = resultSet.getCharacterStream(2)) {
+                    builder.put(UUID.fromString(resultSet.getString(1)), new JsonParser().parse(reader).getAsJsonObject());
+                } catch (IOException e) {
+                    throw new SQLException(e);
+                }
+            }
+
+            return builder.build();
+        }
+
+    }
+
+}
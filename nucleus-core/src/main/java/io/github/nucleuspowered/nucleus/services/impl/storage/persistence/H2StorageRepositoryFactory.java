@@ -0,0 +1,130 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.storage.persistence;
+
+import com.google.gson.JsonObject;
+import io.github.nucleuspowered.nucleus.guice.DataDirectory;
+import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
+import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IWorldQueryObject;
+import io.github.nucleuspowered.storage.exceptions.DataLoadException;
+import io.github.nucleuspowered.storage.exceptions.DataSaveException;
+import io.github.nucleuspowered.storage.persistence.IStorageRepository;
+import io.github.nucleuspowered.storage.persistence.IStorageRepositoryFactory;
+import org.slf4j.Logger;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.service.sql.SqlService;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.sql.DataSource;
+
+/**
+ * Stores user, world, general and kit data in a single embedded H2 database file, using the
+ * {@link SqlService} that Sponge provides.
+ */
+@Singleton
+public final class H2StorageRepositoryFactory implements IStorageRepositoryFactory<JsonObject> {
+
+    private static final String DATABASE_FILE = "nucleus-data";
+    private static final String USER_DATA_TABLE = "nucleus_userdata";
+    private static final String WORLD_DATA_TABLE = "nucleus_worlddata";
+    private static final String SINGLE_DATA_TABLE = "nucleus_singledata";
+    private static final String GENERAL_KEY = "general";
+    private static final String KITS_KEY = "kits";
+
+    private final Supplier<Path> dataPath;
+    private final Logger logger;
+    private final PluginContainer pluginContainer;
+    private final FlatFileStorageRepositoryFactory flatFileStorageRepositoryFactory;
+    @Nullable private DataSource dataSource;
+    @Nullable private H2StorageRepository.UUIDKeyed<IUserQueryObject> userRepository;
+    @Nullable private H2StorageRepository.UUIDKeyed<IWorldQueryObject> worldRepository;
+
+    @Inject
+    public H2StorageRepositoryFactory(@DataDirectory Supplier<Path> path,
+            Logger logger,
+            PluginContainer pluginContainer,
+            FlatFileStorageRepositoryFactory flatFileStorageRepositoryFactory) {
+        this.dataPath = path;
+        this.logger = logger;
+        this.pluginContainer = pluginContainer;
+        this.flatFileStorageRepositoryFactory = flatFileStorageRepositoryFactory;
+    }
+
+    private synchronized DataSource getDataSource() throws SQLException {
+        if (this.dataSource == null) {
+            String jdbcUrl = "jdbc:h2:" + this.dataPath.get().resolve(DATABASE_FILE).toAbsolutePath().toString();
+            this.dataSource = Sponge.getServiceManager().provideUnchecked(SqlService.class).getDataSource(this.pluginContainer, jdbcUrl);
+        }
+
+        return this.dataSource;
+    }
+
+    @Override
+    public IStorageRepository.Keyed<UUID, IUserQueryObject, JsonObject> userRepository() {
+        return getUserRepository();
+    }
+
+    @Override
+    public IStorageRepository.Keyed<UUID, IWorldQueryObject, JsonObject> worldRepository() {
+        return getWorldRepository();
+    }
+
+    @Override
+    public IStorageRepository.Single<JsonObject> generalRepository() {
+        return new H2StorageRepository.Single(this.logger, this::getDataSource, SINGLE_DATA_TABLE, GENERAL_KEY,
+                this.flatFileStorageRepositoryFactory.generalRepository());
+    }
+
+    @Override
+    public IStorageRepository.Single<JsonObject> kitsRepository() {
+        return new H2StorageRepository.Single(this.logger, this::getDataSource, SINGLE_DATA_TABLE, KITS_KEY,
+                this.flatFileStorageRepositoryFactory.kitsRepository());
+    }
+
+    private synchronized H2StorageRepository.UUIDKeyed<IUserQueryObject> getUserRepository() {
+        if (this.userRepository == null) {
+            this.userRepository = new H2StorageRepository.UUIDKeyed<>(this.logger, this::getDataSource, USER_DATA_TABLE,
+                    this.flatFileStorageRepositoryFactory.userRepository());
+        }
+
+        return this.userRepository;
+    }
+
+    private synchronized H2StorageRepository.UUIDKeyed<IWorldQueryObject> getWorldRepository() {
+        if (this.worldRepository == null) {
+            this.worldRepository = new H2StorageRepository.UUIDKeyed<>(this.logger, this::getDataSource, WORLD_DATA_TABLE,
+                    this.flatFileStorageRepositoryFactory.worldRepository());
+        }
+
+        return this.worldRepository;
+    }
+
+    /**
+     * Copies any user and world data that exists in the flat file store, but not in the database,
+     * into the database. Until this completes, data that is not in the database is read from the
+     * flat files as required.
+     *
+     * @return The number of objects imported
+     */
+    public int importFromFlatFile() throws DataLoadException, DataSaveException {
+        return getUserRepository().importMissing() + getWorldRepository().importMissing();
+    }
+
+    @Override public String getId() {
+        return "nucleus:h2";
+    }
+
+    @Override public String getName() {
+        return "H2 Database";
+    }
+}
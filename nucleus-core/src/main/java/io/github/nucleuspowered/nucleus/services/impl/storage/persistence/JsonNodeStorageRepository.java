@@ -0,0 +1,135 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.storage.persistence;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonObject;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess.ConfigurationNodeJsonTranslator;
+import io.github.nucleuspowered.storage.exceptions.DataDeleteException;
+import io.github.nucleuspowered.storage.exceptions.DataLoadException;
+import io.github.nucleuspowered.storage.exceptions.DataQueryException;
+import io.github.nucleuspowered.storage.exceptions.DataSaveException;
+import io.github.nucleuspowered.storage.persistence.IStorageRepository;
+import io.github.nucleuspowered.storage.queryobjects.IQueryObject;
+import io.github.nucleuspowered.storage.util.KeyedObject;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.objectmapping.ObjectMappingException;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Exposes a json based {@link IStorageRepository.Keyed} as one that stores {@link ConfigurationNode}s.
+ *
+ * @param <Q> The query object type
+ */
+public final class JsonNodeStorageRepository<Q extends IQueryObject<UUID, Q>> implements IStorageRepository.Keyed<UUID, Q, ConfigurationNode> {
+
+    private final Supplier<? extends IStorageRepository.Keyed<UUID, Q, JsonObject>> repository;
+    private final Supplier<ConfigurationNode> nodeSupplier;
+
+    public JsonNodeStorageRepository(Supplier<? extends IStorageRepository.Keyed<UUID, Q, JsonObject>> repository,
+            Supplier<ConfigurationNode> nodeSupplier) {
+        this.repository = repository;
+        this.nodeSupplier = nodeSupplier;
+    }
+
+    private ConfigurationNode toNode(JsonObject object) {
+        return ConfigurationNodeJsonTranslator.INSTANCE.from(this.nodeSupplier.get(), object);
+    }
+
+    @Override
+    public void clearCache(Iterable<UUID> keys) {
+        this.repository.get().clearCache(keys);
+    }
+
+    @Override
+    public boolean supportsNonKeyQueries() {
+        return this.repository.get().supportsNonKeyQueries();
+    }
+
+    @Override
+    public boolean exists(Q query) {
+        return this.repository.get().exists(query);
+    }
+
+    @Override
+    public Optional<KeyedObject<UUID, ConfigurationNode>> get(Q query) throws DataLoadException, DataQueryException {
+        return this.repository.get().get(query).map(x -> x.mapValue(this::toNode));
+    }
+
+    @Override
+    public int count(Q query) throws DataLoadException, DataQueryException {
+        return this.repository.get().count(query);
+    }
+
+    @Override
+    public void save(UUID key, ConfigurationNode object) throws ObjectMappingException, DataSaveException {
+        this.repository.get().save(key, ConfigurationNodeJsonTranslator.INSTANCE.jsonFrom(object));
+    }
+
+    @Override
+    public void saveAll(Map<UUID, ConfigurationNode> objects) throws ObjectMappingException, DataSaveException {
+        Map<UUID, JsonObject> toSave = new HashMap<>();
+        objects.forEach((key, value) -> toSave.put(key, ConfigurationNodeJsonTranslator.INSTANCE.jsonFrom(value)));
+        this.repository.get().saveAll(toSave);
+    }
+
+    @Override
+    public void delete(UUID key) throws DataDeleteException {
+        this.repository.get().delete(key);
+    }
+
+    @Override
+    public boolean exists(UUID key) {
+        return this.repository.get().exists(key);
+    }
+
+    @Override
+    public Optional<ConfigurationNode> get(UUID key) throws DataLoadException, DataQueryException {
+        return this.repository.get().get(key).map(this::toNode);
+    }
+
+    @Override
+    public long getLastModified(UUID key) {
+        return this.repository.get().getLastModified(key);
+    }
+
+    @Override
+    public Collection<UUID> getAllKeys() throws DataLoadException {
+        return this.repository.get().getAllKeys();
+    }
+
+    @Override
+    public Map<UUID, ConfigurationNode> getAll(Q query) throws DataLoadException, DataQueryException {
+        ImmutableMap.Builder<UUID, ConfigurationNode> builder = ImmutableMap.builder();
+        this.repository.get().getAll(query).forEach((key, value) -> builder.put(key, toNode(value)));
+        return builder.build();
+    }
+
+    @Override
+    public Collection<UUID> getAllKeys(Q query) throws DataLoadException, DataQueryException {
+        return this.repository.get().getAllKeys(query);
+    }
+
+    @Override
+    public void shutdown() {
+        // the underlying repository is shut down by its owner
+    }
+
+    @Override
+    public void clearCache() {
+        this.repository.get().clearCache();
+    }
+
+    @Override
+    public boolean hasCache() {
+        return this.repository.get().hasCache();
+    }
+}
@@ -4,17 +4,19 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.storage.registry;
 
+import com.google.common.collect.ImmutableList;
 import io.github.nucleuspowered.nucleus.scaffold.registry.NucleusRegistryModule;
-import io.github.nucleuspowered.nucleus.services.impl.storage.persistence.FlatFileStorageRepositoryFactory;
 import io.github.nucleuspowered.storage.persistence.IStorageRepositoryFactory;
 
+import java.util.List;
+
 import javax.inject.Singleton;
 
 @Singleton
 public class IStorageRepositoryFactoryRegistryModule extends NucleusRegistryModule<IStorageRepositoryFactory> {
 
     private static IStorageRepositoryFactoryRegistryModule INSTANCE;
-    private final FlatFileStorageRepositoryFactory defaultFactory;
+    private final List<IStorageRepositoryFactory<?>> defaultFactories;
 
     public static IStorageRepositoryFactoryRegistryModule getInstance() {
         if (INSTANCE == null) {
@@ -23,11 +25,11 @@ public class IStorageRepositoryFactoryRegistryModule extends NucleusRegistryModu
         return INSTANCE;
     }
 
-    public IStorageRepositoryFactoryRegistryModule(FlatFileStorageRepositoryFactory factory) {
+    public IStorageRepositoryFactoryRegistryModule(IStorageRepositoryFactory<?>... factories) {
         if (INSTANCE != null) {
             throw new IllegalStateException("Singleton already exists");
         }
-        this.defaultFactory = factory;
+        this.defaultFactories = ImmutableList.copyOf(factories);
         INSTANCE = this;
     }
 
@@ -38,6 +40,6 @@ public class IStorageRepositoryFactoryRegistryModule extends NucleusRegistryModu
 
     @Override
     public void registerModuleDefaults() {
-        this.registerAdditionalCatalog(this.defaultFactory);
+        this.defaultFactories.forEach(this::registerAdditionalCatalog);
     }
 }
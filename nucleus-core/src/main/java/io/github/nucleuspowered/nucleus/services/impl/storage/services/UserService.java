@@ -4,16 +4,41 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.storage.services;
 
+import io.github.nucleuspowered.nucleus.services.impl.storage.StorageManager;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
 import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
 import io.github.nucleuspowered.nucleus.services.interfaces.IDataVersioning;
-import io.github.nucleuspowered.nucleus.services.interfaces.IStorageManager;
+import io.github.nucleuspowered.storage.dataobjects.keyed.DataKey;
 import io.github.nucleuspowered.storage.services.AbstractKeyedService;
+import io.github.nucleuspowered.storage.services.IStorageService;
 import org.spongepowered.api.plugin.PluginContainer;
 
-public class UserService extends AbstractKeyedService<IUserQueryObject, IUserDataObject> {
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
-    public UserService(IStorageManager repository, PluginContainer pluginContainer, IDataVersioning dataVersioning) {
-        super(repository::getUserDataAccess, repository::getUserRepository, dataVersioning::migrate, dataVersioning::setVersion, pluginContainer);
+public class UserService extends AbstractKeyedService<IUserQueryObject, IUserDataObject>
+        implements IStorageService.Keyed.Prefetching<UUID, IUserQueryObject, IUserDataObject> {
+
+    private final Set<DataKey<?, ? extends IUserDataObject>> prefetchKeys = ConcurrentHashMap.newKeySet();
+
+    public UserService(StorageManager repository, PluginContainer pluginContainer, IDataVersioning dataVersioning) {
+        super(repository::getUserNodeDataAccess, repository::getUserNodeRepository, dataVersioning::migrate, dataVersioning::setVersion, pluginContainer);
+    }
+
+    @Override
+    public void registerPrefetchKey(DataKey<?, ? extends IUserDataObject> dataKey) {
+        this.prefetchKeys.add(dataKey);
+    }
+
+    @Override
+    public IUserDataObject prefetchOnThread(UUID uuid) {
+        final IUserDataObject dataObject = getOrNewOnThread(uuid);
+        for (DataKey<?, ? extends IUserDataObject> dataKey : this.prefetchKeys) {
+            dataObject.getNullable(dataKey);
+        }
+
+        pin(uuid, dataObject);
+        return dataObject;
     }
 }
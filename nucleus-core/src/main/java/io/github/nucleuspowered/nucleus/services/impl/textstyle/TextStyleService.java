@@ -38,6 +38,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -56,6 +57,12 @@ public class TextStyleService implements ITextStyleService, IReloadableService.R
 
     private final static TextFormat EMPTY = new TextFormatImpl(TextColors.NONE, TextStyles.NONE);
 
+    // The formatting codes, the index of each is its bit in a mask.
+    private final static String CODES = "0123456789abcdefklmnor";
+
+    private final Map<String, TextColor> colourFromStringCache = new ConcurrentHashMap<>();
+    private final Map<String, TextStyle> styleFromStringCache = new ConcurrentHashMap<>();
+
     private final Logger logger;
     private final IPermissionService permissionService;
     private final IMessageProviderService messageProviderService;
@@ -210,20 +217,39 @@ public class TextStyleService implements ITextStyleService, IReloadableService.R
     }
 
     private String stripPermissionless(List<String> permissionPrefixColour, String permissionPrefixStyle, Subject source, final String oldMessage) {
-        String message = oldMessage;
-        if (message.contains("&")) {
-            // Find the next
-            String p = getRegexForPermissionless(source, permissionPrefixColour, permissionPrefixStyle);
-            if (p != null) {
-                int oldlength;
-                do {
-                    oldlength = message.length();
-                    message = message.replaceAll(p, "");
-                } while (oldlength != message.length());
+        if (oldMessage.indexOf('&') == -1) {
+            return oldMessage;
+        }
+
+        return strip(oldMessage, getDisallowedMask(source, permissionPrefixColour, permissionPrefixStyle));
+    }
+
+    /**
+     * Removes the formatting codes in the mask from the message.
+     *
+     * @param oldMessage The message
+     * @param disallowed The mask of codes to remove
+     * @return The message without the codes
+     */
+    static String strip(final String oldMessage, long disallowed) {
+        if (disallowed == 0) {
+            return oldMessage;
+        }
+
+        // Removing a code can create another one from the characters either side of it ("&&aa"), so
+        // codes are checked as the output is built up, rather than against the input.
+        StringBuilder builder = new StringBuilder(oldMessage.length());
+        for (int i = 0; i < oldMessage.length(); i++) {
+            char c = oldMessage.charAt(i);
+            int length = builder.length();
+            if (length > 0 && builder.charAt(length - 1) == '&' && isInMask(disallowed, c)) {
+                builder.setLength(length - 1);
+            } else {
+                builder.append(c);
             }
         }
 
-        return message;
+        return builder.length() == oldMessage.length() ? oldMessage : builder.toString();
     }
 
     @Override public Collection<String> wouldStrip(Collection<String> permissionPrefixColour, String permissionPrefixStyle, Subject source,
@@ -235,50 +261,85 @@ public class TextStyleService implements ITextStyleService, IReloadableService.R
             String permissionPrefixStyle,
             Subject source,
             final String oldMessage) {
-        if (oldMessage.contains("&")) {
-            // Find the next
-            final String p = getRegexForPermissionless(source, permissionPrefixColour, permissionPrefixStyle);
-            if (p != null) {
-                // Scan the message for any of these tokens.
-                final Pattern pattern = Pattern.compile(p);
-                if (pattern.matcher(oldMessage).find()) {
-                    ImmutableList.Builder<String> name = ImmutableList.builder();
-                    // We don't support these.
-                    for (char a : p.toCharArray()) {
-                        if (a == '&' || a == '[' || a == ']') {
-                            continue;
-                        }
-                        TextColor textColor = this.idToColour.get(a);
-                        if (textColor != null) {
-                            name.add(textColor.getName());
-                        } else {
-                            //noinspection ConstantConditions
-                            name.add(this.styleToPerms.get(this.idToStyle.get(a)));
-                        }
+        if (oldMessage.indexOf('&') != -1) {
+            final long disallowed = getDisallowedMask(source, permissionPrefixColour, permissionPrefixStyle);
+            if (disallowed != 0 && containsCodeInMask(oldMessage, disallowed)) {
+                ImmutableList.Builder<String> name = ImmutableList.builder();
+                // We don't support these.
+                for (int i = 0; i < CODES.length(); i++) {
+                    if ((disallowed & (1L << i)) == 0) {
+                        continue;
                     }
 
-                    return name.build();
+                    char a = CODES.charAt(i);
+                    TextColor textColor = this.idToColour.get(a);
+                    if (textColor != null) {
+                        name.add(textColor.getName());
+                    } else {
+                        //noinspection ConstantConditions
+                        name.add(this.styleToPerms.get(this.idToStyle.get(a)));
+                    }
                 }
+
+                return name.build();
             }
         }
 
         return Collections.emptyList();
     }
 
-    private static void addStylePermIf(boolean condition, String prefix, String suffix, ImmutableList.Builder<String> builder) {
-        if (condition) {
-            builder.add(prefix + suffix);
+    private static boolean containsCodeInMask(String message, long mask) {
+        for (int i = message.indexOf('&'); i != -1 && i < message.length() - 1; i = message.indexOf('&', i + 1)) {
+            if (isInMask(mask, message.charAt(i + 1))) {
+                return true;
+            }
         }
+
+        return false;
     }
 
-    @Nullable
-    private String getRegexForPermissionless(Subject subject, List<String> permissionPrefixColour, String stylePrefix) {
-        String keys = getKeys(subject, permissionPrefixColour, stylePrefix);
+    private static boolean isInMask(long mask, char code) {
+        int index = CODES.indexOf(code);
+        return index != -1 && (mask & (1L << index)) != 0;
+    }
+
+    /**
+     * Gets a mask of the formatting codes that the subject cannot use, with the bit for each code
+     * being its index in {@link #CODES}.
+     *
+     * <p>The mask is cached alongside the subject's permissions.</p>
+     *
+     * @param subject The subject
+     * @param permissionPrefixColour The colour permission prefixes
+     * @param stylePrefix The style permission prefix
+     * @return The mask
+     */
+    private long getDisallowedMask(Subject subject, List<String> permissionPrefixColour, String stylePrefix) {
+        return this.permissionService.getDerivedValue(
+                subject,
+                "textstyle|" + String.join(",", permissionPrefixColour) + "|" + stylePrefix,
+                x -> toMask(getKeys(x, permissionPrefixColour, stylePrefix)));
+    }
+
+    // Package private for benchmarks.
+    static long toMask(@Nullable String keys) {
+        long mask = 0;
         if (keys != null) {
-            return "&[" + keys + "]";
+            for (int i = 0; i < keys.length(); i++) {
+                int index = CODES.indexOf(keys.charAt(i));
+                if (index != -1) {
+                    mask |= 1L << index;
+                }
+            }
         }
 
-        return null;
+        return mask;
+    }
+
+    private static void addStylePermIf(boolean condition, String prefix, String suffix, ImmutableList.Builder<String> builder) {
+        if (condition) {
+            builder.add(prefix + suffix);
+        }
     }
 
     @Nullable
@@ -369,7 +430,8 @@ public class TextStyleService implements ITextStyleService, IReloadableService.R
         if (s.length() == 1) {
             return this.idToColour.getOrDefault(s.charAt(0), TextColors.NONE);
         } else {
-            return Sponge.getRegistry().getType(TextColor.class, s.toUpperCase()).orElse(TextColors.NONE);
+            return this.colourFromStringCache.computeIfAbsent(s,
+                    string -> Sponge.getRegistry().getType(TextColor.class, string.toUpperCase()).orElse(TextColors.NONE));
         }
     }
 
@@ -379,16 +441,18 @@ public class TextStyleService implements ITextStyleService, IReloadableService.R
             return TextStyles.NONE;
         }
 
-        TextStyle ts = TextStyles.NONE;
-        for (String split : s.split("\\s*,\\s*")) {
-            if (split.length() == 1) {
-                ts = ts.and(this.idToStyle.getOrDefault(split.charAt(0), TextStyles.NONE));
-            } else {
-                ts = ts.and(this.styleToPerms.inverse().getOrDefault(split.toLowerCase(), TextStyles.NONE));
+        return this.styleFromStringCache.computeIfAbsent(s, string -> {
+            TextStyle ts = TextStyles.NONE;
+            for (String split : string.split("\\s*,\\s*")) {
+                if (split.length() == 1) {
+                    ts = ts.and(this.idToStyle.getOrDefault(split.charAt(0), TextStyles.NONE));
+                } else {
+                    ts = ts.and(this.styleToPerms.inverse().getOrDefault(split.toLowerCase(), TextStyles.NONE));
+                }
             }
-        }
 
-        return ts;
+            return ts;
+        });
     }
 
     @Override public Text addUrls(String message) {
@@ -400,6 +464,11 @@ public class TextStyleService implements ITextStyleService, IReloadableService.R
             return Text.EMPTY;
         }
 
+        // Every URL has a dot in it, most chat messages don't.
+        if (message.indexOf('.') == -1) {
+            return TextSerializers.FORMATTING_CODE.deserialize(message);
+        }
+
         Matcher m = URL_PARSER.matcher(message);
         if (!m.find()) {
             return TextSerializers.FORMATTING_CODE.deserialize(message);
@@ -410,7 +479,7 @@ public class TextStyleService implements ITextStyleService, IReloadableService.R
         ITextStyleService.TextFormat st = EMPTY;
         do {
             // We found a URL. We split on the URL that we have.
-            String[] textArray = remaining.split(URL_PARSER.pattern(), 2);
+            String[] textArray = URL_PARSER.split(remaining, 2);
             Text first = Text.builder().color(st.colour()).style(st.style())
                     .append(TextSerializers.FORMATTING_CODE.deserialize(textArray[0])).build();
 
@@ -450,7 +519,7 @@ public class TextStyleService implements ITextStyleService, IReloadableService.R
             }
             String url = m.group("url");
             if (url.endsWith("&r")) {
-                String url2 = url.replaceAll("&r$", "");
+                String url2 = url.substring(0, url.length() - 2);
                 texts.add(getTextForUrl(url2, url2, whiteSpace, st, m.group("options")));
             } else {
                 texts.add(getTextForUrl(url, url, whiteSpace, st, m.group("options")));
@@ -538,6 +607,7 @@ public class TextStyleService implements ITextStyleService, IReloadableService.R
 
     @Override public void onReload(INucleusServiceCollection serviceCollection) {
         String commandNameOnClick = serviceCollection.moduleDataProvider().getModuleConfig(CoreConfig.class).getCommandOnNameClick();
+        this.colourFromStringCache.clear();
     }
 
     public static class TextFormatImpl implements TextFormat {
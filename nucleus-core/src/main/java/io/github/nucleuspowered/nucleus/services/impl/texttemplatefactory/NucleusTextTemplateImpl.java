@@ -5,12 +5,14 @@
 package io.github.nucleuspowered.nucleus.services.impl.texttemplatefactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.reflect.TypeToken;
 import io.github.nucleuspowered.nucleus.api.text.NucleusTextTemplate;
 import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.impl.placeholder.CompiledPlaceholder;
 import io.github.nucleuspowered.nucleus.services.interfaces.IMessageProviderService;
 import io.github.nucleuspowered.nucleus.services.interfaces.ITextStyleService;
 import io.github.nucleuspowered.nucleus.util.JsonConfigurateStringHelper;
@@ -53,6 +55,7 @@ public abstract class NucleusTextTemplateImpl implements NucleusTextTemplate {
     private final String representation;
     private final TextTemplate textTemplate;
     private final Map<String, Function<CommandSource, Text>> tokenMap = Maps.newHashMap();
+    @Nullable private volatile List<TokenOp> compiledTokens;
     final INucleusServiceCollection serviceCollection;
 
     private final Pattern enhancedUrlParser =
@@ -126,25 +129,21 @@ public abstract class NucleusTextTemplateImpl implements NucleusTextTemplate {
     public Text getForCommandSource(CommandSource source,
             @Nullable Map<String, Function<CommandSource, Optional<Text>>> tokensArray) {
 
-        Map<String, TextTemplate.Arg> tokens = this.textTemplate.getArguments();
         Map<String, TextRepresentable> finalArgs = Maps.newHashMap();
-
-        tokens.forEach((k, v) -> {
-            String key = k.toLowerCase();
-
+        for (TokenOp op : getCompiledTokens()) {
             TextRepresentable t;
-            if (this.tokenMap.containsKey(key)) {
-                t = this.tokenMap.get(key).apply(source);
-            } else if (tokensArray != null && tokensArray.containsKey(key)) {
-                t = tokensArray.get(key).apply(source).orElse(null);
+            if (op.local != null) {
+                t = op.local.apply(source);
+            } else if (tokensArray != null && tokensArray.containsKey(op.key)) {
+                t = tokensArray.get(op.key).apply(source).orElse(null);
             } else {
-                t = this.serviceCollection.placeholderService().parse(source, key);
+                t = op.placeholder.render(source);
             }
 
             if (t != null) {
-                finalArgs.put(k, t);
+                finalArgs.put(op.argument, t);
             }
-        });
+        }
 
         Text.Builder builder = Text.builder();
         ITextStyleService.TextFormat st = null;
@@ -175,6 +174,33 @@ public abstract class NucleusTextTemplateImpl implements NucleusTextTemplate {
         return this.textTemplate.toText();
     }
 
+    /**
+     * Gets how each token in the template is resolved, working it out on first use. This is not
+     * done on construction as templates are created from config before all placeholders are
+     * registered.
+     *
+     * @return The token operations
+     */
+    private List<TokenOp> getCompiledTokens() {
+        List<TokenOp> ops = this.compiledTokens;
+        if (ops == null) {
+            ImmutableList.Builder<TokenOp> builder = ImmutableList.builder();
+            for (String argument : this.textTemplate.getArguments().keySet()) {
+                String key = argument.toLowerCase();
+                builder.add(new TokenOp(
+                        argument,
+                        key,
+                        this.tokenMap.get(key),
+                        this.serviceCollection.placeholderService().compile(key)));
+            }
+
+            ops = builder.build();
+            this.compiledTokens = ops;
+        }
+
+        return ops;
+    }
+
     Tuples.NullableTuple<List<TextRepresentable>, Map<String, Function<CommandSource, Text>>> createTextTemplateFragmentWithLinks(String message) {
         Preconditions.checkNotNull(message, "message");
         if (message.isEmpty()) {
@@ -193,7 +219,7 @@ public abstract class NucleusTextTemplateImpl implements NucleusTextTemplate {
         ITextStyleService.TextFormat st = ITextStyleService.EMPTY;
         do {
             // We found a URL. We split on the URL that we have.
-            String[] textArray = remaining.split(this.enhancedUrlParser.pattern(), 2);
+            String[] textArray = this.enhancedUrlParser.split(remaining, 2);
             TextRepresentable first = Text.builder().color(st.colour()).style(st.style())
                     .append(textStyleService.oldLegacy(textArray[0])).build();
 
@@ -332,6 +358,25 @@ public abstract class NucleusTextTemplateImpl implements NucleusTextTemplate {
         }
     }
 
+    /**
+     * How a token in the template is resolved. Tokens that are local to the template take priority,
+     * then tokens supplied at render time, then placeholders.
+     */
+    private static final class TokenOp {
+
+        private final String argument;
+        private final String key;
+        @Nullable private final Function<CommandSource, Text> local;
+        private final CompiledPlaceholder placeholder;
+
+        private TokenOp(String argument, String key, @Nullable Function<CommandSource, Text> local, CompiledPlaceholder placeholder) {
+            this.argument = argument;
+            this.key = key;
+            this.local = local;
+            this.placeholder = placeholder;
+        }
+    }
+
     /**
      * Creates a {@link TextTemplate} from an Ampersand encoded string.
      */
@@ -417,7 +462,7 @@ public abstract class NucleusTextTemplateImpl implements NucleusTextTemplate {
                         texts.push(style.textOf());
                     }
 
-                    createTextTemplateFragmentWithLinks(s.get(i + 1)).mapIfPresent(texts::addAll, tokens::putAll);
+                    tt.mapIfPresent(texts::addAll, tokens::putAll);
                 }
             }
 
@@ -4,7 +4,8 @@
  */
 package io.github.nucleuspowered.nucleus.services.impl.usercache;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.reflect.TypeToken;
 import io.github.nucleuspowered.nucleus.configurate.datatypes.UserCacheDataNode;
 import io.github.nucleuspowered.nucleus.configurate.datatypes.UserCacheVersionNode;
@@ -19,18 +20,30 @@ import io.github.nucleuspowered.storage.services.IStorageService;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.gson.GsonConfigurationLoader;
 import ninja.leaping.configurate.objectmapping.ObjectMappingException;
+import org.slf4j.Logger;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.service.user.UserStorageService;
 import org.spongepowered.api.util.Identifiable;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -38,18 +51,32 @@ import javax.inject.Singleton;
 public class UserCacheService implements IUserCacheService, IReloadableService.DataLocationReloadable {
 
     private static final int expectedVersion = new UserCacheVersionNode().getVersion();
+    private static final int REBUILD_CHUNK_SIZE = 500;
+    private static final int REBUILD_PARALLELISM = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final long REBUILD_SAVE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
     private boolean isWalking = false;
 
     private final Supplier<Path> dataDirectory;
+    private final Logger logger;
     private final Object lockingObject = new Object();
     private final IStorageManager storageManager;
+    private final Executor asyncExecutor;
+
+    // Secondary indexes, kept in step with the data by put and remove.
+    private final Object indexLock = new Object();
+    private final Map<String, Set<UUID>> ipIndex = new ConcurrentHashMap<>();
+    private final Map<String, Set<UUID>> jailIndex = new ConcurrentHashMap<>();
+    private final Set<UUID> jailedIndex = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> mutedIndex = ConcurrentHashMap.newKeySet();
 
     private UserCacheVersionNode data;
 
     @Inject
     public UserCacheService(INucleusServiceCollection serviceCollection) {
         this.dataDirectory = serviceCollection.dataDir();
+        this.logger = serviceCollection.logger();
         this.storageManager = serviceCollection.storageManager();
+        this.asyncExecutor = Sponge.getScheduler().createAsyncExecutor(serviceCollection.pluginContainer());
         serviceCollection.reloadableService().registerDataFileReloadable(this);
         load();
     }
@@ -63,13 +90,21 @@ public class UserCacheService implements IUserCacheService, IReloadableService.D
             e.printStackTrace();
             this.data = new UserCacheVersionNode();
         }
+
+        rebuildIndexes();
     }
 
     @Override public void save() {
+        // Entries may be added while we save, so save a copy.
+        final UserCacheVersionNode snapshot;
+        synchronized (this.indexLock) {
+            snapshot = this.data.copy();
+        }
+
         try {
             GsonConfigurationLoader gsonConfigurationLoader = configurationLoader();
             ConfigurationNode node = gsonConfigurationLoader.createEmptyNode();
-            node.setValue(TypeToken.of(UserCacheVersionNode.class), this.data);
+            node.setValue(TypeToken.of(UserCacheVersionNode.class), snapshot);
             gsonConfigurationLoader.save(node);
         } catch (ObjectMappingException | IOException e) {
             e.printStackTrace();
@@ -78,49 +113,106 @@ public class UserCacheService implements IUserCacheService, IReloadableService.D
     }
 
     @Override public List<UUID> getForIp(String ip) {
-        updateCacheForOnlinePlayers();
-        String ipToCheck = ip.replace("/", "");
-        return this.data.getNode().entrySet().stream().filter(x -> x.getValue()
-                .getIpAddress().map(y -> y.equals(ipToCheck)).orElse(false))
-                .map(Map.Entry::getKey).collect(Collectors.toList());
+        return copyOf(this.ipIndex.get(ip.replace("/", "")));
     }
 
     @Override public List<UUID> getJailed() {
-        updateCacheForOnlinePlayers();
-        return this.data.getNode().entrySet().stream().filter(x -> x.getValue().isJailed())
-                .map(Map.Entry::getKey).collect(Collectors.toList());
+        return ImmutableList.copyOf(this.jailedIndex);
     }
 
     @Override public List<UUID> getJailedIn(String name) {
-        updateCacheForOnlinePlayers();
-        return this.data.getNode().entrySet().stream()
-                .filter(x -> x.getValue().getJailName().map(y -> y.equalsIgnoreCase(name)).orElse(false))
-                .map(Map.Entry::getKey).collect(Collectors.toList());
+        return copyOf(this.jailIndex.get(name.toLowerCase()));
     }
 
     @Override public List<UUID> getMuted() {
-        updateCacheForOnlinePlayers();
-        return this.data.getNode().entrySet().stream().filter(x -> x.getValue().isMuted())
-                .map(Map.Entry::getKey).collect(Collectors.toList());
+        return ImmutableList.copyOf(this.mutedIndex);
     }
 
     @Override public void updateCacheForOnlinePlayers() {
         IUserQueryObject iuq = new UserQueryObject();
         iuq.addAllKeys(Sponge.getServer().getOnlinePlayers().stream().map(Identifiable::getUniqueId).collect(Collectors.toList()));
         this.storageManager.getUserService().getAll(iuq).thenAccept(result ->
-                result.forEach((uuid, obj) -> this.data.getNode().computeIfAbsent(uuid, x -> new UserCacheDataNode()).set(obj)));
+                result.forEach((uuid, obj) -> put(uuid, new UserCacheDataNode(obj))));
     }
 
     @Override public void updateCacheForPlayer(UUID uuid, IUserDataObject u) {
-        this.data.getNode().computeIfAbsent(uuid, x -> new UserCacheDataNode()).set(u);
+        put(uuid, new UserCacheDataNode(u));
     }
 
     @Override public void updateCacheForPlayer(UUID uuid) {
         this.storageManager.getUser(uuid).thenAccept(x -> x.ifPresent(u -> updateCacheForPlayer(uuid, u)));
     }
 
+    private List<UUID> copyOf(@Nullable Set<UUID> uuids) {
+        return uuids == null ? ImmutableList.of() : ImmutableList.copyOf(uuids);
+    }
+
+    @Nullable
+    private UserCacheDataNode get(UUID uuid) {
+        synchronized (this.indexLock) {
+            return this.data.getNode().get(uuid);
+        }
+    }
+
+    private void put(UUID uuid, UserCacheDataNode node) {
+        synchronized (this.indexLock) {
+            UserCacheDataNode previous = this.data.getNode().put(uuid, node);
+            if (previous != null) {
+                removeFromIndexes(uuid, previous);
+            }
+
+            addToIndexes(uuid, node);
+        }
+    }
+
+    private void remove(UUID uuid) {
+        synchronized (this.indexLock) {
+            UserCacheDataNode previous = this.data.getNode().remove(uuid);
+            if (previous != null) {
+                removeFromIndexes(uuid, previous);
+            }
+        }
+    }
+
+    private void rebuildIndexes() {
+        synchronized (this.indexLock) {
+            this.ipIndex.clear();
+            this.jailIndex.clear();
+            this.jailedIndex.clear();
+            this.mutedIndex.clear();
+            this.data.getNode().forEach(this::addToIndexes);
+        }
+    }
+
+    private void addToIndexes(UUID uuid, UserCacheDataNode node) {
+        node.getIpAddress().ifPresent(ip -> this.ipIndex.computeIfAbsent(ip, x -> ConcurrentHashMap.newKeySet()).add(uuid));
+        node.getJailName().ifPresent(jail -> {
+            this.jailedIndex.add(uuid);
+            this.jailIndex.computeIfAbsent(jail.toLowerCase(), x -> ConcurrentHashMap.newKeySet()).add(uuid);
+        });
+        if (node.isMuted()) {
+            this.mutedIndex.add(uuid);
+        }
+    }
+
+    private void removeFromIndexes(UUID uuid, UserCacheDataNode node) {
+        node.getIpAddress().ifPresent(ip -> removeFromIndex(this.ipIndex, ip, uuid));
+        node.getJailName().ifPresent(jail -> {
+            this.jailedIndex.remove(uuid);
+            removeFromIndex(this.jailIndex, jail.toLowerCase(), uuid);
+        });
+        this.mutedIndex.remove(uuid);
+    }
+
+    private void removeFromIndex(Map<String, Set<UUID>> index, String key, UUID uuid) {
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(uuid);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
     @Override public void startFilewalkIfNeeded() {
-        if (!this.isWalking && (!isCorrectVersion() || this.data.getNode().isEmpty())) {
+        if (!this.isWalking && (!isCorrectVersion() || !this.data.isComplete() || this.data.getNode().isEmpty())) {
             fileWalk();
         }
     }
@@ -130,6 +222,10 @@ public class UserCacheService implements IUserCacheService, IReloadableService.D
     }
 
     @Override public boolean fileWalk() {
+        return fileWalk((done, total) -> {});
+    }
+
+    @Override public boolean fileWalk(BiConsumer<Integer, Integer> progress) {
         synchronized (this.lockingObject) {
             if (this.isWalking) {
                 return false;
@@ -139,24 +235,70 @@ public class UserCacheService implements IUserCacheService, IReloadableService.D
         }
 
         try {
-            Map<UUID, UserCacheDataNode> data = Maps.newHashMap();
+            if (!isCorrectVersion()) {
+                // Entries built by older versions can't be reused.
+                synchronized (this.indexLock) {
+                    this.data = new UserCacheVersionNode();
+                    rebuildIndexes();
+                }
+            }
+
+            // If the server stops part way through, the next start up will carry on from the last save,
+            // as the users that have been done will have up to date modification times.
+            this.data.setComplete(false);
+            save();
+            long lastSave = System.currentTimeMillis();
+
             List<UUID> knownUsers = Sponge.getServiceManager().provideUnchecked(UserStorageService.class).getAll().stream()
                     .map(Identifiable::getUniqueId).collect(Collectors.toList());
-
-            int count = 0;
             IStorageService.Keyed<UUID, IUserQueryObject, IUserDataObject> manager = this.storageManager.getUserService();
-            for (UUID user : knownUsers) {
-                if (manager.exists(user).join()) {
-                    manager.get(user).join().ifPresent(x -> data.put(user, new UserCacheDataNode(x)));
-                    if (++count >= 10) {
-                        manager.clearCache();
-                        count = 0;
-                    }
+
+            int done = 0;
+            int nextReport = 0;
+            for (List<UUID> chunk : Lists.partition(knownUsers, REBUILD_CHUNK_SIZE)) {
+                // Split the chunk between a few tasks on the async scheduler, so the reads overlap without
+                // starting a thread per user.
+                List<CompletableFuture<Void>> tasks = new ArrayList<>(REBUILD_PARALLELISM);
+                for (List<UUID> slice : Lists.partition(chunk, (chunk.size() + REBUILD_PARALLELISM - 1) / REBUILD_PARALLELISM)) {
+                    tasks.add(CompletableFuture.runAsync(() -> {
+                        for (UUID user : slice) {
+                            Optional<UserCacheDataNode> result = index(manager, user, get(user));
+                            if (result.isPresent()) {
+                                put(user, result.get());
+                            } else {
+                                remove(user);
+                            }
+                        }
+                    }, this.asyncExecutor));
+                }
+
+                CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+                if (System.currentTimeMillis() - lastSave > REBUILD_SAVE_INTERVAL_MILLIS) {
+                    save();
+                    lastSave = System.currentTimeMillis();
+                }
+
+                done += chunk.size();
+                if (done >= nextReport) {
+                    this.logger.info("Rebuilding the user cache: " + done + " of " + knownUsers.size() + " users processed.");
+                    progress.accept(done, knownUsers.size());
+                    nextReport = done + Math.max(REBUILD_CHUNK_SIZE, knownUsers.size() / 10);
                 }
             }
 
-            this.data = new UserCacheVersionNode();
-            this.data.getNode().putAll(data);
+            Set<UUID> known = new HashSet<>(knownUsers);
+            final List<UUID> cached;
+            synchronized (this.indexLock) {
+                cached = new ArrayList<>(this.data.getNode().keySet());
+            }
+
+            for (UUID uuid : cached) {
+                if (!known.contains(uuid)) {
+                    remove(uuid);
+                }
+            }
+
+            this.data.setComplete(true);
             save();
         } finally {
             this.isWalking = false;
@@ -165,6 +307,29 @@ public class UserCacheService implements IUserCacheService, IReloadableService.D
         return true;
     }
 
+    private Optional<UserCacheDataNode> index(
+            IStorageService.Keyed<UUID, IUserQueryObject, IUserDataObject> manager,
+            UUID user,
+            @Nullable UserCacheDataNode existing) {
+        // Get the modification time before the data, so that if the data changes in between, we'll read it again next time.
+        long lastModified = manager.getLastModifiedOnThread(user);
+        if (existing != null && lastModified != -1 && existing.getLastModified() == lastModified) {
+            return Optional.of(existing);
+        }
+
+        try {
+            // Don't cache the data, we don't want every user that has ever joined to be held in memory.
+            return manager.getUncachedOnThread(user).map(x -> {
+                UserCacheDataNode node = new UserCacheDataNode(x);
+                node.setLastModified(lastModified == -1 ? 0 : lastModified);
+                return node;
+            });
+        } catch (Exception e) {
+            this.logger.error("Could not read the data for " + user.toString() + " while rebuilding the user cache.", e);
+            return Optional.ofNullable(existing);
+        }
+    }
+
     private GsonConfigurationLoader configurationLoader() {
         return GsonConfigurationLoader.builder()
                 .setPath(this.dataDirectory.get().resolve("usercache.json"))
@@ -24,6 +24,7 @@ import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.function.Function;
 
 @ImplementedBy(NucleusPermissionService.class)
 public interface IPermissionService {
@@ -82,6 +83,41 @@ public interface IPermissionService {
 
     void removePlayerContexts(UUID uuid);
 
+    /**
+     * Clears all cached permission and option lookups.
+     */
+    void invalidatePermissionCache();
+
+    /**
+     * Gets a value that is worked out from the subject's permissions or options, caching it
+     * alongside the subject's cached permissions.
+     *
+     * <p>The value is thrown away whenever the subject's cached permissions are, that is, when
+     * their active contexts change, when permissions are updated or reloaded, and when they
+     * disconnect. If the subject's permissions cannot be cached, the value is worked out on
+     * every call.</p>
+     *
+     * @param subject The subject
+     * @param key The name of the value, which should be unique to the caller
+     * @param function The function that works out the value, which must not return null
+     * @param <T> The type of value
+     * @return The value
+     */
+    <T> T getDerivedValue(Subject subject, String key, Function<Subject, T> function);
+
+    /**
+     * Removes a value cached by {@link #getDerivedValue(Subject, String, Function)} for the
+     * subject, for when something other than permissions has changed it.
+     *
+     * @param subject The subject
+     * @param key The name of the value
+     */
+    void invalidateDerivedValue(Subject subject, String key);
+
+    long getPermissionCacheHits();
+
+    long getPermissionCacheMisses();
+
     interface Metadata {
 
         boolean isPrefix();
@@ -6,6 +6,7 @@ package io.github.nucleuspowered.nucleus.services.interfaces;
 
 import com.google.inject.ImplementedBy;
 import io.github.nucleuspowered.nucleus.api.placeholder.NucleusPlaceholderService;
+import io.github.nucleuspowered.nucleus.services.impl.placeholder.CompiledPlaceholder;
 import io.github.nucleuspowered.nucleus.services.impl.placeholder.PlaceholderMetadata;
 import io.github.nucleuspowered.nucleus.services.impl.placeholder.PlaceholderService;
 import org.spongepowered.api.text.placeholder.PlaceholderParser;
@@ -23,4 +24,13 @@ public interface IPlaceholderService extends NucleusPlaceholderService {
     void registerToken(String tokenName, PlaceholderParser parser, boolean document);
 
     Map<String, PlaceholderMetadata> getNucleusParsers();
+
+    /**
+     * Parses a placeholder token once, so that it can be rendered repeatedly without being parsed
+     * again. Compiled tokens are cached, so this may be called for every render.
+     *
+     * @param token The token
+     * @return The compiled placeholder
+     */
+    CompiledPlaceholder compile(String token);
 }
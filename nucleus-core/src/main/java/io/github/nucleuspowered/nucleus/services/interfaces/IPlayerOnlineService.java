@@ -9,9 +9,12 @@ import io.github.nucleuspowered.nucleus.services.impl.playeronline.PlayerOnlineS
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.spongepowered.api.command.CommandSource;
 import org.spongepowered.api.data.key.Keys;
+import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.entity.living.player.User;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
@@ -25,7 +28,23 @@ public interface IPlayerOnlineService {
         return player.get(Keys.LAST_DATE_PLAYED);
     }
 
-    void set(@Nullable BiPredicate<CommandSource, User> isOnline, @Nullable BiFunction<CommandSource, User, Optional<Instant>> lastSeen);
+    /**
+     * Gets the players in the supplied collection that the source can see as online, in the
+     * order they were supplied.
+     *
+     * @param src The source that is looking
+     * @param players The players to filter
+     * @return The players that are visible to the source
+     */
+    List<Player> getVisiblePlayers(CommandSource src, Collection<Player> players);
+
+    default void set(@Nullable BiPredicate<CommandSource, User> isOnline, @Nullable BiFunction<CommandSource, User, Optional<Instant>> lastSeen) {
+        set(isOnline, lastSeen, null);
+    }
+
+    void set(@Nullable BiPredicate<CommandSource, User> isOnline,
+            @Nullable BiFunction<CommandSource, User, Optional<Instant>> lastSeen,
+            @Nullable BiFunction<CommandSource, Collection<Player>, List<Player>> visiblePlayers);
 
     void reset();
 
@@ -28,7 +28,7 @@ public interface IStorageManager {
 
     IStorageService.SingleCached<IKitDataObject> getKitsService();
 
-    IStorageService.Keyed.KeyedData<UUID, IUserQueryObject, IUserDataObject> getUserService();
+    IStorageService.Keyed.Prefetching<UUID, IUserQueryObject, IUserDataObject> getUserService();
 
     IStorageService.Keyed.KeyedData<UUID, IWorldQueryObject, IWorldDataObject> getWorldService();
 
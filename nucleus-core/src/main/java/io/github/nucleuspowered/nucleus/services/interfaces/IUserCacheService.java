@@ -10,6 +10,7 @@ import io.github.nucleuspowered.nucleus.services.impl.usercache.UserCacheService
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 
 @ImplementedBy(UserCacheService.class)
 public interface IUserCacheService {
@@ -37,4 +38,14 @@ public interface IUserCacheService {
     boolean isCorrectVersion();
 
     boolean fileWalk();
+
+    /**
+     * Rebuilds the cache, re-reading only the users whose data has changed since they
+     * were last indexed.
+     *
+     * @param progress Called with the number of users processed and the total number of users
+     *                 as the rebuild progresses
+     * @return false if a rebuild is already in progress
+     */
+    boolean fileWalk(BiConsumer<Integer, Integer> progress);
 }
@@ -0,0 +1,107 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.util;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * Holds the times at which timed states, such as jails and mutes, expire, ordered so that the
+ * next expiry can be found without looking at every entry.
+ *
+ * <p>Each key has at most one entry. Rescheduling or cancelling a key removes its old entry from
+ * the queue, so the queue does not fill up with entries that will never be used.</p>
+ *
+ * @param <K> The type of key, usually a {@link java.util.UUID}
+ */
+public class ExpiryQueue<K> {
+
+    private final PriorityBlockingQueue<Entry<K>> queue =
+            new PriorityBlockingQueue<>(16, Comparator.comparing((Entry<K> x) -> x.expiry));
+    private final Map<K, Entry<K>> current = new ConcurrentHashMap<>();
+
+    /**
+     * Sets when the entry for the given key expires, replacing any previous expiry.
+     *
+     * @param key The key
+     * @param expiry When the entry expires
+     */
+    public void schedule(K key, Instant expiry) {
+        Entry<K> entry = new Entry<>(key, expiry);
+        Entry<K> previous = this.current.put(key, entry);
+        if (previous != null) {
+            this.queue.remove(previous);
+        }
+
+        this.queue.offer(entry);
+    }
+
+    /**
+     * Removes any expiry for the given key.
+     *
+     * @param key The key
+     */
+    public void cancel(K key) {
+        Entry<K> previous = this.current.remove(key);
+        if (previous != null) {
+            this.queue.remove(previous);
+        }
+    }
+
+    /**
+     * Gets the number of entries in the queue.
+     *
+     * @return The number of entries
+     */
+    public int size() {
+        return this.queue.size();
+    }
+
+    /**
+     * Removes and returns the keys whose entries have expired at the given time.
+     *
+     * <p>If nothing has expired, this only looks at the front of the queue.</p>
+     *
+     * @param now The current time
+     * @return The expired keys
+     */
+    public List<K> pollExpired(Instant now) {
+        List<K> expired = new ArrayList<>();
+        Entry<K> entry;
+        while ((entry = this.queue.peek()) != null && !entry.expiry.isAfter(now)) {
+            entry = this.queue.poll();
+            if (entry == null) {
+                break;
+            } else if (entry.expiry.isAfter(now)) {
+                // Something else took the head, this one isn't due yet.
+                this.queue.offer(entry);
+                break;
+            }
+
+            // An entry that was replaced while it was being polled is dropped here.
+            if (this.current.remove(entry.key, entry)) {
+                expired.add(entry.key);
+            }
+        }
+
+        return expired;
+    }
+
+    private static final class Entry<K> {
+
+        private final K key;
+        private final Instant expiry;
+
+        private Entry(K key, Instant expiry) {
+            this.key = key;
+            this.expiry = expiry;
+        }
+    }
+}
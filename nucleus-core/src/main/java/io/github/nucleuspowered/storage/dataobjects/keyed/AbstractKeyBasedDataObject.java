@@ -4,17 +4,53 @@
  */
 package io.github.nucleuspowered.storage.dataobjects.keyed;
 
+import com.google.common.reflect.TypeToken;
 import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.configurate.AbstractConfigurateBackedDataObject;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.objectmapping.ObjectMappingException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nullable;
 
+/**
+ * A data object whose data is stored against {@link DataKey}s.
+ *
+ * <p>Values are deserialised from the backing node the first time their key is read and are then
+ * held, so that later reads do not go through the object mapper again. Values that are set are
+ * held in the same way and are only serialised into the backing node when the node is requested,
+ * usually when the object is saved.</p>
+ *
+ * <p>Collections are copied as they are read or set, so callers may modify what they get back
+ * without affecting the held value. Copies keep the ordering of the original: sorted sets and maps
+ * are copied into sorted collections with the same comparator, and others keep their iteration
+ * order. Other objects are not copied, as there is no general way to do so: what is returned is
+ * the held instance. Callers that change such an object must set it again and save the data
+ * object, or use {@link #getAndSet(DataKey)}, otherwise the change is seen by later reads but is
+ * never saved.</p>
+ */
 public class AbstractKeyBasedDataObject<T extends IKeyedDataObject<T>> extends AbstractConfigurateBackedDataObject implements IKeyedDataObject<T> {
 
+    // Marks a key whose node is empty, as the map does not take nulls.
+    private static final Object ABSENT = new Object();
+
     private transient boolean isDirty = false;
+    // Both are keyed on the path of the key.
+    private final transient Map<List<String>, Object> decoded = new ConcurrentHashMap<>();
+    private final transient Map<List<String>, DataKey<?, ?>> pending = new ConcurrentHashMap<>();
 
     @Override
     public final void markDirty() {
@@ -33,6 +69,11 @@ public class AbstractKeyBasedDataObject<T extends IKeyedDataObject<T>> extends A
 
     @Override
     public boolean has(DataKey<?, ? extends T> dataKey) {
+        Object value = this.decoded.get(Arrays.asList(dataKey.getKey()));
+        if (value != null) {
+            return value != ABSENT;
+        }
+
         return !getNode(dataKey.getKey()).isVirtual();
     }
 
@@ -41,13 +82,26 @@ public class AbstractKeyBasedDataObject<T extends IKeyedDataObject<T>> extends A
     }
 
     @Nullable
+    @SuppressWarnings("unchecked")
     public <V> V getNullable(DataKey<V, ? extends T> dataKey) {
-        try {
-            return getNode(dataKey.getKey()).getValue(dataKey.getType());
-        } catch (ObjectMappingException e) {
-            e.printStackTrace();
-            return null;
+        List<String> path = Arrays.asList(dataKey.getKey());
+        Object value = this.decoded.get(path);
+        if (value == null) {
+            try {
+                V fromNode = getNode(dataKey.getKey()).getValue(dataKey.getType());
+                value = fromNode == null ? ABSENT : fromNode;
+                // If this was set while we were reading, the set value wins.
+                Object previous = this.decoded.putIfAbsent(path, value);
+                if (previous != null) {
+                    value = previous;
+                }
+            } catch (ObjectMappingException e) {
+                e.printStackTrace();
+                return null;
+            }
         }
+
+        return value == ABSENT ? null : copyOf((V) value);
     }
 
     @Nullable
@@ -65,18 +119,17 @@ public class AbstractKeyBasedDataObject<T extends IKeyedDataObject<T>> extends A
     }
 
     public <V> boolean set(DataKey<V, ? extends T> dataKey, V data) {
-        try {
-            getNode(dataKey.getKey()).setValue(dataKey.getType(), data);
-            this.markDirty();
-            return true;
-        } catch (ObjectMappingException e) {
-            e.printStackTrace();
-            return false;
-        }
+        List<String> path = Arrays.asList(dataKey.getKey());
+        this.decoded.put(path, data == null ? ABSENT : copyOf(data));
+        this.pending.put(path, dataKey);
+        this.markDirty();
+        return true;
     }
 
     public void remove(DataKey<?, ? extends T> dataKey) {
-        getNode(dataKey.getKey()).setValue(null);
+        List<String> path = Arrays.asList(dataKey.getKey());
+        this.decoded.put(path, ABSENT);
+        this.pending.put(path, dataKey);
         this.markDirty();
     }
 
@@ -89,10 +142,69 @@ public class AbstractKeyBasedDataObject<T extends IKeyedDataObject<T>> extends A
         return r;
     }
 
+    @Override
+    public ConfigurationNode getBackingNode() {
+        writePending();
+        return super.getBackingNode();
+    }
+
     @Override
     public void setBackingNode(ConfigurationNode node) {
         this.markDirty(false);
-        super.setBackingNode(node);
+        synchronized (this.pending) {
+            this.decoded.clear();
+            this.pending.clear();
+            super.setBackingNode(node);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writePending() {
+        synchronized (this.pending) {
+            for (Map.Entry<List<String>, DataKey<?, ?>> entry : this.pending.entrySet()) {
+                this.pending.remove(entry.getKey());
+                DataKey<?, ?> dataKey = entry.getValue();
+                Object value = this.decoded.get(entry.getKey());
+                ConfigurationNode node = getNode(dataKey.getKey());
+                if (value == null || value == ABSENT) {
+                    node.setValue(null);
+                } else {
+                    try {
+                        node.setValue((TypeToken<Object>) dataKey.getType(), value);
+                    } catch (ObjectMappingException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V copyOf(V value) {
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>(((List<?>) value).size());
+            for (Object element : (List<?>) value) {
+                copy.add(copyOf(element));
+            }
+
+            return (V) copy;
+        } else if (value instanceof SortedSet) {
+            return (V) new TreeSet<>((SortedSet<?>) value);
+        } else if (value instanceof Set) {
+            return (V) new LinkedHashSet<>((Set<?>) value);
+        } else if (value instanceof Map) {
+            // Keep the order of the keys, including the comparator of a sorted map.
+            Map<Object, Object> copy = value instanceof SortedMap ?
+                    new TreeMap<>((Comparator<Object>) ((SortedMap<?, ?>) value).comparator()) :
+                    new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(entry.getKey(), copyOf(entry.getValue()));
+            }
+
+            return (V) copy;
+        }
+
+        return value;
     }
 
     public class ValueImpl<V, B extends T> implements IKeyedDataObject.Value<V> {
@@ -24,6 +24,17 @@ public interface IKeyedDataObject<T extends IKeyedDataObject<T>> extends IDataOb
 
     <T2> Optional<T2> get(DataKey<T2, ? extends T> dataKey);
 
+    /**
+     * Sets the value for the given key.
+     *
+     * <p>The value is not serialised until the data object is saved, so a value that cannot be
+     * serialised is reported then, rather than here.</p>
+     *
+     * @param dataKey The key
+     * @param data The value, or null to remove it
+     * @param <T2> The type of value
+     * @return true, as the value is always accepted
+     */
     <T2> boolean set(DataKey<T2, ? extends T> dataKey, T2 data);
 
     void remove(DataKey<?, ? extends T> dataKey);
@@ -121,10 +121,11 @@ public interface IStorageRepository {
          * Gets the number of objects that satisfies the query.
          *
          * @param query The query
-         * @return The number of items that satisfy the query, or -1 if the {@link #supportsNonKeyQueries()} is {@code false} and the query is more than
+         * @return The number of items that satisfy the query
+         * @throws DataQueryException if {@link #supportsNonKeyQueries()} is {@code false} and the query is more than
          *         just a key.
          */
-        int count(Q query);
+        int count(Q query) throws DataLoadException, DataQueryException;
 
         /**
          * Saves the supplied {@code object} in the position suggested by the supplied {@code query}
@@ -134,6 +135,18 @@ public interface IStorageRepository {
          */
         void save(K key, O object) throws ObjectMappingException, DataSaveException;
 
+        /**
+         * Saves all of the supplied objects. Repositories that can write several objects at once
+         * should override this, by default, each object is saved in turn.
+         *
+         * @param objects The objects to save, indexed by their keys
+         */
+        default void saveAll(Map<K, O> objects) throws ObjectMappingException, DataSaveException {
+            for (Map.Entry<K, O> entry : objects.entrySet()) {
+                save(entry.getKey(), entry.getValue());
+            }
+        }
+
         /**
          * Deletes the object at the supplied {@code key}
          *
@@ -157,6 +170,17 @@ public interface IStorageRepository {
          */
         Optional<O> get(K key) throws DataLoadException, DataQueryException;
 
+        /**
+         * Gets the time that the object with the supplied key was last written, if the
+         * storage mechanism keeps track of it.
+         *
+         * @param key The key
+         * @return The time, in milliseconds since the epoch, or -1 if not known
+         */
+        default long getLastModified(K key) {
+            return -1;
+        }
+
         /**
          * Gets all the stored keys
          *
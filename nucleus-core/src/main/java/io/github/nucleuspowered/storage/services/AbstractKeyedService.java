@@ -17,17 +17,26 @@ import io.github.nucleuspowered.storage.persistence.IStorageRepository;
 import io.github.nucleuspowered.storage.queryobjects.IQueryObject;
 import io.github.nucleuspowered.storage.util.KeyedObject;
 import io.github.nucleuspowered.storage.util.ThrownBiConsumer;
+import io.github.nucleuspowered.storage.util.ThrownConsumer;
 import io.github.nucleuspowered.storage.util.ThrownFunction;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.scheduler.Task;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -53,9 +62,13 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
             .expireAfterAccess(5, TimeUnit.MINUTES)
             .build();
 
+    // Objects that must stay in memory whatever happens to the cache, such as those of players who are logging in.
+    private final Map<UUID, Pin<D>> pinned = new ConcurrentHashMap<>();
+
     private final Supplier<IStorageRepository.Keyed<UUID, Q, ?>> storageRepositorySupplier;
     private final Supplier<D> createNew;
     private final ThrownBiConsumer<UUID, D, Exception> save;
+    private final ThrownConsumer<Map<UUID, D>, Exception> saveAll;
     private final ThrownFunction<Q, Map<UUID, D>, Exception> getAll;
     private final ThrownFunction<Q, Optional<KeyedObject<UUID, D>>, Exception> getQuery;
     private final ThrownFunction<UUID, Optional<D>, Exception> get;
@@ -63,6 +76,18 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
     private final Consumer<D> upgrader;
     private final Consumer<D> versionSetter;
 
+    // Write-behind state. Pending writes are coalesced by key, so a key is written at most once per flush.
+    // Each queued write has its own sequence number, so a flush can tell if the key was saved again while
+    // it was being written.
+    private final Map<UUID, PendingWrite<D>> pendingWrites = new ConcurrentHashMap<>();
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean earlyFlushScheduled = new AtomicBoolean(false);
+    @Nullable private Task writeBehindTask;
+    private volatile boolean writeBehind = false;
+    private volatile int writeBehindThreshold = Integer.MAX_VALUE;
+    private volatile int writeBehindBatchSize = Integer.MAX_VALUE;
+
     public <O> AbstractKeyedService(
         Supplier<IDataTranslator<D, O>> dts,
         Supplier<IStorageRepository.Keyed<UUID, Q, O>> srs,
@@ -76,6 +101,11 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
                         key,
                         dts.get().toDataAccessObject(udo)
                 ),
+                udos -> {
+                    final Map<UUID, O> toSave = new HashMap<>();
+                    udos.forEach((key, udo) -> toSave.put(key, dts.get().toDataAccessObject(udo)));
+                    srs.get().saveAll(toSave);
+                },
                 query -> srs.get()
                         .getAll(query)
                         .entrySet().stream()
@@ -94,9 +124,11 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
                 pluginContainer);
     }
 
-    private AbstractKeyedService(
+    // Package private for tests.
+    AbstractKeyedService(
             Supplier<D> createNew,
             ThrownBiConsumer<UUID, D, Exception> save,
+            ThrownConsumer<Map<UUID, D>, Exception> saveAll,
             ThrownFunction<Q, Map<UUID, D>, Exception> getAll,
             ThrownFunction<UUID, Optional<D>, Exception> get,
             ThrownFunction<Q, Optional<KeyedObject<UUID, D>>, Exception> getQuery,
@@ -108,6 +140,7 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
         this.pluginContainer = pluginContainer;
         this.createNew = createNew;
         this.save = save;
+        this.saveAll = saveAll;
         this.getAll = getAll;
         this.get = get;
         this.getQuery = getQuery;
@@ -141,12 +174,47 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
         }, this.pluginContainer);
     }
 
+    @Override
+    public void pin(@NonNull final UUID key, @NonNull final D value) {
+        this.pinned.put(key, new Pin<>(value, System.currentTimeMillis()));
+        this.cache.put(key, value);
+    }
+
+    @Override
+    public void unpin(@NonNull final UUID key) {
+        final Pin<D> pin = this.pinned.remove(key);
+        if (pin != null) {
+            this.cache.asMap().putIfAbsent(key, pin.value);
+        }
+    }
+
+    @Override
+    public void expirePins(@NonNull final Duration maxAge) {
+        final long pinnedBefore = System.currentTimeMillis() - maxAge.toMillis();
+        for (final Map.Entry<UUID, Pin<D>> entry : this.pinned.entrySet()) {
+            if (entry.getValue().pinnedAt < pinnedBefore && this.pinned.remove(entry.getKey(), entry.getValue())) {
+                this.cache.asMap().putIfAbsent(entry.getKey(), entry.getValue().value);
+            }
+        }
+    }
+
+    @Nullable
+    private D getPinned(@NonNull final UUID key) {
+        final Pin<D> pin = this.pinned.get(key);
+        return pin == null ? null : pin.value;
+    }
+
     @Override
     public CompletableFuture<Optional<D>> get(@NonNull final UUID key) {
+        final D pinnedValue = this.getPinned(key);
+        if (pinnedValue != null) {
+            return CompletableFuture.completedFuture(Optional.of(pinnedValue));
+        }
+
         ReentrantReadWriteLock.ReadLock lock = this.dataLocks.get(key).readLock();
         try {
             lock.lock();
-            D result = this.cache.getIfPresent(key);
+            D result = this.getInMemory(key);
             if (result != null) {
                 return CompletableFuture.completedFuture(Optional.of(result));
             }
@@ -169,11 +237,16 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
     @Override
     @SuppressWarnings("ConstantConditions")
     public Optional<D> getOnThread(@NonNull UUID key) {
+        final D pinnedValue = this.getPinned(key);
+        if (pinnedValue != null) {
+            return Optional.of(pinnedValue);
+        }
+
         // Read lock for the cache
         ReentrantReadWriteLock.ReadLock lock = this.dataLocks.get(key).readLock();
         try {
             lock.lock();
-            D result = this.cache.getIfPresent(key);
+            D result = this.getInMemory(key);
             if (result != null) {
                 return Optional.of(result);
             }
@@ -188,12 +261,73 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
         }
     }
 
+    @Override
+    public Optional<D> getUncachedOnThread(@NonNull UUID key) {
+        ReentrantReadWriteLock.ReadLock lock = this.dataLocks.get(key).readLock();
+        try {
+            lock.lock();
+            D result = this.getPendingWrite(key);
+            if (result == null) {
+                result = this.getPinned(key);
+            }
+
+            if (result == null) {
+                result = this.cache.getIfPresent(key);
+            }
+
+            if (result != null) {
+                return Optional.of(result);
+            }
+
+            Optional<D> r = this.get.apply(key);
+            r.ifPresent(this.upgrader);
+            return r;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the object for the key if it is held in memory. An object that is waiting to be written
+     * is newer than anything on disk, so it is returned (and put back in the cache) even if the
+     * cache has been cleared.
+     */
+    @Nullable
+    private D getInMemory(@NonNull UUID key) {
+        final D pending = this.getPendingWrite(key);
+        if (pending != null) {
+            this.cache.put(key, pending);
+            return pending;
+        }
+
+        return this.cache.getIfPresent(key);
+    }
+
+    @Nullable
+    private D getPendingWrite(@NonNull UUID key) {
+        final PendingWrite<D> pendingWrite = this.pendingWrites.get(key);
+        return pendingWrite == null ? null : pendingWrite.value;
+    }
+
+    @Override
+    public long getLastModifiedOnThread(@NonNull UUID key) {
+        return this.storageRepositorySupplier.get().getLastModified(key);
+    }
+
     @SuppressWarnings("ConstantConditions")
     private Optional<D> getFromRepo(@NonNull UUID key) throws Exception {
         // Write lock because of the cache
         ReentrantReadWriteLock.WriteLock lock = this.dataLocks.get(key).writeLock();
         try {
             lock.lock();
+            // Another thread may have queued a write while we waited for the lock.
+            final D inMemory = this.getInMemory(key);
+            if (inMemory != null) {
+                return Optional.of(inMemory);
+            }
+
             Optional<D> r = this.get.apply(key);
             r.ifPresent(d -> {
                 this.upgrader.accept(d);
@@ -266,13 +400,41 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
 
     @Override
     public CompletableFuture<Void> save(@NonNull final UUID key, @NonNull final D value) {
+        // If a different object is saved while the key is pinned, it is the newest, so readers must get it from now on.
+        this.pinned.computeIfPresent(key, (k, pin) -> pin.value == value ? pin : new Pin<>(value, pin.pinnedAt));
         return ServicesUtil.run(() -> {
             this.saveOnThread(key, value);
             return null;
         }, this.pluginContainer);
     }
 
-    private void saveOnThread(@NonNull final UUID key, @NonNull final D value) throws Exception {
+    void saveOnThread(@NonNull final UUID key, @NonNull final D value) throws Exception {
+        if (this.writeBehind) {
+            // Under the write lock, so that a flush writing this key sees either the old or the new sequence
+            // number when it finishes, never a half queued write.
+            final ReentrantReadWriteLock.WriteLock lock = this.dataLocks.get(key).writeLock();
+            lock.lock();
+            try {
+                this.cache.put(key, value);
+                value.markDirty();
+                this.pendingWrites.put(key, new PendingWrite<>(value, this.writeSequence.incrementAndGet()));
+            } finally {
+                lock.unlock();
+            }
+
+            if (this.pendingWrites.size() >= this.writeBehindThreshold && this.earlyFlushScheduled.compareAndSet(false, true)) {
+                Task.builder().async().execute(() -> {
+                    this.earlyFlushScheduled.set(false);
+                    this.flushPendingWrites();
+                }).submit(this.pluginContainer);
+            }
+            return;
+        }
+
+        this.writeOnThread(key, value);
+    }
+
+    private void writeOnThread(@NonNull final UUID key, @NonNull final D value) throws Exception {
         ReentrantReadWriteLock reentrantReadWriteLock = this.dataLocks.get(key);
         ReentrantReadWriteLock.WriteLock lock = reentrantReadWriteLock.writeLock();
         try {
@@ -285,6 +447,121 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
         }
     }
 
+    private void writeAllOnThread(final Map<UUID, PendingWrite<D>> batch) throws Exception {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // Only the flushing thread ever holds more than one of these locks, so this can't deadlock.
+        final List<ReentrantReadWriteLock.WriteLock> locks = new ArrayList<>();
+        try {
+            final Map<UUID, D> values = new HashMap<>();
+            for (final Map.Entry<UUID, PendingWrite<D>> entry : batch.entrySet()) {
+                final ReentrantReadWriteLock.WriteLock lock = this.dataLocks.get(entry.getKey()).writeLock();
+                lock.lock();
+                locks.add(lock);
+                values.put(entry.getKey(), entry.getValue().value);
+            }
+
+            this.saveAll.save(values);
+
+            // Only dequeue once written, so that readers never miss the object in between. If the key was
+            // saved again since the batch was taken, the object may have changed after it was written, so
+            // it stays queued and dirty.
+            for (final Map.Entry<UUID, PendingWrite<D>> entry : batch.entrySet()) {
+                final long sequence = entry.getValue().sequence;
+                if (this.pendingWrites.computeIfPresent(entry.getKey(), (k, v) -> v.sequence == sequence ? null : v) == null) {
+                    entry.getValue().value.markDirty(false);
+                }
+            }
+        } finally {
+            locks.forEach(ReentrantReadWriteLock.WriteLock::unlock);
+        }
+    }
+
+    /**
+     * Enables write-behind mode. Saves are queued and written by a single writer, either every {@code interval} or once
+     * {@code threshold} objects are pending, in batches of at most {@code batchSize}.
+     *
+     * @param interval The maximum time a change may wait before being written
+     * @param threshold The number of pending objects that triggers an early flush
+     * @param batchSize The maximum number of objects written per batch
+     */
+    public synchronized void enableWriteBehind(final Duration interval, final int threshold, final int batchSize) {
+        this.enableWriteBehind(threshold, batchSize);
+        this.writeBehindTask = Task.builder()
+                .async()
+                .interval(interval.toMillis(), TimeUnit.MILLISECONDS)
+                .execute(this::flushPendingWrites)
+                .submit(this.pluginContainer);
+    }
+
+    /**
+     * Disables write-behind mode, if enabled, and writes any pending objects.
+     *
+     * @return A {@link CompletableFuture} that completes once all pending objects are written
+     */
+    public synchronized CompletableFuture<Void> disableWriteBehind() {
+        this.cancelWriteBehindTask();
+        this.writeBehind = false;
+        this.writeBehindThreshold = Integer.MAX_VALUE;
+        this.writeBehindBatchSize = Integer.MAX_VALUE;
+        return ServicesUtil.run(() -> {
+            this.flushPendingWrites();
+            return null;
+        }, this.pluginContainer);
+    }
+
+    /**
+     * Enables write-behind mode without scheduling the interval flush.
+     *
+     * @param threshold The number of pending objects that triggers an early flush
+     * @param batchSize The maximum number of objects written per batch
+     */
+    synchronized void enableWriteBehind(final int threshold, final int batchSize) {
+        this.cancelWriteBehindTask();
+        this.writeBehindThreshold = threshold;
+        this.writeBehindBatchSize = batchSize;
+        this.writeBehind = true;
+    }
+
+    private void cancelWriteBehindTask() {
+        if (this.writeBehindTask != null) {
+            this.writeBehindTask.cancel();
+            this.writeBehindTask = null;
+        }
+    }
+
+    /**
+     * Writes all objects that are pending at the start of the flush, in batches. Objects queued while a flush is in
+     * progress are left for the next flush, so each key is written at most once per flush.
+     */
+    void flushPendingWrites() {
+        this.flushLock.lock();
+        try {
+            final List<UUID> keys = new ArrayList<>(this.pendingWrites.keySet());
+            final int batchSize = this.writeBehindBatchSize;
+            for (int start = 0; start < keys.size(); start += batchSize) {
+                final Map<UUID, PendingWrite<D>> batch = new HashMap<>();
+                for (final UUID key : keys.subList(start, Math.min(keys.size(), start + batchSize))) {
+                    final PendingWrite<D> pendingWrite = this.pendingWrites.get(key);
+                    if (pendingWrite != null) {
+                        batch.put(key, pendingWrite);
+                    }
+                }
+
+                try {
+                    this.writeAllOnThread(batch);
+                } catch (final Exception e) {
+                    // Left queued, to try again next time.
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            this.flushLock.unlock();
+        }
+    }
+
     @Override
     public CompletableFuture<Void> delete(@NonNull UUID key) {
         return ServicesUtil.run(() -> {
@@ -292,6 +569,8 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
             ReentrantReadWriteLock.WriteLock lock = reentrantReadWriteLock.writeLock();
             try {
                 lock.lock();
+                this.pendingWrites.remove(key);
+                this.pinned.remove(key);
                 this.storageRepositorySupplier.get().delete(key);
                 final D o = this.cache.getIfPresent(key);
                 if (o != null) {
@@ -310,9 +589,17 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
         return ServicesUtil.run(() -> {
             for (final Map.Entry<UUID, D> objectToSave : new HashMap<>(this.cache.asMap()).entrySet()) {
                 if (objectToSave.getValue() != null && objectToSave.getValue().isDirty()) {
-                    this.save(objectToSave.getKey(), objectToSave.getValue());
+                    if (this.writeBehind) {
+                        this.pendingWrites.putIfAbsent(objectToSave.getKey(),
+                                new PendingWrite<>(objectToSave.getValue(), this.writeSequence.incrementAndGet()));
+                    } else {
+                        this.save(objectToSave.getKey(), objectToSave.getValue());
+                    }
                 }
             }
+
+            // Always drain the write-behind queue, this is called on save and shutdown.
+            this.flushPendingWrites();
             return null;
         }, this.pluginContainer);
     }
@@ -323,4 +610,26 @@ public abstract class AbstractKeyedService<Q extends IQueryObject<UUID, Q>, D ex
             this.save(uuid, dataObject);
         }
     }
+
+    private static final class PendingWrite<D> {
+
+        private final D value;
+        private final long sequence;
+
+        private PendingWrite(D value, long sequence) {
+            this.value = value;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class Pin<D> {
+
+        private final D value;
+        private final long pinnedAt;
+
+        private Pin(D value, long pinnedAt) {
+            this.value = value;
+            this.pinnedAt = pinnedAt;
+        }
+    }
 }
@@ -10,6 +10,7 @@ import io.github.nucleuspowered.storage.dataobjects.keyed.IKeyedDataObject;
 import io.github.nucleuspowered.storage.queryobjects.IQueryObject;
 import io.github.nucleuspowered.storage.util.KeyedObject;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -166,6 +167,28 @@ public interface IStorageService<D extends IDataObject> {
          */
         Optional<D> getOnThread(@Nonnull K key);
 
+        /**
+         * Gets the object based on the provided key, if it exists, without adding it
+         * to the cache if it has to be loaded.
+         *
+         * @param key The key
+         * @return The object, if it exists
+         */
+        default Optional<D> getUncachedOnThread(@Nonnull K key) {
+            return getOnThread(key);
+        }
+
+        /**
+         * Gets the time that the object with the provided key was last written to
+         * storage, if the storage engine keeps track of it.
+         *
+         * @param key The key
+         * @return The time, in milliseconds since the epoch, or -1 if not known
+         */
+        default long getLastModifiedOnThread(@Nonnull K key) {
+            return -1;
+        }
+
         /**
          * Gets the data, or a new {@link D}.
          *
@@ -273,6 +296,32 @@ public interface IStorageService<D extends IDataObject> {
          */
         CompletableFuture<Void> clearCacheUnless(Set<K> keysToKeep);
 
+        /**
+         * Keeps the given object in memory for the given key until {@link #unpin(Object)} is
+         * called, even if the cache is cleared or the entry expires. Lookups for the key will
+         * return this object without going to storage.
+         *
+         * @param key The key
+         * @param value The object to keep
+         */
+        void pin(@Nonnull K key, @Nonnull D value);
+
+        /**
+         * Stops keeping the object for the given key in memory, returning it to the normal
+         * rules of the cache.
+         *
+         * @param key The key
+         */
+        void unpin(@Nonnull K key);
+
+        /**
+         * Stops keeping objects in memory that were pinned longer ago than the given age, in case
+         * {@link #unpin(Object)} was never called for them.
+         *
+         * @param maxAge The longest time an object may stay pinned
+         */
+        void expirePins(@Nonnull Duration maxAge);
+
         /**
          * Indicates the data is also keyed.
          *
@@ -296,6 +345,35 @@ public interface IStorageService<D extends IDataObject> {
 
             <T2> CompletableFuture<Void> removeAndSave(@Nonnull K key, DataKey<T2, ? extends D> dataKey);
         }
+
+        /**
+         * Indicates the data can be loaded ahead of time, such as when a player is logging in.
+         *
+         * @param <K> The primary key type
+         * @param <Q> The {@link IQueryObject} that can contain query parameters
+         * @param <D> The {@link IDataObject} that this service deals with.
+         */
+        interface Prefetching<K, Q extends IQueryObject<K, Q>, D extends IKeyedDataObject<D>> extends KeyedData<K, Q, D> {
+
+            /**
+             * Registers a key that is read when data is prefetched, so that it is decoded by the
+             * time it is asked for.
+             *
+             * @param dataKey The key
+             */
+            void registerPrefetchKey(DataKey<?, ? extends D> dataKey);
+
+            /**
+             * Loads the data for the key, creating it if needed, decodes the registered keys, and
+             * {@link #pin(Object, IDataObject) pins} it.
+             *
+             * <p>This may read from storage, and so should be called off the main thread.</p>
+             *
+             * @param key The key
+             * @return The data
+             */
+            D prefetchOnThread(@Nonnull K key);
+        }
     }
 
 }
@@ -0,0 +1,120 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.mail.services;
+
+import com.google.common.collect.ImmutableList;
+import io.github.nucleuspowered.nucleus.api.module.mail.data.MailMessage;
+import io.github.nucleuspowered.nucleus.modules.mail.data.MailData;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.helpers.NOPLogger;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+// In the same package as the store, as the store is package private.
+public class MailboxStoreTests {
+
+    private static final UUID OWNER = UUID.randomUUID();
+    private static final UUID SENDER = UUID.randomUUID();
+
+    @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+    private MailboxStore createStore() {
+        return new MailboxStore(NOPLogger.NOP_LOGGER, () -> this.folder.getRoot().toPath());
+    }
+
+    private static MailData mail(String message) {
+        return new MailData(SENDER, Instant.ofEpochMilli(1000), message);
+    }
+
+    private static List<MailMessage> readAll(MailboxStore store) {
+        return store.read(OWNER, x -> true, 0, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testSentMailCanBeReadBeforeAndAfterItIsWritten() {
+        MailboxStore store = createStore();
+        store.append(ImmutableList.of(OWNER), mail("one"));
+        store.append(ImmutableList.of(OWNER), mail("two"));
+        Assert.assertEquals(ImmutableList.of(mail("one"), mail("two")), readAll(store));
+
+        store.flush();
+        Assert.assertEquals(ImmutableList.of(mail("one"), mail("two")), readAll(store));
+        Assert.assertEquals(2, store.count(OWNER));
+
+        // A new store only has the file to go on.
+        Assert.assertEquals(ImmutableList.of(mail("one"), mail("two")), readAll(createStore()));
+    }
+
+    @Test
+    public void testReadsCanBeFilteredAndPaged() {
+        MailboxStore store = createStore();
+        for (int i = 0; i < 5; i++) {
+            store.append(ImmutableList.of(OWNER), mail("message " + i));
+        }
+
+        store.flush();
+        Assert.assertEquals(ImmutableList.of(mail("message 2"), mail("message 3")),
+                store.read(OWNER, x -> !x.getMessage().equals("message 1"), 1, 2));
+    }
+
+    @Test
+    public void testRemoveOnlyRemovesTheFirstMatch() {
+        MailboxStore store = createStore();
+        store.append(ImmutableList.of(OWNER), mail("same"));
+        store.append(ImmutableList.of(OWNER), mail("same"));
+        store.flush();
+
+        Assert.assertTrue(store.remove(OWNER, x -> x.getMessage().equals("same")));
+        Assert.assertEquals(1, store.count(OWNER));
+        Assert.assertFalse(store.remove(OWNER, x -> x.getMessage().equals("other")));
+    }
+
+    @Test
+    public void testClearRemovesMailThatHasNotBeenWrittenYet() {
+        MailboxStore store = createStore();
+        store.append(ImmutableList.of(OWNER), mail("one"));
+        Assert.assertTrue(store.clear(OWNER));
+        store.flush();
+
+        Assert.assertEquals(0, store.count(OWNER));
+        Assert.assertFalse(store.clear(OWNER));
+    }
+
+    @Test
+    public void testMigratedMailGoesFirstAndIsOnlyAddedOnce() {
+        MailboxStore store = createStore();
+        store.append(ImmutableList.of(OWNER), mail("new"));
+        store.flush();
+        Assert.assertFalse(store.isMigrated(OWNER));
+
+        Assert.assertTrue(store.migrate(OWNER, ImmutableList.of(mail("old"))));
+        Assert.assertTrue(store.isMigrated(OWNER));
+        Assert.assertEquals(ImmutableList.of(mail("old"), mail("new")), readAll(store));
+
+        // As if the server stopped before the user data was saved.
+        Assert.assertTrue(store.migrate(OWNER, ImmutableList.of(mail("old"))));
+        Assert.assertEquals(2, store.count(OWNER));
+    }
+
+    @Test
+    public void testTheMarkerSurvivesRewrites() {
+        MailboxStore store = createStore();
+        store.migrate(OWNER, ImmutableList.of(mail("old")));
+        store.remove(OWNER, x -> true);
+        Assert.assertTrue(store.isMigrated(OWNER));
+
+        store.append(ImmutableList.of(OWNER), mail("new"));
+        store.flush();
+        Assert.assertTrue(store.clear(OWNER));
+        Assert.assertTrue(store.isMigrated(OWNER));
+        Assert.assertEquals(0, store.count(OWNER));
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.message.services;
+
+import io.github.nucleuspowered.nucleus.modules.message.MessagePermissions;
+import io.github.nucleuspowered.nucleus.modules.message.config.MessageConfig;
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.interfaces.IModuleDataProvider;
+import io.github.nucleuspowered.nucleus.services.interfaces.IPermissionService;
+import io.github.nucleuspowered.nucleus.services.interfaces.IUserPreferenceService;
+import io.github.nucleuspowered.nucleus.services.impl.userprefs.NucleusKeysProvider;
+import io.github.nucleuspowered.nucleus.tests.util.Benchmark;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.service.permission.Subject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Times working out who can spy on a private message with 500 players online.
+ *
+ * <p>Players and services are mocks, so the time includes the cost of calling them. Compare runs
+ * against each other rather than reading the numbers as what a server would see.</p>
+ */
+// In the same package as the MessageHandler, as the method that takes the players is package private.
+public class MessageHandlerBenchmarks {
+
+    private static final int PLAYERS = 500;
+    private static final int OPERATIONS = 2000;
+
+    private final AtomicInteger computed = new AtomicInteger();
+    private MessageHandler handler;
+    private List<Player> players;
+
+    private static Player createPlayer(int index) {
+        Player player = Mockito.mock(Player.class);
+        Mockito.when(player.getUniqueId()).thenReturn(new UUID(0, index));
+        return player;
+    }
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        Benchmark.assumeEnabled();
+        this.players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            this.players.add(createPlayer(i));
+        }
+
+        MessageConfig config = Mockito.mock(MessageConfig.class);
+        Mockito.when(config.isSocialSpyLevels()).thenReturn(true);
+        Mockito.when(config.isSocialSpyAllowForced()).thenReturn(true);
+        IModuleDataProvider moduleDataProvider = Mockito.mock(IModuleDataProvider.class);
+        Mockito.when(moduleDataProvider.getModuleConfig(MessageConfig.class)).thenReturn(config);
+
+        // One in three players can use social spy, one in thirty is forced to, and levels run from 0 to 4.
+        IPermissionService permissionService = Mockito.mock(IPermissionService.class);
+        Mockito.when(permissionService.hasPermission(Mockito.any(Subject.class), Mockito.eq(MessagePermissions.BASE_SOCIALSPY)))
+                .thenAnswer(invocation -> index(invocation.getArguments()[0]) % 3 == 0);
+        Mockito.when(permissionService.hasPermission(Mockito.any(Subject.class), Mockito.eq(MessagePermissions.SOCIALSPY_FORCE)))
+                .thenAnswer(invocation -> index(invocation.getArguments()[0]) % 30 == 0);
+        Mockito.when(permissionService.getPositiveIntOptionFromSubject(Mockito.any(Subject.class), Mockito.anyVararg()))
+                .thenAnswer(invocation -> OptionalInt.of(index(invocation.getArguments()[0]) % 5));
+
+        // Stands in for the per-subject permission cache.
+        Map<String, Object> derived = new ConcurrentHashMap<>();
+        Mockito.when(permissionService.getDerivedValue(Mockito.any(Subject.class), Mockito.anyString(), Mockito.any(Function.class)))
+                .thenAnswer(invocation -> derived.computeIfAbsent(
+                        ((Player) invocation.getArguments()[0]).getUniqueId() + "|" + invocation.getArguments()[1],
+                        k -> {
+                            this.computed.incrementAndGet();
+                            return ((Function<Object, Object>) invocation.getArguments()[2]).apply(invocation.getArguments()[0]);
+                        }));
+
+        // Every other player has turned social spy on.
+        IUserPreferenceService userPreferenceService = Mockito.mock(IUserPreferenceService.class);
+        Mockito.when(userPreferenceService.getUnwrapped(Mockito.any(UUID.class), Mockito.eq(NucleusKeysProvider.SOCIAL_SPY)))
+                .thenAnswer(invocation -> ((UUID) invocation.getArguments()[0]).getLeastSignificantBits() % 2 == 0);
+
+        INucleusServiceCollection serviceCollection = Mockito.mock(INucleusServiceCollection.class);
+        Mockito.when(serviceCollection.moduleDataProvider()).thenReturn(moduleDataProvider);
+        Mockito.when(serviceCollection.permissionService()).thenReturn(permissionService);
+        Mockito.when(serviceCollection.userPreferenceService()).thenReturn(userPreferenceService);
+        this.handler = new MessageHandler(serviceCollection);
+    }
+
+    private static long index(Object player) {
+        return ((Player) player).getUniqueId().getLeastSignificantBits();
+    }
+
+    @Test
+    public void benchmarkSocialSpyRecipients() throws Exception {
+        // A level 1 player messaging a level 2 player.
+        CommandSource sender = this.players.get(1);
+        CommandSource receiver = this.players.get(2);
+
+        // Spies are the players with the permission who are forced or have turned it on, and are above level 2.
+        int expected = 0;
+        for (int i = 0; i < PLAYERS; i++) {
+            if (i % 3 == 0 && (i % 30 == 0 || i % 2 == 0) && i % 5 > 2) {
+                expected++;
+            }
+        }
+
+        Assert.assertEquals(expected, this.handler.playersCanSpyOn(this.players, sender, receiver).size());
+
+        Benchmark.time("social spy recipients, " + PLAYERS + " players", OPERATIONS,
+                () -> this.handler.playersCanSpyOn(this.players, sender, receiver));
+        System.out.println("[benchmark] social spy states worked out: " + this.computed.get() + " for " + PLAYERS + " players");
+    }
+
+}
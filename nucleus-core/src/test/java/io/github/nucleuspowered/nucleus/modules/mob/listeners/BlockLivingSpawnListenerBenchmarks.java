@@ -0,0 +1,130 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.modules.mob.listeners;
+
+import com.google.common.collect.ImmutableList;
+import io.github.nucleuspowered.nucleus.modules.mob.config.BlockSpawnsConfig;
+import io.github.nucleuspowered.nucleus.modules.mob.config.MobConfig;
+import io.github.nucleuspowered.nucleus.services.INucleusServiceCollection;
+import io.github.nucleuspowered.nucleus.services.interfaces.IModuleDataProvider;
+import io.github.nucleuspowered.nucleus.tests.util.Benchmark;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import ninja.leaping.configurate.objectmapping.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.spongepowered.api.entity.Entity;
+import org.spongepowered.api.entity.EntityType;
+import org.spongepowered.api.entity.Item;
+import org.spongepowered.api.entity.living.ArmorStand;
+import org.spongepowered.api.entity.living.Living;
+import org.spongepowered.api.entity.living.monster.Zombie;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.world.World;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Times the spawn blocking decision for a stream of spawns, as a mob farm or chunk load would
+ * cause, against the checks that used to be run for every entity.
+ *
+ * <p>Entity types and worlds are mocks, and both paths call them, so compare the two timings with
+ * each other rather than reading them as what a server would see.</p>
+ */
+// In the same package as the listener, as the method that makes the decision is package private.
+public class BlockLivingSpawnListenerBenchmarks {
+
+    private static final int TYPES = 60;
+    private static final int OPERATIONS = 200000;
+    private static final Class<?>[] CLASSES = { Zombie.class, Zombie.class, Item.class, ArmorStand.class };
+
+    private MobConfig config;
+    private BlockLivingSpawnListener listener;
+    private EntityType[] types;
+    private World[] worlds;
+
+    private static World createWorld(String name) {
+        World world = Mockito.mock(World.class);
+        Mockito.when(world.getName()).thenReturn(name);
+        Mockito.when(world.getUniqueId()).thenReturn(UUID.randomUUID());
+        return world;
+    }
+
+    @Before
+    public void setup() throws Exception {
+        Benchmark.assumeEnabled();
+
+        // Blocks vanilla mobs in the nether and a handful of ids in the overworld, and nothing in the end.
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        node.getNode("spawning-blocks", "world", "block-vanilla-mobs").setValue(false);
+        node.getNode("spawning-blocks", "world", "block-mobs-with-ids").setValue(
+                ImmutableList.of("minecraft:mob1", "minecraft:mob7", "somemod:mob3", "somemod:mob11"));
+        node.getNode("spawning-blocks", "DIM-1", "block-vanilla-mobs").setValue(true);
+        this.config = ObjectMapper.forClass(MobConfig.class).bindToNew().populate(node);
+
+        IModuleDataProvider moduleDataProvider = Mockito.mock(IModuleDataProvider.class);
+        Mockito.when(moduleDataProvider.getModuleConfig(MobConfig.class)).thenReturn(this.config);
+        INucleusServiceCollection serviceCollection = Mockito.mock(INucleusServiceCollection.class);
+        Mockito.when(serviceCollection.moduleDataProvider()).thenReturn(moduleDataProvider);
+        this.listener = new BlockLivingSpawnListener();
+        this.listener.onReload(serviceCollection);
+
+        this.types = new EntityType[TYPES];
+        for (int i = 0; i < TYPES; i++) {
+            this.types[i] = Mockito.mock(EntityType.class);
+            Mockito.when(this.types[i].getId()).thenReturn((i % 3 == 0 ? "somemod:mob" : "minecraft:mob") + i);
+        }
+
+        this.worlds = new World[] { createWorld("world"), createWorld("DIM-1"), createWorld("DIM1") };
+    }
+
+    // What every spawn used to go through.
+    private boolean shouldBlockOld(EntityType type, Class<? extends Entity> entityClass, World world) {
+        boolean valid = !Living.class.isAssignableFrom(entityClass) || Player.class.isAssignableFrom(entityClass) ||
+                ArmorStand.class.isAssignableFrom(entityClass);
+        if (valid) {
+            return false;
+        }
+
+        Optional<BlockSpawnsConfig> bsco = this.config.getBlockSpawnsConfigForWorld(world);
+        if (!bsco.isPresent()) {
+            return false;
+        }
+
+        String id = type.getId().toLowerCase();
+        return bsco.get().isBlockVanillaMobs() && id.startsWith("minecraft:") || bsco.get().getIdsToBlock().contains(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object spawn(int i, boolean old) {
+        EntityType type = this.types[i % TYPES];
+        Class<? extends Entity> entityClass = (Class<? extends Entity>) CLASSES[i % CLASSES.length];
+        World world = this.worlds[i % this.worlds.length];
+        return old ? shouldBlockOld(type, entityClass, world) : this.listener.shouldBlock(type, entityClass, world);
+    }
+
+    @Test
+    public void benchmarkMassSpawns() throws Exception {
+        // Every combination of type, class and world that the timings go through.
+        int blocked = 0;
+        for (int i = 0; i < TYPES * CLASSES.length * this.worlds.length; i++) {
+            Assert.assertEquals(spawn(i, true), spawn(i, false));
+            if ((Boolean) spawn(i, false)) {
+                blocked++;
+            }
+        }
+
+        Assert.assertTrue(blocked > 0);
+
+        int[] index = { 0 };
+        double old = Benchmark.time("spawn decision, checks per entity", OPERATIONS, () -> spawn(index[0]++, true));
+        double filter = Benchmark.time("spawn decision, world filter", OPERATIONS, () -> spawn(index[0]++, false));
+        System.out.println(String.format("[benchmark] the world filter takes %.2f of the per entity time", filter / old));
+    }
+
+}
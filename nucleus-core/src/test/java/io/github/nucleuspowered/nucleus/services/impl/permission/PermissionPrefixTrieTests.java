@@ -0,0 +1,60 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.permission;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// In the same package as the trie, as the trie is package private.
+public class PermissionPrefixTrieTests {
+
+    private static PermissionPrefixTrie<String> createTrie() {
+        PermissionPrefixTrie<String> trie = new PermissionPrefixTrie<>();
+        trie.put("nucleus.", "nucleus");
+        trie.put("nucleus.home.", "home");
+        trie.put("nucleus.home.others", "home others");
+        return trie;
+    }
+
+    @Test
+    public void testTheLongestPrefixIsReturned() {
+        PermissionPrefixTrie<String> trie = createTrie();
+        Assert.assertEquals("home", trie.getLongestPrefixOf("nucleus.home.base"));
+        Assert.assertEquals("nucleus", trie.getLongestPrefixOf("nucleus.warp.base"));
+        Assert.assertEquals("home others", trie.getLongestPrefixOf("nucleus.home.others.exempt"));
+    }
+
+    @Test
+    public void testAnExactMatchIsReturned() {
+        PermissionPrefixTrie<String> trie = createTrie();
+        Assert.assertEquals("home", trie.getLongestPrefixOf("nucleus.home."));
+        Assert.assertEquals("home others", trie.getLongestPrefixOf("nucleus.home.others"));
+    }
+
+    @Test
+    public void testNullIsReturnedWhenNothingMatches() {
+        PermissionPrefixTrie<String> trie = createTrie();
+        Assert.assertNull(trie.getLongestPrefixOf("minecraft.command.tp"));
+        Assert.assertNull(trie.getLongestPrefixOf("nucleus"));
+        Assert.assertNull(trie.getLongestPrefixOf(""));
+        Assert.assertNull(new PermissionPrefixTrie<String>().getLongestPrefixOf("nucleus.home.base"));
+    }
+
+    @Test
+    public void testAPartialPathDoesNotMatchALongerPrefix() {
+        PermissionPrefixTrie<String> trie = createTrie();
+
+        // "nucleus.home.oth" follows part of "nucleus.home.others", so only "nucleus.home." applies.
+        Assert.assertEquals("home", trie.getLongestPrefixOf("nucleus.home.oth"));
+    }
+
+    @Test
+    public void testPuttingAPrefixAgainReplacesItsValue() {
+        PermissionPrefixTrie<String> trie = createTrie();
+        trie.put("nucleus.home.", "replaced");
+        Assert.assertEquals("replaced", trie.getLongestPrefixOf("nucleus.home.base"));
+    }
+
+}
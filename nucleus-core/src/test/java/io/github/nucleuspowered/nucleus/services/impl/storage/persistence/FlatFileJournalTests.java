@@ -0,0 +1,102 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.storage.persistence;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// In the same package as the journal, as the journal is package private.
+public class FlatFileJournalTests {
+
+    @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+    private FlatFileJournal createJournal(Path dataPath) {
+        return new FlatFileJournal(NOPLogger.NOP_LOGGER, () -> dataPath, () -> dataPath.resolve("journal.bin"), FlatFileStorageRepository::move);
+    }
+
+    private static Path write(Path file, String contents) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testAnUncommittedWriteIsFinishedOnRecovery() throws IOException {
+        Path dataPath = this.folder.getRoot().toPath();
+        Path file = write(dataPath.resolve("userdata/ab/file.json"), "old");
+        Path temp = write(dataPath.resolve("userdata/ab/file.json.tmp"), "new");
+        createJournal(dataPath).begin(file, temp);
+
+        // The server stopped before the move, a new journal is created on the next start.
+        createJournal(dataPath).recover();
+        Assert.assertEquals("new", read(file));
+        Assert.assertFalse(Files.exists(temp));
+    }
+
+    @Test
+    public void testACommittedWriteIsNotReplayed() throws IOException {
+        Path dataPath = this.folder.getRoot().toPath();
+        Path file = write(dataPath.resolve("file.json"), "old");
+        Path temp = write(dataPath.resolve("file.json.tmp"), "new");
+        FlatFileJournal journal = createJournal(dataPath);
+        journal.commit(journal.begin(file, temp));
+
+        createJournal(dataPath).recover();
+        Assert.assertEquals("old", read(file));
+    }
+
+    @Test
+    public void testOnlyTheNewestWriteForAFileIsRecovered() throws IOException {
+        Path dataPath = this.folder.getRoot().toPath();
+        Path file = write(dataPath.resolve("file.json"), "old");
+        Path first = write(dataPath.resolve("file.json.1.tmp"), "first");
+        Path second = write(dataPath.resolve("file.json.2.tmp"), "second");
+        FlatFileJournal journal = createJournal(dataPath);
+        journal.begin(file, first);
+        journal.begin(file, second);
+
+        createJournal(dataPath).recover();
+        Assert.assertEquals("second", read(file));
+        Assert.assertFalse(Files.exists(first));
+    }
+
+    @Test
+    public void testAPartialRecordAtTheEndIsIgnored() throws IOException {
+        Path dataPath = this.folder.getRoot().toPath();
+        Path file = write(dataPath.resolve("file.json"), "old");
+        Path temp = write(dataPath.resolve("file.json.tmp"), "new");
+        createJournal(dataPath).begin(file, temp);
+
+        // A write record that was cut off after its type and part of its ID.
+        Files.write(dataPath.resolve("journal.bin"), new byte[] { 1, 0, 0, 0 }, StandardOpenOption.APPEND);
+
+        createJournal(dataPath).recover();
+        Assert.assertEquals("new", read(file));
+    }
+
+    @Test
+    public void testRecoveryStartsAnEmptyJournal() throws IOException {
+        Path dataPath = this.folder.getRoot().toPath();
+        Path file = write(dataPath.resolve("file.json"), "old");
+        Path temp = write(dataPath.resolve("file.json.tmp"), "new");
+        createJournal(dataPath).begin(file, temp);
+
+        createJournal(dataPath).recover();
+        Assert.assertEquals(0, Files.size(dataPath.resolve("journal.bin")));
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.services.impl.textstyle;
+
+import com.google.common.collect.ImmutableSet;
+import io.github.nucleuspowered.nucleus.tests.util.Benchmark;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compares stripping formatting codes from chat messages the way it used to be done, with the
+ * codes worked out from permissions and a regex run for each message, against the cached mask and
+ * the single pass scan.
+ */
+// In the same package as the TextStyleService, as the stripping method is package private.
+public class TextStyleServiceBenchmarks {
+
+    private static final String CODES = "0123456789abcdefklmnor";
+    private static final int OPERATIONS = 100000;
+
+    // The player can use colours, but not styles.
+    private static final Set<Character> ALLOWED = ImmutableSet.of(
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f', 'r');
+
+    private final Map<String, Long> masks = new ConcurrentHashMap<>();
+    private String[] messages;
+
+    @Before
+    public void setup() {
+        Benchmark.assumeEnabled();
+        this.messages = new String[] {
+                "hello everyone, how is it going?",
+                "&aHello &lthere&r, has anyone seen my &ksword&r?",
+                "&&llook at this: &nhttps://example.com/page&r &6gold",
+                "&l&m&n&o&k&l&m&n&o&k everything at once",
+                "a much longer message with a single &ccolour code in the middle of it, like most chat"
+        };
+    }
+
+    // What the permission checks for each code used to produce on every message.
+    private static String getKeys() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < CODES.length(); i++) {
+            if (!ALLOWED.contains(CODES.charAt(i))) {
+                builder.append(CODES.charAt(i));
+            }
+        }
+
+        return builder.length() == 0 ? null : builder.toString();
+    }
+
+    private static String stripWithRegex(String message) {
+        if (message.contains("&")) {
+            String keys = getKeys();
+            if (keys != null) {
+                String pattern = "&[" + keys + "]";
+                int oldLength;
+                do {
+                    oldLength = message.length();
+                    message = message.replaceAll(pattern, "");
+                } while (oldLength != message.length());
+            }
+        }
+
+        return message;
+    }
+
+    private String stripWithMask(String message) {
+        if (message.indexOf('&') == -1) {
+            return message;
+        }
+
+        return TextStyleService.strip(message, this.masks.computeIfAbsent("textstyle", k -> TextStyleService.toMask(getKeys())));
+    }
+
+    @Test
+    public void benchmarkStrip() throws Exception {
+        for (String message : this.messages) {
+            Assert.assertEquals(stripWithRegex(message), stripWithMask(message));
+        }
+
+        int[] index = { 0 };
+        double regex = Benchmark.time("strip codes, regex per message", OPERATIONS,
+                () -> stripWithRegex(this.messages[index[0]++ % this.messages.length]));
+        double mask = Benchmark.time("strip codes, cached mask", OPERATIONS,
+                () -> stripWithMask(this.messages[index[0]++ % this.messages.length]));
+        System.out.println(String.format("[benchmark] the mask takes %.2f of the regex time", mask / regex));
+    }
+
+}
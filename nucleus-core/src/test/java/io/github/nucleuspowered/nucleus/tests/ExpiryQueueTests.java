@@ -0,0 +1,107 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.github.nucleuspowered.nucleus.util.ExpiryQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+
+public class ExpiryQueueTests {
+
+    private static final Instant NOW = Instant.ofEpochSecond(1_000_000);
+
+    @Test
+    public void testOnlyExpiredKeysAreReturnedInOrder() {
+        ExpiryQueue<String> queue = new ExpiryQueue<>();
+        queue.schedule("later", NOW.plusSeconds(10));
+        queue.schedule("second", NOW.minusSeconds(5));
+        queue.schedule("first", NOW.minusSeconds(10));
+        queue.schedule("exact", NOW);
+
+        Assert.assertEquals(ImmutableList.of("first", "second", "exact"), queue.pollExpired(NOW));
+        Assert.assertTrue(queue.pollExpired(NOW).isEmpty());
+        Assert.assertEquals(ImmutableList.of("later"), queue.pollExpired(NOW.plusSeconds(10)));
+    }
+
+    @Test
+    public void testCancelledKeysAreNotReturned() {
+        ExpiryQueue<String> queue = new ExpiryQueue<>();
+        queue.schedule("cancelled", NOW.minusSeconds(1));
+        queue.schedule("kept", NOW.minusSeconds(1));
+        queue.cancel("cancelled");
+        Assert.assertEquals(1, queue.size());
+
+        Assert.assertEquals(ImmutableList.of("kept"), queue.pollExpired(NOW));
+    }
+
+    @Test
+    public void testARescheduledKeyIsOnlyReturnedAtItsNewExpiry() {
+        ExpiryQueue<String> queue = new ExpiryQueue<>();
+        queue.schedule("key", NOW.minusSeconds(1));
+        queue.schedule("key", NOW.plusSeconds(5));
+
+        // The old entry was due, but has been replaced.
+        Assert.assertEquals(1, queue.size());
+        Assert.assertTrue(queue.pollExpired(NOW).isEmpty());
+        Assert.assertEquals(ImmutableList.of("key"), queue.pollExpired(NOW.plusSeconds(5)));
+        Assert.assertTrue(queue.pollExpired(NOW.plusSeconds(60)).isEmpty());
+    }
+
+    @Test
+    public void testAKeyRescheduledEarlierIsReturnedOnce() {
+        ExpiryQueue<String> queue = new ExpiryQueue<>();
+        queue.schedule("key", NOW.plusSeconds(10));
+        queue.schedule("key", NOW.minusSeconds(1));
+
+        Assert.assertEquals(ImmutableList.of("key"), queue.pollExpired(NOW));
+
+        // Nothing is left from the first schedule.
+        Assert.assertEquals(0, queue.size());
+        Assert.assertTrue(queue.pollExpired(NOW.plusSeconds(10)).isEmpty());
+    }
+
+    @Test
+    public void testReplacedEntriesDoNotHideExpiredKeysBehindThem() {
+        ExpiryQueue<String> queue = new ExpiryQueue<>();
+        queue.schedule("stale", NOW.minusSeconds(10));
+        queue.schedule("cancelled", NOW.minusSeconds(5));
+        queue.schedule("due", NOW.minusSeconds(1));
+        queue.schedule("stale", NOW.plusSeconds(10));
+        queue.cancel("cancelled");
+
+        Assert.assertEquals(ImmutableList.of("due"), queue.pollExpired(NOW));
+        Assert.assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void testRepeatedReschedulesKeepOneEntryPerKey() {
+        ExpiryQueue<String> queue = new ExpiryQueue<>();
+        for (int i = 0; i < 100; i++) {
+            queue.schedule("key", NOW.plusSeconds(i));
+            queue.schedule("other", NOW.minusSeconds(i));
+        }
+
+        Assert.assertEquals(2, queue.size());
+        Assert.assertEquals(ImmutableList.of("other"), queue.pollExpired(NOW));
+        Assert.assertEquals(ImmutableList.of("key"), queue.pollExpired(NOW.plusSeconds(99)));
+        Assert.assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testAKeyCanBeScheduledAgainAfterItExpires() {
+        ExpiryQueue<String> queue = new ExpiryQueue<>();
+        queue.schedule("key", NOW.minusSeconds(1));
+        Assert.assertEquals(ImmutableList.of("key"), queue.pollExpired(NOW));
+
+        queue.schedule("key", NOW.plusSeconds(1));
+        queue.schedule("other", NOW.plusSeconds(1));
+        Assert.assertEquals(ImmutableSet.of("key", "other"), ImmutableSet.copyOf(queue.pollExpired(NOW.plusSeconds(1))));
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.storage;
+
+import com.google.common.collect.ImmutableList;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess.ConfigurationNodeBinaryTranslator;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import ninja.leaping.configurate.ValueType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+public class ConfigurationNodeBinaryTranslatorTests {
+
+    private static ConfigurationNode roundTrip(ConfigurationNode node) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ConfigurationNodeBinaryTranslator.INSTANCE.write(node, outputStream);
+        return ConfigurationNodeBinaryTranslator.INSTANCE.read(SimpleConfigurationNode.root(),
+                new ByteArrayInputStream(outputStream.toByteArray()));
+    }
+
+    @Test
+    public void testScalarsSurviveARoundTrip() throws IOException {
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        node.getNode("string").setValue("hello \u00e9\u4e16");
+        node.getNode("int").setValue(-42);
+        node.getNode("long").setValue(Long.MAX_VALUE);
+        node.getNode("double").setValue(1.5d);
+        node.getNode("float").setValue(2.25f);
+        node.getNode("true").setValue(true);
+        node.getNode("false").setValue(false);
+
+        ConfigurationNode result = roundTrip(node);
+        Assert.assertEquals("hello \u00e9\u4e16", result.getNode("string").getValue());
+        Assert.assertEquals(-42, result.getNode("int").getValue());
+        Assert.assertEquals(Long.MAX_VALUE, result.getNode("long").getValue());
+        Assert.assertEquals(1.5d, result.getNode("double").getValue());
+        Assert.assertEquals(2.25f, result.getNode("float").getValue());
+        Assert.assertEquals(true, result.getNode("true").getValue());
+        Assert.assertEquals(false, result.getNode("false").getValue());
+    }
+
+    @Test
+    public void testMapsSurviveARoundTrip() throws IOException {
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        node.getNode("outer", "inner", "value").setValue("deep");
+        node.getNode("outer", "other").setValue(7);
+
+        ConfigurationNode result = roundTrip(node);
+        Assert.assertEquals(ValueType.MAP, result.getNode("outer").getValueType());
+        Assert.assertEquals("deep", result.getNode("outer", "inner", "value").getValue());
+        Assert.assertEquals(7, result.getNode("outer", "other").getValue());
+        Assert.assertEquals(2, result.getNode("outer").getChildrenMap().size());
+    }
+
+    @Test
+    public void testEmptyListsAndMapsSurviveARoundTrip() throws IOException {
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        node.getNode("list").setValue(Collections.emptyList());
+        node.getNode("map").setValue(Collections.emptyMap());
+
+        ConfigurationNode result = roundTrip(node);
+        Assert.assertFalse(result.getNode("list").isVirtual());
+        Assert.assertEquals(ValueType.LIST, result.getNode("list").getValueType());
+        Assert.assertTrue(result.getNode("list").getChildrenList().isEmpty());
+        Assert.assertFalse(result.getNode("map").isVirtual());
+        Assert.assertEquals(ValueType.MAP, result.getNode("map").getValueType());
+        Assert.assertTrue(result.getNode("map").getChildrenMap().isEmpty());
+    }
+
+    @Test
+    public void testNestedListsSurviveARoundTrip() throws IOException {
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        node.getNode("list").setValue(ImmutableList.of(
+                ImmutableList.of(1, 2),
+                Collections.emptyList(),
+                ImmutableList.of("a")));
+        node.getNode("maps").getAppendedNode().getNode("key").setValue("value");
+
+        ConfigurationNode result = roundTrip(node);
+        Assert.assertEquals(3, result.getNode("list").getChildrenList().size());
+        Assert.assertEquals(ImmutableList.of(1, 2), result.getNode("list", 0).getList(x -> x));
+        Assert.assertEquals(ValueType.LIST, result.getNode("list", 1).getValueType());
+        Assert.assertTrue(result.getNode("list", 1).getChildrenList().isEmpty());
+        Assert.assertEquals(ImmutableList.of("a"), result.getNode("list", 2).getList(x -> x));
+        Assert.assertEquals("value", result.getNode("maps", 0, "key").getValue());
+    }
+
+    @Test
+    public void testEmptyRootSurvivesARoundTrip() throws IOException {
+        ConfigurationNode result = roundTrip(SimpleConfigurationNode.root());
+        Assert.assertTrue(result.getChildrenMap().isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNonBinaryDataIsRejected() throws IOException {
+        ConfigurationNodeBinaryTranslator.INSTANCE.read(SimpleConfigurationNode.root(),
+                new ByteArrayInputStream("{\"a\":1}".getBytes()));
+    }
+
+}
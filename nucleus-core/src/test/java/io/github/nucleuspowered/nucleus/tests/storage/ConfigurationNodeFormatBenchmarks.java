@@ -0,0 +1,128 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess.ConfigurationNodeBinaryTranslator;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataaccess.ConfigurationNodeJsonTranslator;
+import io.github.nucleuspowered.nucleus.tests.util.Benchmark;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Compares loading and saving a user file through the json path, which goes through a Gson tree,
+ * against the binary format, which goes straight between bytes and the node.
+ */
+public class ConfigurationNodeFormatBenchmarks {
+
+    private static final Gson PRETTY_GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final int OPERATIONS = 2000;
+
+    private ConfigurationNode node;
+    private byte[] json;
+    private byte[] binary;
+
+    /**
+     * Builds a node that looks like a well used player file: homes, mail, an ignore list and
+     * kit usage, along with the usual scalar values.
+     *
+     * @return The node
+     */
+    private static ConfigurationNode createUserNode() {
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        node.getNode("lastKnownName").setValue("Player");
+        node.getNode("nickname").setValue("&6The &lPlayer");
+        node.getNode("lastLogin").setValue(1571400000000L);
+        node.getNode("lastLogout").setValue(1571403600000L);
+        node.getNode("firstJoin").setValue(1500000000000L);
+        node.getNode("isSocialSpy").setValue(true);
+        node.getNode("fly").setValue(false);
+        for (int i = 0; i < 20; i++) {
+            ConfigurationNode home = node.getNode("homes", "home" + i);
+            home.getNode("world").setValue(new UUID(i, i).toString());
+            home.getNode("x").setValue(i * 100.5d);
+            home.getNode("y").setValue(64d);
+            home.getNode("z").setValue(i * -37.25d);
+            home.getNode("rotx").setValue(0d);
+            home.getNode("roty").setValue(90d);
+            home.getNode("rotz").setValue(0d);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            ConfigurationNode mail = node.getNode("mail").getAppendedNode();
+            mail.getNode("uuid").setValue(new UUID(0, i).toString());
+            mail.getNode("date").setValue(1571400000000L + i);
+            mail.getNode("message").setValue("Mail message number " + i + ", which is about as long as a real one.");
+        }
+
+        for (int i = 0; i < 30; i++) {
+            node.getNode("ignoreList").getAppendedNode().setValue(new UUID(i, 0).toString());
+        }
+
+        for (int i = 0; i < 15; i++) {
+            node.getNode("kitLastUsedTime", "kit" + i).setValue(1571400000000L - i);
+        }
+
+        return node;
+    }
+
+    @Before
+    public void setup() throws Exception {
+        Benchmark.assumeEnabled();
+        this.node = createUserNode();
+        this.json = PRETTY_GSON.toJson(ConfigurationNodeJsonTranslator.INSTANCE.jsonFrom(this.node)).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ConfigurationNodeBinaryTranslator.INSTANCE.write(this.node, outputStream);
+        this.binary = outputStream.toByteArray();
+        System.out.println("[benchmark] user file size: json " + this.json.length + " bytes, binary " + this.binary.length + " bytes");
+    }
+
+    private ConfigurationNode loadJson() throws Exception {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(this.json), StandardCharsets.UTF_8))) {
+            JsonObject object = new JsonParser().parse(reader).getAsJsonObject();
+            return ConfigurationNodeJsonTranslator.INSTANCE.from(SimpleConfigurationNode.root(), object);
+        }
+    }
+
+    private ConfigurationNode loadBinary() throws Exception {
+        return ConfigurationNodeBinaryTranslator.INSTANCE.read(SimpleConfigurationNode.root(), new ByteArrayInputStream(this.binary));
+    }
+
+    @Test
+    public void benchmarkLoad() throws Exception {
+        Assert.assertEquals(this.node.getNode("homes").getChildrenMap().size(), loadJson().getNode("homes").getChildrenMap().size());
+        Assert.assertEquals(this.node.getNode("homes").getChildrenMap().size(), loadBinary().getNode("homes").getChildrenMap().size());
+
+        double jsonTime = Benchmark.time("load user file, json", OPERATIONS, this::loadJson);
+        double binaryTime = Benchmark.time("load user file, binary", OPERATIONS, this::loadBinary);
+        System.out.println(String.format("[benchmark] binary load takes %.2f of the json time", binaryTime / jsonTime));
+    }
+
+    @Test
+    public void benchmarkSave() throws Exception {
+        double jsonTime = Benchmark.time("save user file, json", OPERATIONS,
+                () -> PRETTY_GSON.toJson(ConfigurationNodeJsonTranslator.INSTANCE.jsonFrom(this.node)).getBytes(StandardCharsets.UTF_8));
+        double binaryTime = Benchmark.time("save user file, binary", OPERATIONS, () -> {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            ConfigurationNodeBinaryTranslator.INSTANCE.write(this.node, outputStream);
+            return outputStream.toByteArray();
+        });
+        System.out.println(String.format("[benchmark] binary save takes %.2f of the json time", binaryTime / jsonTime));
+    }
+
+}
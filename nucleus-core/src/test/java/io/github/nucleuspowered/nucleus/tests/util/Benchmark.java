@@ -0,0 +1,88 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.nucleus.tests.util;
+
+import org.junit.Assume;
+
+import java.util.Locale;
+
+/**
+ * Times hot paths from within a test.
+ *
+ * <p>Timing tests are skipped unless the build is run with {@code -Dnucleus.benchmark=true}, so
+ * they do not slow down or fail normal builds. Each timing is printed to standard out. These are
+ * simple wall clock timings after a warm up, not JMH runs, so compare them against each other on
+ * the same machine rather than reading them as absolute numbers.</p>
+ */
+public final class Benchmark {
+
+    public static final String PROPERTY = "nucleus.benchmark";
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    // Results are folded into this, so that the JIT cannot throw away the work being timed.
+    private static volatile int sink = 0;
+
+    private Benchmark() {}
+
+    /**
+     * Skips the calling test unless benchmarks have been asked for.
+     */
+    public static void assumeEnabled() {
+        Assume.assumeTrue("Benchmarks are only run with -D" + PROPERTY + "=true", Boolean.getBoolean(PROPERTY));
+    }
+
+    /**
+     * Runs the operation the given number of times per round, and prints the mean time per
+     * operation of the fastest round.
+     *
+     * @param name The name to print
+     * @param operations The number of operations per round
+     * @param operation The operation
+     * @return The time per operation, in nanoseconds
+     * @throws Exception if the operation throws
+     */
+    public static double time(String name, int operations, Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round(operations, operation);
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            best = Math.min(best, round(operations, operation));
+        }
+
+        double perOperation = (double) best / operations;
+        System.out.println(String.format(Locale.ROOT, "[benchmark] %s: %.1f ns/op (%d ops per round)", name, perOperation, operations));
+        return perOperation;
+    }
+
+    private static long round(int operations, Operation operation) throws Exception {
+        int result = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            result ^= System.identityHashCode(operation.run());
+        }
+
+        long time = System.nanoTime() - start;
+        sink ^= result;
+        return time;
+    }
+
+    @FunctionalInterface
+    public interface Operation {
+
+        /**
+         * Runs the operation.
+         *
+         * @return Anything produced by the operation, so that it is not optimised away
+         * @throws Exception if the operation fails
+         */
+        Object run() throws Exception;
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.storage.dataobjects.keyed;
+
+import com.google.common.reflect.TypeToken;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.UserDataObject;
+import io.github.nucleuspowered.nucleus.tests.util.Benchmark;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compares reading the hot keys of a user file through the object mapper on every read, which is
+ * what the data object used to do, against reading the values it holds once decoded.
+ */
+public class AbstractKeyBasedDataObjectBenchmarks {
+
+    private static final int OPERATIONS = 20000;
+
+    private static final DataKey<Map<String, Map<String, Double>>, IUserDataObject> HOMES =
+            DataKey.of(new TypeToken<Map<String, Map<String, Double>>>() {}, IUserDataObject.class, "homes");
+    private static final DataKey<List<UUID>, IUserDataObject> IGNORED =
+            DataKey.of(new TypeToken<List<UUID>>() {}, IUserDataObject.class, "ignoreList");
+    private static final DataKey<Map<String, Long>, IUserDataObject> KIT_USAGE =
+            DataKey.of(new TypeToken<Map<String, Long>>() {}, IUserDataObject.class, "kitLastUsedTime");
+
+    private ConfigurationNode node;
+    private UserDataObject dataObject;
+
+    @Before
+    public void setup() {
+        Benchmark.assumeEnabled();
+        this.node = SimpleConfigurationNode.root();
+        this.node.getNode("lastKnownName").setValue("Player");
+        for (int i = 0; i < 20; i++) {
+            ConfigurationNode home = this.node.getNode("homes", "home" + i);
+            home.getNode("x").setValue(i * 100.5d);
+            home.getNode("y").setValue(64d);
+            home.getNode("z").setValue(i * -37.25d);
+            home.getNode("roty").setValue(90d);
+        }
+
+        for (int i = 0; i < 30; i++) {
+            this.node.getNode("ignoreList").getAppendedNode().setValue(new UUID(i, 0).toString());
+        }
+
+        for (int i = 0; i < 15; i++) {
+            this.node.getNode("kitLastUsedTime", "kit" + i).setValue(1571400000000L - i);
+        }
+
+        this.dataObject = new UserDataObject();
+        this.dataObject.setBackingNode(this.node);
+    }
+
+    // What every read used to do.
+    private <V> V readFromNode(DataKey<V, ?> dataKey) throws Exception {
+        return this.node.getNode((Object[]) dataKey.getKey()).getValue(dataKey.getType());
+    }
+
+    private void benchmark(String name, DataKey<?, IUserDataObject> dataKey) throws Exception {
+        Assert.assertEquals(readFromNode(dataKey), this.dataObject.getNullable(dataKey));
+
+        double node = Benchmark.time("read " + name + ", object mapper", OPERATIONS, () -> readFromNode(dataKey));
+        double held = Benchmark.time("read " + name + ", held value", OPERATIONS, () -> this.dataObject.getNullable(dataKey));
+        System.out.println(String.format("[benchmark] reading held %s takes %.2f of the object mapper time", name, held / node));
+    }
+
+    @Test
+    public void benchmarkHomes() throws Exception {
+        benchmark("homes", HOMES);
+    }
+
+    @Test
+    public void benchmarkIgnoreList() throws Exception {
+        benchmark("ignore list", IGNORED);
+    }
+
+    @Test
+    public void benchmarkKitUsage() throws Exception {
+        benchmark("kit usage", KIT_USAGE);
+    }
+
+}
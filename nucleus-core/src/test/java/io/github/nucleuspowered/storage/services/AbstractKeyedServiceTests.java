@@ -0,0 +1,125 @@
+/*
+ * This file is part of Nucleus, licensed under the MIT License (MIT). See the LICENSE.txt file
+ * at the root of this project for more details.
+ */
+package io.github.nucleuspowered.storage.services;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.IUserDataObject;
+import io.github.nucleuspowered.nucleus.services.impl.storage.dataobjects.modular.UserDataObject;
+import io.github.nucleuspowered.nucleus.services.impl.storage.queryobjects.IUserQueryObject;
+import io.github.nucleuspowered.storage.dataobjects.keyed.DataKey;
+import io.github.nucleuspowered.storage.util.ThrownConsumer;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+// In the same package as the service, as the constructor and flush it uses are package private.
+public class AbstractKeyedServiceTests {
+
+    private static final UUID KEY = UUID.randomUUID();
+    private static final DataKey<String, IUserDataObject> VALUE = DataKey.of(TypeToken.of(String.class), IUserDataObject.class, "value");
+
+    private static AbstractKeyedService<IUserQueryObject, IUserDataObject> createService(ThrownConsumer<Map<UUID, IUserDataObject>, Exception> saveAll) {
+        AbstractKeyedService<IUserQueryObject, IUserDataObject> service = new AbstractKeyedService<IUserQueryObject, IUserDataObject>(
+                () -> {
+                    UserDataObject dataObject = new UserDataObject();
+                    dataObject.setBackingNode(SimpleConfigurationNode.root());
+                    return dataObject;
+                },
+                (key, value) -> {},
+                saveAll,
+                query -> ImmutableMap.of(),
+                key -> Optional.empty(),
+                query -> Optional.empty(),
+                () -> null,
+                x -> {},
+                x -> {},
+                null) { };
+        service.enableWriteBehind(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        return service;
+    }
+
+    @Test
+    public void testSavesAreOnlyWrittenOnFlush() throws Exception {
+        List<String> written = new ArrayList<>();
+        AbstractKeyedService<IUserQueryObject, IUserDataObject> service =
+                createService(values -> written.add(values.get(KEY).getBackingNode().getNode("value").getString()));
+        IUserDataObject dataObject = service.createNew();
+        dataObject.set(VALUE, "first");
+        service.saveOnThread(KEY, dataObject);
+        dataObject.set(VALUE, "second");
+        service.saveOnThread(KEY, dataObject);
+        Assert.assertTrue(written.isEmpty());
+
+        service.flushPendingWrites();
+        Assert.assertEquals(1, written.size());
+        Assert.assertEquals("second", written.get(0));
+        Assert.assertFalse(dataObject.isDirty());
+
+        service.flushPendingWrites();
+        Assert.assertEquals(1, written.size());
+    }
+
+    @Test
+    public void testASaveDuringAFlushIsWrittenByTheNextFlush() throws Exception {
+        List<String> written = new ArrayList<>();
+        List<AbstractKeyedService<IUserQueryObject, IUserDataObject>> holder = new ArrayList<>();
+        AbstractKeyedService<IUserQueryObject, IUserDataObject> service = createService(values -> {
+            IUserDataObject dataObject = values.get(KEY);
+            written.add(dataObject.getBackingNode().getNode("value").getString());
+            if (written.size() == 1) {
+                // Changed and saved again once the first value has been serialised, but before the flush finishes.
+                dataObject.set(VALUE, "second");
+                holder.get(0).saveOnThread(KEY, dataObject);
+            }
+        });
+        holder.add(service);
+
+        IUserDataObject dataObject = service.createNew();
+        dataObject.set(VALUE, "first");
+        service.saveOnThread(KEY, dataObject);
+
+        service.flushPendingWrites();
+        Assert.assertEquals("first", written.get(0));
+        Assert.assertTrue(dataObject.isDirty());
+
+        service.flushPendingWrites();
+        Assert.assertEquals(2, written.size());
+        Assert.assertEquals("second", written.get(1));
+        Assert.assertFalse(dataObject.isDirty());
+    }
+
+    @Test
+    public void testAFailedFlushLeavesTheWriteQueued() throws Exception {
+        List<String> written = new ArrayList<>();
+        AbstractKeyedService<IUserQueryObject, IUserDataObject> service = createService(values -> {
+            if (written.isEmpty()) {
+                written.add(null);
+                throw new Exception("failed write");
+            }
+
+            written.add(values.get(KEY).getBackingNode().getNode("value").getString());
+        });
+
+        IUserDataObject dataObject = service.createNew();
+        dataObject.set(VALUE, "value");
+        service.saveOnThread(KEY, dataObject);
+
+        service.flushPendingWrites();
+        Assert.assertTrue(dataObject.isDirty());
+        Assert.assertEquals(Optional.of(dataObject), service.getOnThread(KEY));
+
+        service.flushPendingWrites();
+        Assert.assertEquals("value", written.get(1));
+        Assert.assertFalse(dataObject.isDirty());
+    }
+
+}